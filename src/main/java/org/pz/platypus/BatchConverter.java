@@ -0,0 +1,438 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts many documents in one run of Platypus (batch mode).
+ *
+ * The tables that are the same for every document--the literals, the config file, the
+ * Platypus command table, the plugins' Start classes, and the plugin tables kept in
+ * SharedTables (such as the PDF symbols and the typeface map)--are loaded once. Each
+ * document then gets its own GDD and is converted on a pool of threads.
+ *
+ * Documents can be specified in three ways:
+ *  -batch listfile   a text file with one document per line: input-file output-file
+ *                    (separated by a tab, or by spaces if neither name contains spaces).
+ *                    If the output file is omitted, it's derived from the input file name
+ *                    and the -format option. Blank lines and lines starting with # are skipped.
+ *  -batch directory  every file in the directory is converted to the -format format
+ *                    (default: pdf), with the output written next to the input.
+ *  -server           documents are read from stdin in the listfile format, and converted
+ *                    as they arrive, until end of input.
+ *
+ * For every document, a line is written to stdout with the result and the time it took.
+ *
+ * @author alb
+ */
+public class BatchConverter
+{
+    /** the GDD holding the tables shared by all documents */
+    private final GDD masterGdd;
+
+    /** the command-line args for the batch run itself */
+    private final CommandLineArgs masterArgs;
+
+    /** the output format for documents that don't specify an output file */
+    private final String defaultFormat;
+
+    /** the plugin Start classes already loaded, keyed by plugin prefix */
+    private final HashMap<String, Class<?>> pluginClasses;
+
+    private final ExecutorService pool;
+    private final PrintStream report;
+
+    /** the number of threads each document is parsed on */
+    private final int parserThreads;
+
+    private final AtomicInteger converted = new AtomicInteger( 0 );
+    private final AtomicInteger failed = new AtomicInteger( 0 );
+
+    /**
+     * @param gdd the GDD, with the literals, logger and config file already set up
+     * @param clArgs the command-line args for the batch run
+     * @param out where the per-document results are written (generally, System.out)
+     */
+    public BatchConverter( final GDD gdd, final CommandLineArgs clArgs, final PrintStream out )
+    {
+        masterGdd = gdd;
+        masterArgs = clArgs;
+        report = out;
+        pluginClasses = new HashMap<String, Class<?>>();
+
+        String format = clArgs.lookup( "format" );
+        defaultFormat = ( format == null || format.isEmpty() ) ? "pdf" : format.toLowerCase();
+
+        final int threads = computeThreadCount( clArgs );
+        pool = Executors.newFixedThreadPool( threads );
+        parserThreads = computeParserThreadCount( threads );
+    }
+
+    /**
+     * Is a batch or server run requested on the command line?
+     *
+     * @param clArgs the command-line args
+     * @return true if -batch or -server was specified
+     */
+    public static boolean isRequested( final CommandLineArgs clArgs )
+    {
+        return( clArgs.lookup( "batch" ) != null || clArgs.lookup( "server" ) != null );
+    }
+
+    /**
+     * The number of documents converted at the same time: the -threads option if it's
+     * specified, otherwise the number of processors.
+     *
+     * @param clArgs the command-line args
+     * @return the number of threads to use
+     */
+    static int computeThreadCount( final CommandLineArgs clArgs )
+    {
+        String threads = clArgs.lookup( "threads" );
+        if( threads != null ) {
+            try {
+                int n = Integer.parseInt( threads );
+                if( n > 0 ) {
+                    return( n );
+                }
+            }
+            catch( NumberFormatException nfe ) {
+                // fall through to the default
+            }
+        }
+        return( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * The number of threads each document is parsed on. When several documents are
+     * converted at the same time, they already share out the processors, so each one is
+     * parsed on a single thread; a lone document is parsed on all the processors.
+     *
+     * @param documentThreads the number of documents converted at the same time
+     * @return the number of threads to parse a document on
+     */
+    static int computeParserThreadCount( final int documentThreads )
+    {
+        return( documentThreads > 1 ? 1 : Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Runs the batch: loads the shared tables, then converts the documents specified
+     * by -batch or -server.
+     *
+     * @return Status.OK if all documents were converted, Status.ERR otherwise
+     */
+    public int run()
+    {
+        preload();
+
+        final String batch = masterArgs.lookup( "batch" );
+        try {
+            if( batch != null ) {
+                File f = new File( batch );
+                if( f.isDirectory() ) {
+                    submitDirectory( f );
+                }
+                else {
+                    submitList( new BufferedReader( new FileReader( f )));
+                }
+            }
+            else {
+                submitList( new BufferedReader( new InputStreamReader( System.in )));
+            }
+        }
+        catch( IOException ioe ) {
+            masterGdd.logSevere( masterGdd.getLit( "ERROR.FILE_NOT_FOUND" ) + " " + batch );
+            failed.incrementAndGet();
+        }
+
+        pool.shutdown();
+        try {
+            pool.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+        }
+        catch( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+        }
+
+        report.println( "Converted " + converted.get() + " documents; " +
+                        failed.get() + " failed" );
+        return( failed.get() == 0 ? Status.OK : Status.ERR );
+    }
+
+    /**
+     * Loads the Platypus command table, which is then shared by all documents.
+     */
+    void preload()
+    {
+        Platypus.loadCommandTable( masterGdd );
+    }
+
+    /**
+     * Submits every file in a directory for conversion to the default format
+     *
+     * @param dir the directory
+     */
+    void submitDirectory( final File dir )
+    {
+        String[] names = dir.list();
+        if( names == null ) {
+            return;
+        }
+
+        Arrays.sort( names );
+        for( String name : names ) {
+            File f = new File( dir, name );
+            if( f.isFile() && ! name.startsWith( "." ) &&
+                ! name.toLowerCase().endsWith( "." + defaultFormat )) {
+                submit( f.getPath(), deriveOutputFilename( f.getPath() ));
+            }
+        }
+    }
+
+    /**
+     * Reads a list of documents and submits each for conversion
+     *
+     * @param in the list, with one document per line
+     * @throws IOException if the list can't be read
+     */
+    void submitList( final BufferedReader in ) throws IOException
+    {
+        String line;
+        while(( line = in.readLine() ) != null ) {
+            String[] files = parseListLine( line );
+            if( files != null ) {
+                submit( files[0], files[1] );
+            }
+        }
+        in.close();
+    }
+
+    /**
+     * Parses a line in a batch list into the input and output filenames.
+     *
+     * @param line the line from the list
+     * @return a two-element array: input and output filename; null if the line is blank
+     *         or a comment.
+     */
+    String[] parseListLine( final String line )
+    {
+        String s = line.trim();
+        if( s.isEmpty() || s.startsWith( "#" )) {
+            return( null );
+        }
+
+        String[] parts = ( s.indexOf( '\t' ) >= 0 ) ? s.split( "\t+", 2 ) : s.split( "\\s+", 2 );
+        String input = parts[0].trim();
+        String output = ( parts.length > 1 ) ? parts[1].trim() : "";
+        if( output.isEmpty() ) {
+            output = deriveOutputFilename( input );
+        }
+        return( new String[] { input, output } );
+    }
+
+    /**
+     * Creates an output filename by replacing the input file's extension with the format
+     *
+     * @param input the input filename
+     * @return the output filename
+     */
+    String deriveOutputFilename( final String input )
+    {
+        int dot = input.lastIndexOf( '.' );
+        int sep = Math.max( input.lastIndexOf( '/' ), input.lastIndexOf( '\\' ));
+        String base = ( dot > sep ) ? input.substring( 0, dot ) : input;
+        return( base + "." + defaultFormat );
+    }
+
+    /**
+     * Submits a document for conversion. The document's command-line args are created
+     * here, rather than on the worker thread, as Commons CLI is not thread-safe.
+     *
+     * @param input the input filename
+     * @param output the output filename
+     * @return the Future for the conversion
+     */
+    Future<Integer> submit( final String input, final String output )
+    {
+        final CommandLineArgs docArgs = new CommandLineArgs( createDocumentArgs( input, output ));
+
+        return( pool.submit( new Callable<Integer>() {
+            public Integer call()
+            {
+                return( convertAndReport( input, output, docArgs ));
+            }
+        }));
+    }
+
+    /**
+     * Creates the args for converting a single document, carrying over the -format,
+     * -encoding, -verbose, -vverbose, -stream, and -tokencache options of the batch run.
+     *
+     * @param input the input filename
+     * @param output the output filename
+     * @return the args
+     */
+    String[] createDocumentArgs( final String input, final String output )
+    {
+        ArrayList<String> args = new ArrayList<String>();
+        args.add( input );
+        args.add( output );
+        for( String option : new String[] { "format", "encoding" } ) {
+            final String value = masterArgs.lookup( option );
+            if( value != null && ! value.isEmpty() ) {
+                args.add( "-" + option );
+                args.add( value );
+            }
+        }
+        for( String option : new String[] { "verbose", "vverbose", "stream", "tokencache" } ) {
+            if( masterArgs.lookup( option ) != null ) {
+                args.add( "-" + option );
+            }
+        }
+        return( args.toArray( new String[args.size()] ));
+    }
+
+    /**
+     * Converts a document and writes the result and timing to the report
+     *
+     * @param input the input filename
+     * @param output the output filename
+     * @param docArgs the command-line args for this document
+     * @return Status.OK or an error code
+     */
+    int convertAndReport( final String input, final String output, final CommandLineArgs docArgs )
+    {
+        final long start = System.nanoTime();
+        int status;
+        try {
+            status = convert( input, docArgs );
+        }
+        catch( Exception ex ) {
+            masterGdd.logSevere( masterGdd.getLit( "ERROR.UNEXPECTED" ) + " " + input + ": " + ex );
+            status = Status.ERR;
+        }
+        final long millis = ( System.nanoTime() - start ) / 1000000L;
+
+        if( status == Status.OK ) {
+            converted.incrementAndGet();
+            report.println( "OK     " + millis + " ms  " + input + " -> " + output );
+        }
+        else {
+            failed.incrementAndGet();
+            report.println( "FAILED " + millis + " ms  " + input + " (" + status + ")" );
+        }
+        return( status );
+    }
+
+    /**
+     * Converts a single document, using its own GDD and the shared tables.
+     *
+     * @param input the input filename
+     * @param docArgs the command-line args for this document
+     * @return Status.OK or an error code
+     * @throws Exception if an error is not handled within the conversion
+     */
+    int convert( final String input, final CommandLineArgs docArgs ) throws Exception
+    {
+        final GDD gdd = createDocumentGdd( docArgs );
+
+        // with -stream, the input is parsed on a thread of its own, which must be stopped
+        // however the conversion ends, as the JVM runs on after this document
+        try {
+            try {
+                gdd.getInputFileList().addFilename( input );
+                Platypus.putFormatInSystemStrings( docArgs, gdd );
+                Platypus.findOutputFilePluginType( docArgs, gdd );
+                Platypus.processInputFile( gdd, docArgs, parserThreads );
+            }
+            catch( NoSuchFieldException nsfe ) {
+                return( Status.INVALID_INPUT_FILE );
+            }
+            catch( MissingResourceException mre ) {
+                return( Status.ERR_UNSUPPORTED_FORMAT );
+            }
+
+            final Class<?> pluginStart = getPluginClass( gdd, docArgs );
+            if( pluginStart == null ) {
+                return( Status.INVALID_PLUGIN_URL );
+            }
+
+            new PluginLoader( pluginStart.getName(), gdd ).runPlugin( pluginStart, gdd, docArgs );
+            return( Status.OK );
+        }
+        finally {
+            Platypus.closeInputTokens( gdd );
+        }
+    }
+
+    /**
+     * Creates the GDD for a single document. It shares the literals, logger, config file,
+     * command table, and shared tables of the batch GDD; everything else is per document.
+     *
+     * @param docArgs the command-line args for this document
+     * @return the new GDD
+     */
+    GDD createDocumentGdd( final CommandLineArgs docArgs )
+    {
+        return( createDocumentGdd( masterGdd, docArgs ));
+    }
+
+    /**
+     * Creates the GDD for a single document, sharing the literals, logger, config file,
+     * command table, and shared tables of another GDD.
+     *
+     * @param masterGdd the GDD whose tables are shared
+     * @param docArgs the command-line args for this document
+     * @return the new GDD
+     */
+    static GDD createDocumentGdd( final GDD masterGdd, final CommandLineArgs docArgs )
+    {
+        GDD gdd = new GDD();
+        gdd.setLits( masterGdd.getLits() );
+        gdd.setLogger( masterGdd.getLogger() );
+        gdd.setupHomeDirectory();
+        gdd.setClVerbose( masterGdd.isClVerbose() );
+        gdd.setConfigFile( masterGdd.getConfigFile() );
+        gdd.setCommandTable( masterGdd.getCommandTable() );
+        gdd.setSharedTables( masterGdd.getSharedTables() );
+
+        gdd.getSysStrings().add( "_version", gdd.getLit( "VERSION" ));
+        gdd.getSysStrings().add( "_commandLine", masterGdd.getSysStrings().getString( "_commandLine" ));
+        final String outputFile = docArgs.lookup( "outputFile" );
+        gdd.getSysStrings().add( "_outputFile", outputFile == null ? "" : outputFile );
+        return( gdd );
+    }
+
+    /**
+     * Gets the plugin's Start class, loading it if this is the first document that
+     * uses this plugin.
+     *
+     * @param gdd the document's GDD
+     * @param docArgs the command-line args for this document
+     * @return the Start class or null if it couldn't be loaded
+     */
+    Class<?> getPluginClass( final GDD gdd, final CommandLineArgs docArgs )
+    {
+        synchronized( pluginClasses ) {
+            final String prefix = gdd.getOutputPluginPrefix();
+            Class<?> pluginStart = pluginClasses.get( prefix );
+            if( pluginStart == null ) {
+                final String pluginJar = Platypus.loadOutputPlugin( gdd, docArgs );
+                pluginStart = new PluginLoader( pluginJar, gdd ).loadStartClass();
+                if( pluginStart != null ) {
+                    pluginClasses.put( prefix, pluginStart );
+                }
+            }
+            return( pluginStart );
+        }
+    }
+}
@@ -93,6 +93,51 @@ public abstract class Command implements ICommand
         return( 0 );
     }
 
+    /**
+     * Processes this command where an alias of it (see CommandR) is in the input: the
+     * alias root, rather than this command's root, is at the context's startPoint. The
+     * tokens are the same as for the command written out in full. This default expands the
+     * alias into a copy of the line; commands that can read their parameter straight from
+     * the input override it.
+     *
+     * @param gdd the GDD
+     * @param context the parsing context, with the alias root at startPoint
+     * @param tl TokenList to which the generated tokens are added
+     * @param inCode Are we currently in a code section?
+     * @param aliasLength the number of chars in the alias root
+     * @return number of chars to skip to get past the aliased command in the input
+     */
+    public int processAlias( final GDD gdd, final ParseContext context, final TokenList tl,
+                             final boolean inCode, final int aliasLength )
+    {
+        return( processExpandedAlias( this, gdd, context, tl, inCode, aliasLength ));
+    }
+
+    /**
+     * Processes a command where an alias of it is in the input, by processing a copy of the
+     * line in which the command's root takes the place of the alias. The commands parse only
+     * forward from their root, so the copy holds just the rest of the line, not all of it.
+     *
+     * @param command the command the alias stands for
+     * @param gdd the GDD
+     * @param context the parsing context, with the alias root at startPoint
+     * @param tl TokenList to which the generated tokens are added
+     * @param inCode Are we currently in a code section?
+     * @param aliasLength the number of chars in the alias root
+     * @return number of chars to skip to get past the aliased command in the input
+     */
+    protected static int processExpandedAlias( final ICommand command, final GDD gdd,
+                                               final ParseContext context, final TokenList tl,
+                                               final boolean inCode, final int aliasLength )
+    {
+        final String commandRoot = command.getRoot();
+        final ParseContext expanded = new ParseContext( gdd, context.source,
+                commandRoot + context.getContent().substring( context.startPoint + aliasLength ),
+                0 );
+
+        return( command.process( gdd, expanded, tl, inCode ) - commandRoot.length() + aliasLength );
+    }
+
     /**
      * Handles the situation in which a command that is not supported in a listing or
      * code section is encountered while in one.
@@ -0,0 +1,101 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each command root a small integer id, so that the output plugins can look up
+ * the command for a token by indexing an array, rather than by hashing its root.
+ *
+ * Roots are registered when the command tables are loaded: first Platypus's CommandTable,
+ * then the tables in the output plugins. The ids are shared by all the documents converted
+ * in one run of Platypus, so a root keeps the same id in every table.
+ *
+ * @author alb
+ */
+public final class CommandIds
+{
+    /** the id of any root that has not been registered (and of a null root) */
+    public static final int NONE = -1;
+
+    private static final ConcurrentHashMap<String, Integer> ids =
+        new ConcurrentHashMap<String, Integer>( 512 );
+
+    /** the roots, indexed by id */
+    private static volatile String[] roots = new String[512];
+
+    private static int count = 0;
+
+    /** the roots the plugins test for in their main loop; registered first, so always here */
+    public static final int EOL          = register( "[cr]" );
+    public static final int EO_PARAGRAPH = register( "[CR]" );
+    public static final int HARD_CR      = register( "[]" );
+
+    private CommandIds()
+    {
+    }
+
+    /**
+     * Registers a root, assigning it the next id, unless it's already registered
+     *
+     * @param root the command root
+     * @return the id of the root
+     */
+    public static synchronized int register( final String root )
+    {
+        if( root == null ) {
+            throw new IllegalArgumentException( "null root passed to CommandIds.register()" );
+        }
+
+        final Integer id = ids.get( root );
+        if( id != null ) {
+            return( id );
+        }
+
+        if( count == roots.length ) {
+            roots = Arrays.copyOf( roots, count * 2 );
+        }
+        roots[count] = root;
+        ids.put( root, count );
+        return( count++ );
+    }
+
+    /**
+     * Looks up the id of a root
+     *
+     * @param root the command root
+     * @return the id, or NONE if the root is null or has not been registered
+     */
+    public static int lookup( final String root )
+    {
+        if( root == null ) {
+            return( NONE );
+        }
+
+        final Integer id = ids.get( root );
+        return( id == null ? NONE : id );
+    }
+
+    /**
+     * @param id the id of a root
+     * @return the root, or null if no root has this id
+     */
+    public static String getRoot( final int id )
+    {
+        final String[] r = roots;
+        return(( id < 0 || id >= r.length ) ? null : r[id] );
+    }
+
+    /** @return the number of roots registered, which is one more than the highest id */
+    public static int getCount()
+    {
+        return( ids.size() );
+    }
+}
@@ -82,13 +82,33 @@ public class CommandLineArgs {
                 .hasArg()
                 .withDescription("output format")
                 .create("format");
+        Option batch = OptionBuilder.withArgName("listfile|dir")
+                .hasArg()
+                .withDescription("convert all documents in a list file or directory")
+                .create("batch");
+        Option threads = OptionBuilder.withArgName("n")
+                .hasArg()
+                .withDescription("number of documents converted at the same time")
+                .create("threads");
+        Option formats = OptionBuilder.withArgName("format,format...")
+                .hasArg()
+                .withDescription("output formats, each written to its own file")
+                .create("formats");
+        Option encoding = OptionBuilder.withArgName("charset")
+                .hasArg()
+                .withDescription("charset of the input file")
+                .create("encoding");
 
         Option verbose = new Option("verbose", "verbose help");
         Option vverbose = new Option("vverbose", "very verbose help");
         Option fontlist = new Option("fontlist", "list of fonts");
+        Option stream = new Option("stream", "stream tokens to the output plugin");
+        Option server = new Option("server", "convert documents listed on stdin");
+        Option tokencache = new Option("tokencache", "cache parsed tokens in a .ptok file");
         Option help = new Option("help", "print this message");
 
-        return new Option[]{inputFile, outputFile, configFile, format, verbose, vverbose, fontlist, help};
+        return new Option[]{inputFile, outputFile, configFile, format, formats, batch, threads, encoding,
+                             verbose, vverbose, fontlist, stream, server, tokencache, help};
     }
 
 
@@ -274,7 +294,9 @@ public class CommandLineArgs {
     }
 
     private static boolean doesOptionHaveArg(String arg) {
-        return arg.equals("-config") || arg.equals("-format");
+        return arg.equals("-config") || arg.equals("-format") ||
+               arg.equals("-batch") || arg.equals("-threads") || arg.equals("-encoding") ||
+               arg.equals("-formats");
 
     }
 
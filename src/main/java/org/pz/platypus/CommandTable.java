@@ -28,6 +28,9 @@ public class CommandTable
     /** the hashtable into which the commands are loaded */
     protected HashMap<String, ICommand> commandTable;
 
+    /** the same commands, in a trie, for looking up roots in the parser's input */
+    private final CommandTrie trie = new CommandTrie();
+
     private GDD gdd;
 
     /**
@@ -179,12 +182,15 @@ public class CommandTable
     }
 
     /**
-     * add a Commandable item to the hash table, using its root as the key to the entry
+     * add a Commandable item to the hash table, using its root as the key to the entry.
+     * The root is also assigned an id in CommandIds, which the tokens for it will carry.
      * @param entry to be added (either a command or a symbol)
      */
     public void add( ICommand entry )
     {
         commandTable.put( entry.getRoot(), entry );
+        trie.add( entry.getRoot(), entry );
+        CommandIds.register( entry.getRoot() );
     }
     //=== getters and setters ===/
 
@@ -197,4 +203,31 @@ public class CommandTable
     {
         return( (ICommand) commandTable.get( root ));
     }
+
+    /**
+     * Lookup a command by the root at a point in the input, without copying the root out
+     * of the input. The root ends at the first | : or ] character.
+     *
+     * @param chars the input
+     * @param start where the root starts in the input
+     * @return the Commandable class found, or null if there is none with this root
+     */
+    public ICommand getCommand( final char[] chars, final int start )
+    {
+        return( trie.match( "", chars, start ));
+    }
+
+    /**
+     * Lookup a member of a command family by its name at a point in the input: so,
+     * getCommand( "[font|", chars, i ) finds [font|size: when size: is at i.
+     *
+     * @param familyRoot the root of the family, such as [font|
+     * @param chars the input
+     * @param start where the member's name starts in the input
+     * @return the Commandable class found, or null if the family has no such member
+     */
+    public ICommand getCommand( final String familyRoot, final char[] chars, final int start )
+    {
+        return( trie.match( familyRoot, chars, start ));
+    }
 }
@@ -0,0 +1,127 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import org.pz.platypus.interfaces.ICommand;
+
+/**
+ * A character trie of the roots in a CommandTable: the commands, the aliases (replacement
+ * commands), the members of command families, and the symbols. It's built as the table is
+ * loaded, and lets the parser recognize a root directly in the char array of the line
+ * being parsed, rather than copying the root into a String and then hashing it.
+ *
+ * A root ends at the first ']', '|', or ':' in it, so a match ends at the first of these
+ * in the input. The members of a family are matched by walking the family root (such as
+ * [font|) and then the member's name in the input (such as size:).
+ *
+ * Each node keeps the chars that can follow it in a sorted array, searched by bisection.
+ * Lookups do not allocate.
+ *
+ * @author alb
+ */
+final class CommandTrie
+{
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final Node top = new Node();
+
+    /**
+     * Adds a root to the trie, replacing the command of the root if it's already there
+     *
+     * @param root the root
+     * @param command the command for the root
+     */
+    void add( final String root, final ICommand command )
+    {
+        Node node = top;
+        for( int i = 0; i < root.length(); i++ ) {
+            node = node.addNext( root.charAt( i ));
+        }
+        node.command = command;
+    }
+
+    /**
+     * Finds the command whose root is a prefix followed by the chars in the input, from
+     * start up to and including the first ']', '|', or ':'
+     *
+     * @param prefix the start of the root; "" for a command, or a family root for a member
+     * @param chars the input
+     * @param start where the rest of the root starts in the input
+     * @return the command, or null if there is no such root
+     */
+    ICommand match( final String prefix, final char[] chars, final int start )
+    {
+        Node node = top;
+        for( int i = 0; i < prefix.length() && node != null; i++ ) {
+            node = node.next( prefix.charAt( i ));
+        }
+
+        for( int i = start; i < chars.length && node != null; i++ ) {
+            final char c = chars[i];
+            node = node.next( c );
+            if( c == ']' || c == '|' || c == ':' ) {
+                return( node == null ? null : node.command );
+            }
+        }
+        return( null );
+    }
+
+    private static final class Node
+    {
+        /** the chars that can follow this node, sorted, and the node for each */
+        private char[] chars = NO_CHARS;
+        private Node[] nexts = NO_NODES;
+
+        /** the command whose root ends here; null if none does */
+        private ICommand command;
+
+        Node next( final char c )
+        {
+            int low = 0;
+            int high = chars.length - 1;
+            while( low <= high ) {
+                final int mid = ( low + high ) >>> 1;
+                if( chars[mid] < c ) {
+                    low = mid + 1;
+                }
+                else if( chars[mid] > c ) {
+                    high = mid - 1;
+                }
+                else {
+                    return( nexts[mid] );
+                }
+            }
+            return( null );
+        }
+
+        Node addNext( final char c )
+        {
+            int i = 0;
+            while( i < chars.length && chars[i] < c ) {
+                i++;
+            }
+            if( i < chars.length && chars[i] == c ) {
+                return( nexts[i] );
+            }
+
+            final char[] newChars = new char[chars.length + 1];
+            final Node[] newNexts = new Node[chars.length + 1];
+            System.arraycopy( chars, 0, newChars, 0, i );
+            System.arraycopy( nexts, 0, newNexts, 0, i );
+            System.arraycopy( chars, i, newChars, i + 1, chars.length - i );
+            System.arraycopy( nexts, i, newNexts, i + 1, chars.length - i );
+            newChars[i] = c;
+            newNexts[i] = new Node();
+
+            chars = newChars;
+            nexts = newNexts;
+            return( newNexts[i] );
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An on-disk index of the font files found on the system, recording for each file its
+ * size, its last-modified time, and the font family name(s) it implements. It's stored in
+ * PLATYPUS_HOME/config/fontindex.txt, next to the fontlist.txt file.
+ *
+ * Extracting the family name from a font file requires opening the font, which is slow.
+ * With the index, only font files that are new or that have changed since the last scan
+ * need to be opened; and those are opened in parallel on a pool of threads.
+ *
+ * Each line of the index is: filename TAB size TAB last-modified [TAB family]...
+ * A file with no families (one that could not be read) is recorded, so that it's not
+ * re-read on every scan.
+ *
+ * @author alb
+ */
+public class FontIndex
+{
+    /** the version of the index format. Indexes with a different version are rebuilt */
+    static final String HEADER = "# Platypus font index v1";
+
+    /** the name of the index file in PLATYPUS_HOME/config */
+    public static final String FILENAME = "fontindex.txt";
+
+    /** the entries in the index, keyed by font filename */
+    private final HashMap<String, Entry> entries;
+
+    private final GDD gdd;
+    private final String indexFilename;
+
+    /** number of font files read in the last call to refresh() */
+    private int filesRead = 0;
+
+    public FontIndex( final GDD Gdd, final String filename )
+    {
+        gdd = Gdd;
+        indexFilename = filename;
+        entries = new HashMap<String, Entry>();
+    }
+
+    /**
+     * Loads the index from disk. A missing or unreadable index file is not an error;
+     * it simply means that all the font files will be read.
+     */
+    public void load()
+    {
+        entries.clear();
+
+        File f = new File( indexFilename );
+        if( ! f.isFile() || ! f.canRead() ) {
+            return;
+        }
+
+        BufferedReader inReader = null;
+        try {
+            inReader = new BufferedReader( new FileReader( f ));
+            String line = inReader.readLine();
+            if( line == null || ! line.equals( HEADER )) {
+                return;
+            }
+
+            while(( line = inReader.readLine() ) != null ) {
+                loadLine( line );
+            }
+        }
+        catch( IOException ioe ) {
+            entries.clear();
+        }
+        finally {
+            if( inReader != null ) {
+                try {
+                    inReader.close();
+                }
+                catch( IOException ignored ) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads one entry from the index file. Malformed lines are skipped.
+     *
+     * @param line the line from the index file
+     */
+    void loadLine( final String line )
+    {
+        String[] fields = line.split( "\t" );
+        if( fields.length < 3 ) {
+            return;
+        }
+
+        try {
+            long size = Long.parseLong( fields[1] );
+            long modified = Long.parseLong( fields[2] );
+            String[] families = Arrays.copyOfRange( fields, 3, fields.length );
+            entries.put( fields[0], new Entry( size, modified, families ));
+        }
+        catch( NumberFormatException nfe ) {
+            // skip the line
+        }
+    }
+
+    /**
+     * Writes the index to disk.
+     */
+    public void save()
+    {
+        ArrayList<String> filenames = new ArrayList<String>( entries.keySet() );
+        Collections.sort( filenames );
+
+        try {
+            PrintWriter out = new PrintWriter( new BufferedWriter( new FileWriter( indexFilename )));
+            out.println( HEADER );
+            for( String filename : filenames ) {
+                Entry e = entries.get( filename );
+                StringBuilder sb = new StringBuilder( filename );
+                sb.append( '\t' ).append( e.size ).append( '\t' ).append( e.modified );
+                for( String family : e.families ) {
+                    sb.append( '\t' ).append( family );
+                }
+                out.println( sb.toString() );
+            }
+            out.close();
+            gdd.log( "Wrote font index with " + entries.size() + " entries to " + indexFilename );
+        }
+        catch( IOException ioe ) {
+            gdd.logWarning( "Could not write font index: " + indexFilename );
+        }
+    }
+
+    /**
+     * Brings the index up to date with the list of font files. Entries for files that no
+     * longer exist are dropped; files that are new or whose size or last-modified time has
+     * changed are opened (in parallel) to get their family names.
+     *
+     * @param fontFiles the font files currently on the system
+     * @param typefaceMap used to extract the family names from the font files
+     */
+    public void refresh( final List<String> fontFiles, final TypefaceMap typefaceMap )
+    {
+        HashMap<String, Entry> current = new HashMap<String, Entry>();
+        ArrayList<String> toRead = new ArrayList<String>();
+
+        for( String filename : fontFiles ) {
+            File f = new File( filename );
+            Entry e = entries.get( filename );
+            if( e != null && e.size == f.length() && e.modified == f.lastModified() ) {
+                current.put( filename, e );
+            }
+            else {
+                toRead.add( filename );
+            }
+        }
+
+        entries.clear();
+        entries.putAll( current );
+        entries.putAll( readFontFiles( toRead, typefaceMap ));
+        filesRead = toRead.size();
+    }
+
+    /**
+     * Reads the family names from a list of font files on a pool of threads.
+     *
+     * @param filenames the font files to read
+     * @param typefaceMap used to extract the family names from the font files
+     * @return a map of the filenames to their new index entries
+     */
+    private HashMap<String, Entry> readFontFiles( final List<String> filenames,
+                                                  final TypefaceMap typefaceMap )
+    {
+        HashMap<String, Entry> results = new HashMap<String, Entry>();
+        if( filenames.isEmpty() ) {
+            return( results );
+        }
+
+        int threads = Math.min( filenames.size(), Runtime.getRuntime().availableProcessors() );
+        ExecutorService pool = Executors.newFixedThreadPool( threads );
+
+        try {
+            LinkedHashMap<String, Future<Entry>> futures = new LinkedHashMap<String, Future<Entry>>();
+            for( final String filename : filenames ) {
+                futures.put( filename, pool.submit( new Callable<Entry>() {
+                    public Entry call()
+                    {
+                        File f = new File( filename );
+                        return( new Entry( f.length(), f.lastModified(),
+                                           typefaceMap.extractFamilyNames( filename, null )));
+                    }
+                }));
+            }
+
+            // a file that can't be read is left out of the index, so it's read again next time
+            for( Map.Entry<String, Future<Entry>> future : futures.entrySet() ) {
+                try {
+                    results.put( future.getKey(), future.getValue().get() );
+                }
+                catch( ExecutionException ee ) {
+                    gdd.logInfo( "Exception loading " + future.getKey() + " into font index: " +
+                                 ee.getCause() );
+                }
+                catch( InterruptedException ie ) {
+                    gdd.logInfo( "Interrupted loading " + future.getKey() + " into font index" );
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        return( results );
+    }
+
+    //=== getters and setters ===
+
+    /**
+     * Gets the family names of a font file.
+     *
+     * @param filename the font file
+     * @return the family names; an empty array if the file is not in the index.
+     */
+    public String[] getFamilies( final String filename )
+    {
+        Entry e = entries.get( filename );
+        if( e == null ) {
+            return( new String[0] );
+        }
+        return( e.families );
+    }
+
+    public int getFilesRead()
+    {
+        return( filesRead );
+    }
+
+    public int getSize()
+    {
+        return( entries.size() );
+    }
+
+    /**
+     * A single entry in the index
+     */
+    static final class Entry
+    {
+        final long size;
+        final long modified;
+        final String[] families;
+
+        Entry( final long size, final long modified, final String[] families )
+        {
+            this.size = size;
+            this.modified = modified;
+            this.families = removeNulls( families );
+        }
+
+        private static String[] removeNulls( final String[] names )
+        {
+            ArrayList<String> valid = new ArrayList<String>();
+            if( names != null ) {
+                for( String name : names ) {
+                    if( name != null && ! name.isEmpty() ) {
+                        valid.add( name );
+                    }
+                }
+            }
+            return( valid.toArray( new String[valid.size()] ));
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class GDD
     private Literals        lits;
     private Logger          logger;
     private String          outputPluginPrefix;
+    private SharedTables    sharedTables;
     private String          symbolsListFilename;
     private SystemStrings   sysStrings;
     private Map<String,String> userEnv;
@@ -71,6 +72,7 @@ public class GDD
         inputTokens = new TokenList();
         lits = null;
         outputPluginPrefix = null;
+        sharedTables = new SharedTables();
         symbolsListFilename = "Symbols.list";
         sysStrings = new SystemStrings();
         userEnv = System.getenv();
@@ -297,6 +299,16 @@ public class GDD
         return( userEnv.get( "PLATYPUS_HOME" ));
     }
 
+    public SharedTables getSharedTables()
+    {
+        return( sharedTables );
+    }
+
+    public void setSharedTables( final SharedTables newSharedTables )
+    {
+        sharedTables = newSharedTables;
+    }
+
     public String getSymbolsListFilename()
     {
         return(  symbolsListFilename );
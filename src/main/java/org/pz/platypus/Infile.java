@@ -9,11 +9,25 @@ package org.pz.platypus;
 import org.pz.platypus.exceptions.FilenameLookupException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
 import java.util.MissingResourceException;
 
 /**
  * Handles input file I/O functions.
  *
+ * The file is read through a FileChannel in large blocks and decoded with an explicit
+ * charset (UTF-8, unless another is set) into a single char buffer. Lines are found by
+ * scanning that buffer, and each line's String is created directly from it, with the
+ * end-of-line char the parser expects already in place. A byte-order mark at the start
+ * of the file overrides the charset.
+ *
  * @author alb
  */
 public class Infile
@@ -21,11 +35,40 @@ public class Infile
 	/** the name of the input file */
     private final String filename;
 
+    /** the charset used when the file has no byte-order mark */
+    public static final Charset DEFAULT_CHARSET = Charset.forName( "UTF-8" );
+
+    /** the size of the blocks the file is read in, and the initial size of the char buffer */
+    static final int BUFFER_SIZE = 64 * 1024;
+
     /** file open status */
     private boolean isOpen = false;
 
-    /** input reader for file */
-    private BufferedReader inReader;
+    /** input channel for file */
+    private FileChannel channel;
+
+    /** the charset the file is decoded with */
+    private Charset charset = DEFAULT_CHARSET;
+
+    /** the decoder for the charset; created at open */
+    private CharsetDecoder decoder;
+
+    /** the bytes read from the file, but not yet decoded */
+    private ByteBuffer bytes;
+
+    /** the decoded chars; the lines not yet read are from charPos to charEnd */
+    private char[] chars;
+    private int charPos;
+    private int charEnd;
+
+    /** true once all the bytes have been read from the file */
+    private boolean atEndOfBytes;
+
+    /** true once all the chars have been decoded */
+    private boolean atEndOfChars;
+
+    /** true if the last line ended in a CR, so that an immediately following LF is skipped */
+    private boolean skipLF;
 
     /** the current line number and filenumber */
     private int currFileNumber;
@@ -64,7 +107,6 @@ public class Infile
         }
 
         int retVal = 0;
-        boolean atEOF = false;
 
         if ( ! isOpen ) {
             if (( retVal = open()) != Status.OK ) {
@@ -72,39 +114,71 @@ public class Infile
             }
         }
 
-        while( ! atEOF )
-        {
-            final InputLine inputLine = new InputLine();
+        try {
+            String content;
+            while(( content = readLine() ) != null ) {
+                textLines.add( new InputLine( new Source( currFileNumber, ++currLineNumber ),
+                                              content ));
+            }
+        }
+        catch( IOException ioe ) {
+            gdd.logSevere( gdd.getLit( "ERROR.READING_PLATYPUS_FILE" ) + " " + filename );
+            retVal = Status.IO_ERR;
+        }
 
-            switch( readNext1LineIntoInputLine( inputLine )) {
-                case Status.OK:
-                    textLines.add( inputLine );
-                    break;
+        // close the input filestream
+        if( close() != Status.OK ) {
+            retVal = Status.IO_ERR;
+        }
 
-                case Status.AT_EOF:
-                    atEOF = true;
-                    break;
+        return(( retVal == Status.IO_ERR ) ? retVal : currLineNumber );
+    }
 
-                case Status.IO_ERR:
-                default:   // anything other is also an error
-                    gdd.logSevere( gdd.getLit( "ERROR.READING_PLATYPUS_FILE" ) + " " +
-                                    filename );
-                    break;
-            }
+    /**
+     * Reads the next line of the input file into an InputLine. Used when the input
+     * is streamed to the parser a line at a time, rather than read in its entirety
+     * by readFileIntoInputLines(). Opens the file on first use.
+     *
+     * @param inputLine the InputLine into which the line of content is placed
+     * @return Status.OK; Status.AT_EOF at EOF; Status.IO_ERR or an open() error code otherwise.
+     */
+    public int readNextLine( final InputLine inputLine )
+    {
+        if ( inputLine == null ) {
+            return( Status.INVALID_PARAM_NULL );
         }
 
-        // close the input filestream
-        try
-        {
-        	inReader.close();
-            isOpen = false;
+        if ( ! isOpen ) {
+            int retVal = open();
+            if ( retVal != Status.OK ) {
+                return( retVal );
+            }
         }
-        catch( IOException e )
-        {
-        	retVal = Status.IO_ERR;
+
+        return( readNext1LineIntoInputLine( inputLine ));
+    }
+
+    /**
+     * Closes the input file, if it's open.
+     *
+     * @return Status.OK, if all went well; Status.IO_ERR if the close failed.
+     */
+    public int close()
+    {
+        if ( ! isOpen ) {
+            return( Status.OK );
         }
 
-        return(( retVal == Status.IO_ERR ) ? retVal : currLineNumber );
+        isOpen = false;
+        bytes = null;
+        chars = null;
+        try {
+            channel.close();
+        }
+        catch( IOException e ) {
+            return( Status.IO_ERR );
+        }
+        return( Status.OK );
     }
 
     /**
@@ -119,14 +193,12 @@ public class Infile
         final String content;
 
         try {
-            content = inReader.readLine();
+            content = readLine();
             if ( content == null ) {
                 return( Status.AT_EOF );
             }
 
-            // the reader strips off the end-of-line char,
-            // so we add it back as our end-of-line flag.
-            inputLine.setContent( content + '\n' );
+            inputLine.setContent( content );
             inputLine.setSource( new Source( currFileNumber, ++currLineNumber ));
         } catch ( IOException e ) {
             return( Status.IO_ERR );
@@ -134,22 +206,179 @@ public class Infile
         return( Status.OK );
     }
 
+    /**
+     * Returns the next line of the file. As with BufferedReader.readLine(), a line ends
+     * with a LF, a CR, or a CR+LF. Unlike readLine(), the line is returned with a single
+     * '\n' at the end, which the parser uses as the end-of-line flag.
+     *
+     * @return the line, ending in '\n'; or null at EOF
+     * @throws IOException if an error occurs reading the file
+     */
+    String readLine() throws IOException
+    {
+        if( skipLF ) {
+            if( charPos == charEnd ) {
+                fill();
+            }
+            if( charPos < charEnd && chars[charPos] == '\n' ) {
+                charPos++;
+            }
+            skipLF = false;
+        }
+
+        int scan = charPos;
+        while( true ) {
+            for( ; scan < charEnd; scan++ ) {
+                final char c = chars[scan];
+                if( c == '\n' || c == '\r' ) {
+                    if( c == '\r' ) {
+                        chars[scan] = '\n';
+                        skipLF = true;
+                    }
+                    final String line = new String( chars, charPos, scan + 1 - charPos );
+                    charPos = scan + 1;
+                    return( line );
+                }
+            }
+
+            if( atEndOfChars ) {
+                break;
+            }
+
+            // the line continues past the decoded chars, so decode more
+            scan -= charPos;
+            fill();
+            scan += charPos;
+        }
+
+        // the last line has no end-of-line char, so add one
+        if( charPos == charEnd ) {
+            return( null );
+        }
+        final String line = new String( chars, charPos, charEnd - charPos ) + '\n';
+        charPos = charEnd;
+        return( line );
+    }
+
+    /**
+     * Decodes more of the file, after moving any chars not yet read to the front of the
+     * char buffer (and growing the buffer, if a single line fills it).
+     *
+     * @throws IOException if an error occurs reading the file
+     */
+    private void fill() throws IOException
+    {
+        if( charPos > 0 ) {
+            System.arraycopy( chars, charPos, chars, 0, charEnd - charPos );
+            charEnd -= charPos;
+            charPos = 0;
+        }
+        if( chars.length - charEnd < 2 ) {    // room for at least one surrogate pair
+            chars = Arrays.copyOf( chars, chars.length * 2 );
+        }
+
+        final CharBuffer out = CharBuffer.wrap( chars, charEnd, chars.length - charEnd );
+        while( out.position() == charEnd && ! atEndOfChars ) {
+            if( ! atEndOfBytes && channel.read( bytes ) < 0 ) {
+                atEndOfBytes = true;
+            }
+
+            bytes.flip();
+            final CoderResult result = decoder.decode( bytes, out, atEndOfBytes );
+            bytes.compact();
+
+            if( atEndOfBytes && result.isUnderflow() && decoder.flush( out ).isUnderflow() ) {
+                atEndOfChars = true;
+            }
+        }
+        charEnd = out.position();
+    }
+
+    /**
+     * Reads the first block of the file and sets up the decoder, using the charset given
+     * by the byte-order mark, if the file starts with one.
+     *
+     * @throws IOException if an error occurs reading the file
+     */
+    private void startDecoding() throws IOException
+    {
+        bytes = ByteBuffer.allocate( BUFFER_SIZE );
+        chars = new char[BUFFER_SIZE];
+        charPos = charEnd = 0;
+        atEndOfBytes = atEndOfChars = skipLF = false;
+
+        while( bytes.position() < 3 && ! atEndOfBytes ) {
+            if( channel.read( bytes ) < 0 ) {
+                atEndOfBytes = true;
+            }
+        }
+
+        Charset fileCharset = charset;
+        final int bomLength = lookupByteOrderMark( bytes );
+        if( bomLength > 0 ) {
+            fileCharset = ( bytes.get( 0 ) == (byte) 0xEF ) ? Charset.forName( "UTF-8" ) :
+                          ( bytes.get( 0 ) == (byte) 0xFE ) ? Charset.forName( "UTF-16BE" ) :
+                                                              Charset.forName( "UTF-16LE" );
+        }
+
+        bytes.flip();
+        bytes.position( bomLength );
+        bytes.compact();
+
+        decoder = fileCharset.newDecoder()
+                             .onMalformedInput( CodingErrorAction.REPLACE )
+                             .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    }
+
+    /**
+     * Checks the start of a file for a UTF-8 or UTF-16 byte-order mark
+     *
+     * @param start the buffer holding the first bytes of the file, at positions 0 on
+     * @return the length of the byte-order mark, or 0 if there is none
+     */
+    static int lookupByteOrderMark( final ByteBuffer start )
+    {
+        final int length = start.position();
+        if( length >= 3 && start.get( 0 ) == (byte) 0xEF && start.get( 1 ) == (byte) 0xBB &&
+                start.get( 2 ) == (byte) 0xBF ) {
+            return( 3 );
+        }
+        if( length >= 2 && (( start.get( 0 ) == (byte) 0xFE && start.get( 1 ) == (byte) 0xFF ) ||
+                            ( start.get( 0 ) == (byte) 0xFF && start.get( 1 ) == (byte) 0xFE ))) {
+            return( 2 );
+        }
+        return( 0 );
+    }
+
     /**
      * open the file
-     * @return Status.OK, if all went well; Status.FILE_NOT_FOUND_ERR, which should not occur.
+     * @return Status.OK, if all went well; Status.FILE_NOT_FOUND_ERR, which should not occur;
+     *         Status.IO_ERR if the file cannot be read.
      */
     public int open()
     {
         final File thisFile = new File( filename );
 
         try {
-            FileReader fr = new FileReader( thisFile );
-            inReader = new BufferedReader( fr );
+            channel = new FileInputStream( thisFile ).getChannel();
         }
         catch ( FileNotFoundException e ) {
             return( Status.FILE_NOT_FOUND_ERR ); // all files are known to exist by this point.
         }
 
+        try {
+            startDecoding();
+        }
+        catch( IOException e ) {
+            try {
+                channel.close();
+            }
+            catch( IOException ignored ) {
+                // already failing
+            }
+            return( Status.IO_ERR );
+        }
+
         isOpen = true;
         return( Status.OK );
     }
@@ -165,4 +394,28 @@ public class Infile
     {
         return( currLineNumber );
     }
+
+    public int getFileNumber()
+    {
+        return( currFileNumber );
+    }
+
+    public Charset getCharset()
+    {
+        return( charset );
+    }
+
+    /**
+     * Sets the charset the file is decoded with, if it has no byte-order mark. Must be
+     * called before the file is opened.
+     *
+     * @param newCharset the charset
+     */
+    public void setCharset( final Charset newCharset )
+    {
+        if( newCharset == null ) {
+            throw new IllegalArgumentException( "null charset passed to Infile.setCharset()" );
+        }
+        charset = newCharset;
+    }
 }
@@ -0,0 +1,314 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import org.pz.platypus.exceptions.FilenameLookupException;
+import org.pz.platypus.exceptions.InvalidInputException;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Converts one document to several output formats in one run of Platypus, as requested
+ * with -formats (for example: -formats pdf,html,rtf). The output files have the name of
+ * the output file (or, if there is none, of the input file) with the extension of each
+ * format.
+ *
+ * The input is read and parsed once, and each output plugin is then run on its own thread.
+ * Each format gets its own GDD, command-line args, and copy of the tokens, as the plugins
+ * keep their state in the GDD (through PdfData, HtmlData, etc.) and insert tokens into the
+ * list as they expand macros and variables. The copy is made with TokenList.addAll(), which
+ * copies the list's arrays, rather than by parsing again.
+ *
+ * The tokens depend on a few config-file settings of the plugin (platyparse,
+ * passthrough_escape_char, and process_replaced_commands). Formats whose settings differ
+ * are parsed separately; in the standard config file, pdf, html, and rtf all share one parse.
+ *
+ * @author alb
+ */
+public class MultiFormatConverter
+{
+    /** the GDD holding the literals, config file, and command table shared by all formats */
+    private final GDD masterGdd;
+
+    /** the command-line args for the whole run */
+    private final CommandLineArgs masterArgs;
+
+    /**
+     * @param gdd the GDD, with the literals, logger and config file already set up
+     * @param clArgs the command-line args
+     */
+    public MultiFormatConverter( final GDD gdd, final CommandLineArgs clArgs )
+    {
+        masterGdd = gdd;
+        masterArgs = clArgs;
+    }
+
+    /**
+     * Is conversion to several formats requested on the command line?
+     *
+     * @param clArgs the command-line args
+     * @return true if -formats was specified
+     */
+    public static boolean isRequested( final CommandLineArgs clArgs )
+    {
+        return( clArgs.lookup( "formats" ) != null );
+    }
+
+    /**
+     * Converts the input file to each format.
+     *
+     * @return Status.OK if every format was written; otherwise an error code
+     */
+    public int run()
+    {
+        final String input = masterArgs.lookup( "inputFile" );
+        if( input == null ) {
+            masterGdd.logSevere( masterGdd.getLit( "ERROR.MISSING_INPUT_FILE" ));
+            return( Status.INVALID_INPUT_FILE );
+        }
+
+        final List<String> formats = parseFormats( masterArgs.lookup( "formats" ));
+        if( formats.isEmpty() ) {
+            masterGdd.logSevere( masterGdd.getLit( "ERROR.UNKNOWN.OUTPUTFORMAT" ));
+            return( Status.ERR_UNSUPPORTED_FORMAT );
+        }
+
+        Platypus.loadCommandTable( masterGdd );
+
+        final ArrayList<GDD> gdds = new ArrayList<GDD>();
+        final ArrayList<CommandLineArgs> args = new ArrayList<CommandLineArgs>();
+        for( String format : formats ) {
+            final CommandLineArgs docArgs = new CommandLineArgs(
+                    createFormatArgs( input, deriveOutputFilename( format ), format ));
+            final GDD gdd = BatchConverter.createDocumentGdd( masterGdd, docArgs );
+            try {
+                gdd.getInputFileList().addFilename( input );
+            }
+            catch( FilenameLookupException fle ) {
+                return( Status.INVALID_INPUT_FILE );
+            }
+            Platypus.putFormatInSystemStrings( docArgs, gdd );
+            Platypus.findOutputFilePluginType( docArgs, gdd );
+            gdds.add( gdd );
+            args.add( docArgs );
+        }
+
+        try {
+            parseOnce( gdds, args );
+        }
+        catch( NoSuchFieldException nsfe ) {
+            return( Status.INVALID_INPUT_FILE );
+        }
+
+        return( runPlugins( gdds, args ));
+    }
+
+    /**
+     * Parses the input file once for each distinct set of parser settings, and gives the
+     * other formats with those settings a copy of the tokens.
+     *
+     * @param gdds the GDDs of the formats
+     * @param args the command-line args of the formats
+     * @throws NoSuchFieldException if the input file can't be read
+     */
+    void parseOnce( final List<GDD> gdds, final List<CommandLineArgs> args )
+            throws NoSuchFieldException
+    {
+        final HashMap<String, GDD> parsed = new HashMap<String, GDD>();
+        for( int i = 0; i < gdds.size(); i++ ) {
+            final GDD gdd = gdds.get( i );
+            final String settings = lookupParseSettings( gdd.getConfigFile(),
+                                                         gdd.getOutputPluginPrefix() );
+            final GDD parsedGdd = parsed.get( settings );
+            if( parsedGdd == null ) {
+                Platypus.processInputFile( gdd, args.get( i ));
+                parsed.put( settings, gdd );
+            }
+            else {
+                gdd.getInputTokens().addAll( parsedGdd.getInputTokens() );
+            }
+        }
+        masterGdd.log( "Parsed input " + parsed.size() + " time(s) for " + gdds.size() + " formats." );
+    }
+
+    /**
+     * Runs the output plugin for each format on its own thread, and waits for them all
+     *
+     * @param gdds the GDDs of the formats
+     * @param args the command-line args of the formats
+     * @return Status.OK if all the plugins ran; otherwise an error code
+     */
+    int runPlugins( final List<GDD> gdds, final List<CommandLineArgs> args )
+    {
+        int status = Status.OK;
+        final ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        final ExecutorService pool = Executors.newFixedThreadPool( gdds.size() );
+        try {
+            for( int i = 0; i < gdds.size(); i++ ) {
+                final GDD gdd = gdds.get( i );
+                final CommandLineArgs docArgs = args.get( i );
+
+                final Class<?> pluginStart;
+                try {
+                    pluginStart = new PluginLoader( Platypus.loadOutputPlugin( gdd, docArgs ), gdd )
+                                          .loadStartClass();
+                }
+                catch( InvalidInputException iie ) {
+                    status = iie.getStatus();
+                    continue;
+                }
+                catch( MissingResourceException mre ) {
+                    status = Status.INVALID_PLUGIN_URL;
+                    continue;
+                }
+                if( pluginStart == null ) {
+                    status = Status.INVALID_PLUGIN_URL;
+                    continue;
+                }
+
+                results.add( pool.submit( new Callable<Integer>() {
+                    public Integer call()
+                    {
+                        return( runPlugin( pluginStart, gdd, docArgs ));
+                    }
+                }));
+            }
+
+            for( Future<Integer> result : results ) {
+                try {
+                    if( result.get() != Status.OK ) {
+                        status = Status.ERR;
+                    }
+                }
+                catch( ExecutionException ee ) {
+                    status = Status.ERR;
+                }
+            }
+        }
+        catch( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            status = Status.ERR;
+        }
+        finally {
+            pool.shutdown();
+        }
+        return( status );
+    }
+
+    /**
+     * Runs one output plugin
+     *
+     * @param pluginStart the plugin's Start class
+     * @param gdd the GDD of the format
+     * @param docArgs the command-line args of the format
+     * @return Status.OK, or Status.ERR if the plugin threw an exception
+     */
+    int runPlugin( final Class<?> pluginStart, final GDD gdd, final CommandLineArgs docArgs )
+    {
+        final long start = System.nanoTime();
+        try {
+            new PluginLoader( pluginStart.getName(), gdd ).runPlugin( pluginStart, gdd, docArgs );
+        }
+        catch( Exception ex ) {
+            gdd.logSevere( gdd.getLit( "ERROR.UNEXPECTED" ) + " " +
+                           docArgs.lookup( "outputFile" ) + ": " + ex );
+            return( Status.ERR );
+        }
+
+        gdd.log( "Wrote " + docArgs.lookup( "outputFile" ) + " in " +
+                 ( System.nanoTime() - start ) / 1000000L + " ms" );
+        return( Status.OK );
+    }
+
+    /**
+     * Parses the -formats list: format names separated by commas. Names are lower-cased,
+     * and duplicates and empty names are dropped.
+     *
+     * @param list the -formats list
+     * @return the formats, in the order given
+     */
+    static List<String> parseFormats( final String list )
+    {
+        final LinkedHashSet<String> formats = new LinkedHashSet<String>();
+        if( list != null ) {
+            for( String format : list.split( "," )) {
+                final String f = format.trim().toLowerCase();
+                if( ! f.isEmpty() ) {
+                    formats.add( f );
+                }
+            }
+        }
+        return( new ArrayList<String>( formats ));
+    }
+
+    /**
+     * Creates the name of a format's output file by replacing the extension of the output
+     * file on the command line (or, if there is none, of the input file) with the format.
+     *
+     * @param format the format
+     * @return the output filename
+     */
+    String deriveOutputFilename( final String format )
+    {
+        String name = masterArgs.lookup( "outputFile" );
+        if( name == null || name.isEmpty() ) {
+            name = masterArgs.lookup( "inputFile" );
+        }
+
+        final int dot = name.lastIndexOf( '.' );
+        final int sep = Math.max( name.lastIndexOf( '/' ), name.lastIndexOf( '\\' ));
+        final String base = ( dot > sep ) ? name.substring( 0, dot ) : name;
+        return( base + "." + format );
+    }
+
+    /**
+     * Creates the args for converting to one format, carrying over the -encoding,
+     * -verbose, -vverbose, and -tokencache options of the run. (-stream is not carried
+     * over, as the tokens must all be in memory to be shared.)
+     *
+     * @param input the input filename
+     * @param output the output filename
+     * @param format the format
+     * @return the args
+     */
+    String[] createFormatArgs( final String input, final String output, final String format )
+    {
+        final ArrayList<String> args = new ArrayList<String>();
+        args.add( input );
+        args.add( output );
+        args.add( "-format" );
+        args.add( format );
+
+        final String encoding = masterArgs.lookup( "encoding" );
+        if( encoding != null && ! encoding.isEmpty() ) {
+            args.add( "-encoding" );
+            args.add( encoding );
+        }
+        for( String option : new String[] { "verbose", "vverbose", "tokencache" } ) {
+            if( masterArgs.lookup( option ) != null ) {
+                args.add( "-" + option );
+            }
+        }
+        return( args.toArray( new String[args.size()] ));
+    }
+
+    /**
+     * Gets the config-file settings of a plugin that change how the input is parsed
+     *
+     * @param configFile the config file
+     * @param prefix the plugin's prefix
+     * @return the settings, as a string; plugins whose settings are equal get the same tokens
+     */
+    static String lookupParseSettings( final PropertyFile configFile, final String prefix )
+    {
+        return( PlatypusParser.doesPlatypusParse( configFile, prefix ) + " " +
+                "yes".equals( configFile.lookup( "pi.out." + prefix + ".passthrough_escape_char" )) + " " +
+                "yes".equals( configFile.lookup( "pi.out." + prefix + ".process_replaced_commands" )));
+    }
+}
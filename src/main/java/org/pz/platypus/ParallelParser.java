@@ -0,0 +1,259 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * Parses large inputs on several threads. The lines are split into chunks, which are
+ * parsed at the same time, each by its own PlatypusParser, and the chunks' tokens are then
+ * appended to the token list in order. The tokens are the same as those of a serial parse.
+ *
+ * The only state PlatypusParser carries from one line to the next is whether it's in a
+ * block comment ([% ... %]). Each chunk is parsed on the assumption that it does not
+ * start in one. When the chunks are joined, if the chunk before ended in a block comment,
+ * the assumption was wrong, and the chunk is parsed again, starting in the comment. Block
+ * comments rarely span the boundary of a chunk, so this is rarely needed.
+ *
+ * The messages each chunk logs are held until the chunk is joined, so they're logged in
+ * the order of the input, and not at all for a chunk that is parsed again.
+ *
+ * @author alb
+ */
+public class ParallelParser
+{
+    /** inputs are not split into chunks smaller than this */
+    static final int MIN_LINES_PER_CHUNK = 10000;
+
+    private final GDD gdd;
+    private final int threads;
+    private final int minLinesPerChunk;
+
+    /**
+     * @param Gdd the GDD
+     * @param threadCount the number of threads to parse on
+     */
+    public ParallelParser( final GDD Gdd, final int threadCount )
+    {
+        this( Gdd, threadCount, MIN_LINES_PER_CHUNK );
+    }
+
+    ParallelParser( final GDD Gdd, final int threadCount, final int minChunk )
+    {
+        if( Gdd == null || threadCount < 1 || minChunk < 1 ) {
+            throw new IllegalArgumentException( "invalid param in ParallelParser()" );
+        }
+
+        gdd = Gdd;
+        threads = threadCount;
+        minLinesPerChunk = minChunk;
+    }
+
+    /**
+     * Converts input lines into tokens, as PlatypusParser.parse() does. Inputs too small
+     * to split into at least two chunks are parsed serially.
+     *
+     * @param lines  the input lines
+     * @param tokens the resulting tokens
+     * @param configFile the configuration file
+     * @param pluginPrefix the prefix to look up output items with in the config file
+     * @return Status.OK if all went well, otherwise an error code.
+     */
+    public int parse( final LineList lines,
+                      final TokenList tokens,
+                      final PropertyFile configFile,
+                      final String pluginPrefix )
+    {
+        if ( lines == null || tokens == null || configFile == null || pluginPrefix == null ) {
+            return( Status.INVALID_PARAM_NULL );
+        }
+
+        final int chunkCount = Math.min( threads, lines.size() / minLinesPerChunk );
+        if( chunkCount < 2 || ! PlatypusParser.doesPlatypusParse( configFile, pluginPrefix )) {
+            return( new PlatypusParser( gdd ).parse( lines, tokens, configFile, pluginPrefix ));
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool( chunkCount );
+        try {
+            final ArrayList<Future<Chunk>> chunks = new ArrayList<Future<Chunk>>( chunkCount );
+            for( int i = 0; i < chunkCount; i++ ) {
+                final Chunk chunk = new Chunk( lines,
+                                               (int)( (long) lines.size() * i / chunkCount ),
+                                               (int)( (long) lines.size() * ( i + 1 ) / chunkCount ),
+                                               null );
+                chunks.add( pool.submit( chunk ));
+            }
+
+            String closingSymbol = null;
+            for( Future<Chunk> future : chunks ) {
+                Chunk chunk = future.get();
+                if( closingSymbol != null ) {
+                    chunk = new Chunk( lines, chunk.first, chunk.end, closingSymbol ).call();
+                }
+
+                chunk.log.replay( gdd );
+                tokens.addAll( chunk.tokens );
+                if( chunk.status != Status.OK ) {
+                    return( chunk.status );
+                }
+                closingSymbol = chunk.closingSymbol;
+            }
+        }
+        catch( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            return( Status.ERR );
+        }
+        catch( ExecutionException ee ) {
+            if( ee.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new IllegalStateException( ee.getCause() );
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        gdd.log( "Finished parsing input: " + lines.size() + " lines -> " + tokens.size() +
+                 " tokens, in " + chunkCount + " chunks." );
+        return( Status.OK );
+    }
+
+    /**
+     * A range of lines, and the result of parsing them
+     */
+    private class Chunk implements Callable<Chunk>
+    {
+        final LineList lines;
+        final int first;
+        final int end;
+
+        /** the block comment the chunk starts in, or null */
+        final String startingClosingSymbol;
+
+        final TokenList tokens = new TokenList();
+        final ChunkGdd log = new ChunkGdd( gdd );
+        int status = Status.OK;
+
+        /** the block comment the chunk ends in, or null */
+        String closingSymbol;
+
+        /**
+         * @param allLines all the input lines
+         * @param firstLine the first line of the chunk
+         * @param endLine the line after the last line of the chunk
+         * @param closing the closing marker of the block comment the chunk starts in, or null
+         */
+        Chunk( final LineList allLines, final int firstLine, final int endLine, final String closing )
+        {
+            lines = allLines;
+            first = firstLine;
+            end = endLine;
+            startingClosingSymbol = closing;
+        }
+
+        public Chunk call()
+        {
+            final PlatypusParser parser = new PlatypusParser( log );
+            parser.setBlockCommentClosingSymbol( startingClosingSymbol );
+            for( int i = first; i < end; i++ ) {
+                if( parser.parseLine( tokens, lines.get( i )) == Status.UNFIXABLE_PARSE_ERR ) {
+                    status = Status.UNFIXABLE_PARSE_ERR;
+                    break;
+                }
+            }
+            closingSymbol = parser.getBlockCommentClosingSymbol();
+            return( this );
+        }
+    }
+
+    /**
+     * The GDD a chunk is parsed with. It has the tables and settings of the document's GDD
+     * that the parser uses, and keeps the messages logged during parsing, so that they can
+     * be logged to the document's GDD later.
+     */
+    static class ChunkGdd extends GDD
+    {
+        /** the levels of the messages; null for messages logged with log() */
+        private final ArrayList<Level> levels = new ArrayList<Level>();
+        private final ArrayList<String> messages = new ArrayList<String>();
+
+        ChunkGdd( final GDD gdd )
+        {
+            setLits( gdd.getLits() );
+            setLogger( gdd.getLogger() );
+            setClVerbose( gdd.isClVerbose() );
+            setConfigFile( gdd.getConfigFile() );
+            setCommandTable( gdd.getCommandTable() );
+            setOutputPluginPrefix( gdd.getOutputPluginPrefix() );
+            setInCode( gdd.isInCode() );
+        }
+
+        @Override
+        public void log( final String msg )       { keep( null, msg ); }
+
+        @Override
+        public void logFine( final String msg )   { keep( Level.FINE, msg ); }
+
+        @Override
+        public void logFiner( final String msg )  { keep( Level.FINER, msg ); }
+
+        @Override
+        public void logFinest( final String msg ) { keep( Level.FINEST, msg ); }
+
+        @Override
+        public void logInfo( final String msg )   { keep( Level.INFO, msg ); }
+
+        @Override
+        public void logSevere( final String msg ) { keep( Level.SEVERE, msg ); }
+
+        @Override
+        public void logWarning( final String msg ) { keep( Level.WARNING, msg ); }
+
+        private void keep( final Level level, final String msg )
+        {
+            levels.add( level );
+            messages.add( msg );
+        }
+
+        /**
+         * Logs the kept messages to another GDD, in the order they were logged here
+         *
+         * @param gdd the GDD to log the messages to
+         */
+        void replay( final GDD gdd )
+        {
+            for( int i = 0; i < messages.size(); i++ ) {
+                final Level level = levels.get( i );
+                final String msg = messages.get( i );
+                if( level == null ) {
+                    gdd.log( msg );
+                }
+                else if( level == Level.SEVERE ) {
+                    gdd.logSevere( msg );
+                }
+                else if( level == Level.WARNING ) {
+                    gdd.logWarning( msg );
+                }
+                else if( level == Level.INFO ) {
+                    gdd.logInfo( msg );
+                }
+                else if( level == Level.FINE ) {
+                    gdd.logFine( msg );
+                }
+                else if( level == Level.FINER ) {
+                    gdd.logFiner( msg );
+                }
+                else {
+                    gdd.logFinest( msg );
+                }
+            }
+        }
+    }
+}
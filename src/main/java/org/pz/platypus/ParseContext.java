@@ -10,6 +10,10 @@ package org.pz.platypus;
 /**
 * Contains the current parsing info in a single object.
 *
+* The parser creates one ParseContext per input line and moves its startPoint from segment
+* to segment, so the line is converted to chars only once. A new context is needed only
+* when the content changes (as when a macro is expanded).
+*
 * @author alb
 */
 public class ParseContext
@@ -17,7 +21,7 @@ public class ParseContext
     final public Source source;
     private String content;
     public char[] chars;
-    final public int startPoint;
+    public int startPoint;
 
     public ParseContext( final GDD gdd, final Source source, String content, final int startPoint )
     {
@@ -43,6 +47,19 @@ public class ParseContext
 
     }
 
+    /**
+     * Moves the context to the start of the next segment in the same content
+     *
+     * @param newStartPoint where the next segment starts
+     */
+    public void moveTo( final int newStartPoint )
+    {
+        if( newStartPoint < 0 ) {
+            throw new IllegalArgumentException( ); //curr: use our version
+        }
+        startPoint = newStartPoint;
+    }
+
     public boolean atEndOfLine() {
         return isEnd(startPoint);
     }
@@ -60,7 +77,7 @@ public class ParseContext
     }
 
     public boolean containsInRemainingChars( final String symbol ) {
-        return content.substring( startPoint ).contains( symbol );
+        return content.indexOf( symbol, startPoint ) >= 0;
     }
 
     public int getLocation( final String symbol ) {
@@ -14,6 +14,7 @@ import org.pz.platypus.exceptions.InvalidInputException;
 import org.apache.commons.cli.ParseException;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.MissingResourceException;
 
 /**
@@ -101,7 +102,7 @@ public class Platypus
             String pluginJar = gdd.getConfigFile().lookup( searchName );
 
             if ( pluginJar == null || ! new File( pluginJar ).exists() ) {
-                gdd.logSevere( lits.getLit( "ERROR.INVALID_PLUGIN_URL" ) +
+                gdd.logSevere( gdd.getLit( "ERROR.INVALID_PLUGIN_URL" ) +
                                ": " + searchName );
                 throw new MissingResourceException( null, null, null );
             }
@@ -121,7 +122,7 @@ public class Platypus
      * @return plugin location
      * @throws MissingResourceException in event the PLATYPUS_HOME directory has not been defined.
      */
-    static private String loadOutputPlugin( final GDD gdd, final CommandLineArgs clArgs )
+    static String loadOutputPlugin( final GDD gdd, final CommandLineArgs clArgs )
            throws MissingResourceException
     {
 
@@ -285,7 +286,7 @@ public class Platypus
     }
 
     /**
-     * Reads and parses the input file(s).
+     * Reads and parses the input file(s), parsing on as many threads as there are processors.
      *
      * @param gdd the GDD
      * @param clArgs the command-line arguments
@@ -293,43 +294,207 @@ public class Platypus
      */
     static public void processInputFile( final GDD gdd, final CommandLineArgs clArgs)
            throws NoSuchFieldException
+    {
+        processInputFile( gdd, clArgs, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Reads and parses the input file(s).
+     *
+     * @param gdd the GDD
+     * @param clArgs the command-line arguments
+     * @param parserThreads the number of threads to parse the input on
+     * @throws NoSuchFieldException if no input file is specified, or it's invalid.
+     */
+    static public void processInputFile( final GDD gdd, final CommandLineArgs clArgs,
+                                         final int parserThreads )
+           throws NoSuchFieldException
     {
         final String filename = clArgs.lookup( "inputFile" );
 
         if ( filename == null ) {
-            gdd.logSevere( lits.getLit( "ERROR.MISSING_INPUT_FILE" ));
+            gdd.logSevere( gdd.getLit( "ERROR.MISSING_INPUT_FILE" ));
             throw new NoSuchFieldException();
         }
 
         final Infile inputFile = new Infile( filename, gdd );
+        setInputCharset( gdd, clArgs, inputFile );
+
+        if( isStreamingRequested( gdd, clArgs )) {
+            streamInputFile( gdd, inputFile );
+            return;
+        }
+
+        TokenCache cache = null;
+        byte[] cacheKey = null;
+        if( isTokenCacheRequested( gdd, clArgs )) {
+            cache = new TokenCache( gdd, filename );
+            cacheKey = cache.computeKey( inputFile );
+            loadCommandTable( gdd );
+            if( cache.load( cacheKey, gdd.getInputTokens() )) {
+                gdd.log( "Read " + gdd.getInputTokens().size() + " tokens from token cache: " +
+                         cache.getCacheFile().getPath() );
+                return;
+            }
+        }
+
         final int r = inputFile.readFileIntoInputLines( gdd.getInputLines() );
         if( r == Status.FILE_NOT_FOUND_ERR ) {
-            gdd.logSevere( lits.getLit( "ERROR.FILE_NOT_FOUND") + " " + filename );
+            gdd.logSevere( gdd.getLit( "ERROR.FILE_NOT_FOUND") + " " + filename );
             throw new NoSuchFieldException();
         }
         else if( r == Status.FILE_NOT_READABLE_ERR ) {
-            gdd.logSevere( lits.getLit( "ERROR.FILE_NOT_READABLE" ) + " " + filename );
+            gdd.logSevere( gdd.getLit( "ERROR.FILE_NOT_READABLE" ) + " " + filename );
             throw new NoSuchFieldException();
         }
         else {
             gdd.log( "Read input file with " + inputFile.getLineNumber() + " lines: " + filename );
         }
 
-        CommandTable commandTable = new CommandTable( gdd );
-        commandTable.loadCommands( gdd.getCommandPropertyFilename() );
-        commandTable.loadSymbols();
-        gdd.setCommandTable( commandTable );
+        loadCommandTable( gdd );
 
         //curr: create factory to decide which parser to use (PlatypusParser or LineTokenizeParser)
 
         //curr: test here for whether parsing is done by Platypus. Is there a use-case for not parsing?
-        new PlatypusParser( gdd ).parse( gdd.getInputLines(),
-                                         gdd.getInputTokens(),
-                                         gdd.getConfigFile(),
-                                         gdd.getOutputPluginPrefix() );
+        final int parseStatus =
+            new ParallelParser( gdd, parserThreads )
+                .parse( gdd.getInputLines(),
+                        gdd.getInputTokens(),
+                        gdd.getConfigFile(),
+                        gdd.getOutputPluginPrefix() );
 
         // delete the parsed input lines as input files can be substantial.
         gdd.getInputLines().clear();
+
+        // the tokens of an input file that didn't parse are not cached, so that it's
+        // parsed again, and its errors reported, on the next run
+        if( cache != null && parseStatus == Status.OK ) {
+            cache.save( cacheKey, gdd.getInputTokens() );
+        }
+    }
+
+    /**
+     * Loads the Platypus commands and symbols into a command table and stores it in the GDD.
+     * In batch mode, the table is loaded once and shared by all documents, so it's not
+     * reloaded if the GDD already has one.
+     *
+     * @param gdd the GDD
+     */
+    static void loadCommandTable( final GDD gdd )
+    {
+        if( gdd.getCommandTable() != null ) {
+            return;
+        }
+
+        CommandTable commandTable = new CommandTable( gdd );
+        commandTable.loadCommands( gdd.getCommandPropertyFilename() );
+        commandTable.loadSymbols();
+        gdd.setCommandTable( commandTable );
+    }
+
+    /**
+     * Streaming is used only if requested with -stream and if Platypus does the parsing.
+     * It's also disabled with -vverbose, as the token dump requires the whole token list.
+     *
+     * @param gdd the GDD
+     * @param clArgs the command-line arguments
+     * @return true if the input should be streamed to the output plugin
+     */
+    static boolean isStreamingRequested( final GDD gdd, final CommandLineArgs clArgs )
+    {
+        if( clArgs.lookup( "stream" ) == null || gdd.isClVVerbose() ) {
+            return( false );
+        }
+
+        return( PlatypusParser.doesPlatypusParse( gdd.getConfigFile(),
+                                                  gdd.getOutputPluginPrefix() ));
+    }
+
+    /**
+     * The token cache is used only if requested with -tokencache and if Platypus does the
+     * parsing. It's not used with -stream, as the tokens are then never all in memory.
+     *
+     * @param gdd the GDD
+     * @param clArgs the command-line arguments
+     * @return true if the tokens should be read from, or written to, the token cache
+     */
+    static boolean isTokenCacheRequested( final GDD gdd, final CommandLineArgs clArgs )
+    {
+        if( clArgs.lookup( "tokencache" ) == null ) {
+            return( false );
+        }
+
+        return( PlatypusParser.doesPlatypusParse( gdd.getConfigFile(),
+                                                  gdd.getOutputPluginPrefix() ));
+    }
+
+    /**
+     * Sets the charset of the input file, if one was specified with -encoding. Otherwise,
+     * the file is read as UTF-8 (unless it starts with a byte-order mark).
+     *
+     * @param gdd the GDD
+     * @param clArgs the command-line arguments
+     * @param inputFile the input file
+     * @throws NoSuchFieldException if the charset is not valid
+     */
+    static void setInputCharset( final GDD gdd, final CommandLineArgs clArgs,
+                                 final Infile inputFile )
+           throws NoSuchFieldException
+    {
+        final String encoding = clArgs.lookup( "encoding" );
+        if( encoding == null ) {
+            return;
+        }
+
+        try {
+            inputFile.setCharset( Charset.forName( encoding ));
+        }
+        catch( IllegalArgumentException iae ) {  // illegal or unsupported charset name
+            gdd.logSevere( gdd.getLit( "ERROR.INVALID_ENCODING" ) + " " + encoding );
+            throw new NoSuchFieldException();
+        }
+    }
+
+    /**
+     * Sets up streaming mode: rather than reading and parsing the entire input file
+     * before the output plugin runs, the file is read and parsed on a separate thread
+     * and the tokens are passed to the plugin as they're generated. This keeps the memory
+     * used for lines and tokens small and constant, regardless of the size of the input.
+     *
+     * @param gdd the GDD
+     * @param inputFile the input file
+     * @throws NoSuchFieldException if the input file cannot be opened
+     */
+    static private void streamInputFile( final GDD gdd, final Infile inputFile )
+           throws NoSuchFieldException
+    {
+        // open the file here, so that errors are reported before the plugin is loaded.
+        final int r = inputFile.open();
+        if( r != Status.OK ) {
+            gdd.logSevere( gdd.getLit( "ERROR.FILE_NOT_FOUND") + " " + inputFile.getFilename() );
+            throw new NoSuchFieldException();
+        }
+
+        loadCommandTable( gdd );
+
+        StreamingTokenList tokens =
+                new StreamingTokenList( inputFile, new PlatypusParser( gdd ), gdd );
+        gdd.setInputTokens( tokens );
+        tokens.start();
+        gdd.log( "Streaming input file: " + inputFile.getFilename() );
+    }
+
+    /**
+     * Stops streaming the input tokens (see streamInputFile()), if they're streamed. Called
+     * once the output plugin has returned or failed, as it may not have read all the tokens.
+     *
+     * @param gdd the GDD
+     */
+    static void closeInputTokens( final GDD gdd )
+    {
+        if( gdd.getInputTokens() instanceof StreamingTokenList ) {
+            ((StreamingTokenList) gdd.getInputTokens() ).close();
+        }
     }
 
     /**
@@ -383,10 +548,17 @@ public class Platypus
         System.out.println( '\n' + Gdd.getLit( "USAGE.GENERAL.1" ));
         System.out.println( Gdd.getLit( "USAGE.GENERAL.2" ));
         System.out.println( Gdd.getLit( "USAGE.GENERAL.3" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.BATCH" ));
         System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.CONFIG" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.ENCODING" ));
         System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.FONTLIST" ));
         System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.FORMAT" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.FORMATS" ));
         System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.HELP" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.SERVER" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.STREAM" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.THREADS" ));
+        System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.TOKENCACHE" ));
      // System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.PAGESIZE" ));
         System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.VERBOSE" ));
         System.out.println( '\t' + Gdd.getLit( "USAGE.OPTION.VVERBOSE" ));
@@ -422,6 +594,14 @@ public class Platypus
             gdd = setupGdd( lits );
             storeVersionNumber( gdd );
             clArgs = processCommandLine( args, gdd );
+            if( BatchConverter.isRequested( clArgs )) {
+                processConfigFile( clArgs, gdd );
+                System.exit( new BatchConverter( gdd, clArgs, System.out ).run() );
+            }
+            if( MultiFormatConverter.isRequested( clArgs )) {
+                processConfigFile( clArgs, gdd );
+                System.exit( new MultiFormatConverter( gdd, clArgs ).run() );
+            }
             putFormatInSystemStrings( clArgs, gdd );
             addInputFileToFileList( clArgs, gdd );
             processConfigFile( clArgs, gdd );
@@ -466,6 +646,9 @@ public class Platypus
                 System.err.println( gdd.getLit( "ERROR_OCCURRED_PRIOR_TO_TOKEN_GEN" ));
             }
         }
+        finally {
+            closeInputTokens( gdd );
+        }
     }
 
 }
@@ -109,10 +109,10 @@ public class PlatypusParser
         // '\n' is the last parsable token in the line.
         int segmentStartPoint = 0;
         String content = line.getContent();
+        ParseContext context = new ParseContext( gdd, line.getSource(), content, 0 );
         while( segmentStartPoint < content.length() )
         {
-
-            ParseContext context = new ParseContext( gdd, line.getSource(), content, segmentStartPoint);
+            context.moveTo( segmentStartPoint );
 
             if ( context.atEndOfLine() ) {
                 emitEolToken( newTokens, context.source );
@@ -149,6 +149,7 @@ public class PlatypusParser
                 content = gdd.getExpandedMacro() + content.substring( segmentStartPoint );
                 segmentStartPoint = 0;
                 gdd.setExpandedMacro( null );
+                context = new ParseContext( gdd, line.getSource(), content, 0 );
                 continue;
             }
         }
@@ -295,7 +296,8 @@ public class PlatypusParser
     }
 
     /**
-     * Write out text Token to the token list
+     * Write out text Token to the token list. The token list keeps the text as a slice of
+     * the line's content, so no String is created for it here.
      * @param context where the text string is
      * @param endPoint the end of the text (starts at context.startPoint)
      * @param tokens the token list to write the token to.
@@ -303,7 +305,9 @@ public class PlatypusParser
     private void writeOutText( final ParseContext context, final int endPoint,
                                final TokenList tokens )
     {
-        writeOutText( context.startPoint, endPoint, context.chars, tokens, context.source );
+        if ( endPoint >= context.startPoint ) {
+            tokens.addText( context.source, context.getContent(), context.startPoint, endPoint + 1 );
+        }
     }
 
     /**
@@ -357,12 +361,7 @@ public class PlatypusParser
     public int processCommand( final ParseContext context, TokenList tokens)
     {
         try {
-            final String commandRoot = extractCommandRoot( context );
-            if( commandRoot == null ) {
-                //TODO: do something big here
-            }
-
-            ICommand command = ctable.getCommand( commandRoot );
+            ICommand command = lookupCommand( context );
             if ( command != null ) {
                 return( command.process( gdd, context, tokens, inCode ) + context.startPoint );
             }
@@ -370,6 +369,7 @@ public class PlatypusParser
                 // the command root is not found, so it's probably text that looks like command
                 // so, write out the root as text. The rest of the command will be treated as
                 // text on the next pass through the rest of the segment.
+                final String commandRoot = extractCommandRoot( context );
                 invalidCommandError( context, tokens, commandRoot );
                 return( context.startPoint + commandRoot.length() );
             }
@@ -385,6 +385,28 @@ public class PlatypusParser
         return( Status.UNREACHABLE_ERR );
     }
 
+    /**
+     * Looks up the command whose root is at the start of the context. The root is matched
+     * in the line's chars, as extractCommandRoot() would extract it, but without creating
+     * a String for it.
+     *
+     * @param context the parsing location info; the [ that starts the command is at startPoint
+     * @return the command, or null if the root is not in the command table
+     */
+    ICommand lookupCommand( final ParseContext context )
+    {
+        // these commands do not contain a : or a | after the root (see extractCommandRoot())
+        final char c = context.chars[context.startPoint+1];
+        if( c == '*' ) {
+            return( ctable.getCommand( "[*" ));
+        }
+        if( c == '$' ) {
+            return( ctable.getCommand( "[$" ));
+        }
+
+        return( ctable.getCommand( context.chars, context.startPoint ));
+    }
+
     /**
      * Write an error message to console saying that the command-like token is not actually
      * a Platypus command, and then write the token out to the output as a text token.
@@ -419,7 +441,6 @@ public class PlatypusParser
     {
         int i;
         char c;
-        StringBuilder root = new StringBuilder( 15 );
 
         // these commands do not contain a : or a | after the root,
         // so they must be tested for explicitly
@@ -442,10 +463,9 @@ public class PlatypusParser
             }
 
             c = context.chars[i];
-            root.append( c );
             //curr: need to detect whitespace (as an error)
             if( c == ']' || c == '|' || c == ':' ) {
-                return( root.toString() );
+                return( new String( context.chars, context.startPoint, i + 1 - context.startPoint ));
             }
         }
     }
@@ -612,4 +632,24 @@ public class PlatypusParser
         inCode = inCodeYesOrNo;
     }
 
+    /**
+     * @return the closing marker of the block comment the last line ended in; null if
+     *         the last line did not end in a block comment.
+     */
+    String getBlockCommentClosingSymbol()
+    {
+        return( blockCommentClosingSymbol );
+    }
+
+    /**
+     * Sets the block comment the next line starts in, so that parsing can start part-way
+     * through a document. (Used by ParallelParser.)
+     *
+     * @param closingSymbol the closing marker of the block comment; null if none
+     */
+    void setBlockCommentClosingSymbol( final String closingSymbol )
+    {
+        blockCommentClosingSymbol = closingSymbol;
+    }
+
 }
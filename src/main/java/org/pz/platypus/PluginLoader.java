@@ -32,19 +32,33 @@ public class PluginLoader
     }
 
     /**
-     * Load the Start class from the plug-in JAR
+     * Load the Start class from the plug-in JAR and run the plugin
      * @param clArgs command line args
      */
     public void load( final org.pz.platypus.CommandLineArgs clArgs )
+    {
+        Class<?> pluginStart = loadStartClass();
+        if( pluginStart != null ) {
+            runPlugin( pluginStart, gdd, clArgs );
+        }
+    }
+
+    /**
+     * Load the Start class from the plug-in JAR. The class can be kept and passed to
+     * runPlugin() any number of times, so that a plugin used for many documents
+     * (as in batch mode) is loaded only once.
+     *
+     * @return the plugin's Start class, or null if an error occurred
+     */
+    public Class<?> loadStartClass()
     {
         URL pluginUrl = createPluginUrl();
         if ( pluginUrl == null ) {
-            return;   // TODO: create an error message
+            return( null );   // TODO: create an error message
         }
 
         URL[] urls = { pluginUrl };
         URLClassLoader pluginLoader = new URLClassLoader( urls );
-        Thread.currentThread().setContextClassLoader( pluginLoader );
 
         try {
             String className;
@@ -67,23 +81,46 @@ public class PluginLoader
                                gdd.getOutputPluginPrefix() + ".Start";
             }
             
-            Class pluginStart = Class.forName( className, false, pluginLoader );
+            return( Class.forName( className, false, pluginLoader ));
+        }
+        catch ( ClassNotFoundException cnf ) {
+            System.err.println( "class not found " + cnf );
+        }
+        return( null );
+    }
 
+    /**
+     * Creates an instance of the plugin's Start class and calls its process() method.
+     *
+     * @param pluginStart the plugin's Start class, as returned by loadStartClass()
+     * @param docGdd the GDD for the document being converted
+     * @param clArgs command line args
+     */
+    public void runPlugin( final Class<?> pluginStart, final GDD docGdd,
+                           final org.pz.platypus.CommandLineArgs clArgs )
+    {
+        // the plugin's class loader is set for the duration of the call only, so that a
+        // thread converting several documents doesn't leave one plugin's loader in place.
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previousLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader( pluginStart.getClassLoader() );
+
+        try {
             Object plugin = pluginStart.newInstance();
 
-            Class[] classParams = { GDD.class, CommandLineArgs.class };
+            Class<?>[] classParams = { GDD.class, CommandLineArgs.class };
             Method method1;
 
             try {
                 method1 = pluginStart.getMethod( "process", classParams  );
             }
             catch( NoSuchMethodException nsme ) {
-                gdd.logSevere( gdd.getLit( "ERROR.INVALID_PLUGIN_NO_PROCESS_METHOD" ));
+                docGdd.logSevere( docGdd.getLit( "ERROR.INVALID_PLUGIN_NO_PROCESS_METHOD" ));
                 return;
             }
 
             try {
-                method1.invoke( plugin, gdd, clArgs );
+                method1.invoke( plugin, docGdd, clArgs );
             }
             catch( InvalidConfigFileException icfe) {
                 return; //error message has already been displayed
@@ -93,15 +130,15 @@ public class PluginLoader
                 ite.printStackTrace();
             }
         }
-        catch ( ClassNotFoundException cnf ) {
-            System.err.println( "class not found " + cnf );
-        }
         catch ( InstantiationException ie ) {
             System.err.println( ie );
         }
         catch ( IllegalAccessException ie ) {
             System.err.println( ie );
-        }        
+        }
+        finally {
+            thread.setContextClassLoader( previousLoader );
+        }
     }
 
     /**
@@ -0,0 +1,69 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only tables (symbol tables, typeface maps, and the like) that are expensive to load
+ * and that can be shared by all the documents converted in one run of Platypus. Tables
+ * are stored by name. When Platypus converts a single document, each GDD has its own
+ * SharedTables, so every table is loaded once as before. In batch mode, all the documents'
+ * GDDs point to the same SharedTables, so each table is loaded only for the first document.
+ *
+ * Tables stored here must not be modified once they've been added.
+ *
+ * @author alb
+ */
+public class SharedTables
+{
+    private final ConcurrentHashMap<String, Object> tables;
+
+    public SharedTables()
+    {
+        tables = new ConcurrentHashMap<String, Object>();
+    }
+
+    /**
+     * Looks up a table by name
+     *
+     * @param name the name of the table
+     * @return the table, or null if it has not been added
+     */
+    public Object get( final String name )
+    {
+        if( name == null ) {
+            return( null );
+        }
+        return( tables.get( name ));
+    }
+
+    /**
+     * Adds a table, unless one has already been added under this name. (This can happen
+     * when two documents load the same table at the same time.)
+     *
+     * @param name the name of the table
+     * @param table the table
+     * @return the table now stored under this name: either the one passed in or the one
+     *         that was already present.
+     */
+    public Object add( final String name, final Object table )
+    {
+        if( name == null || table == null ) {
+            throw new IllegalArgumentException( "null passed to SharedTables.add()" );
+        }
+
+        Object previous = tables.putIfAbsent( name, table );
+        return( previous == null ? table : previous );
+    }
+
+    public int getSize()
+    {
+        return( tables.size() );
+    }
+}
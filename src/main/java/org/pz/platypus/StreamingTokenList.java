@@ -0,0 +1,280 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2006-10 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TokenList used in streaming mode (-stream). Rather than holding every token in
+ * the document, it holds a sliding window of tokens that are pulled on demand from a
+ * TokenStreamProducer running on a separate thread.
+ *
+ * Tokens keep their absolute position in the document, so output plugins index into
+ * this list exactly as they do into a regular TokenList:
+ *  - get(i) waits for the producer until token i is available.
+ *  - size() reports only the tokens received so far, but always at least LOOKAHEAD
+ *    tokens past the highest token fetched (unless the stream has ended). So the
+ *    plugins' loops on i < size() and their look-ahead checks work unchanged.
+ *  - tokens injected by the plugins via add( index, token ) are inserted in the window.
+ *  - tokens more than KEEP_BEHIND tokens behind the highest token fetched are discarded
+ *    a line at a time, but never tokens in the current line or the token just before it,
+ *    which lineSoFarEmitsText() needs.
+ *
+ * Accessing a discarded token throws IndexOutOfBoundsException. Iterating over this list
+ * or calling toArray() returns only the current window.
+ *
+ * close() must be called when the plugin is done with the list, whether or not it read
+ * all of it, so that the producer doesn't wait forever for room in the queue.
+ *
+ * @author alb
+ */
+public class StreamingTokenList extends TokenList
+{
+    /** how many tokens past the furthest one fetched size() guarantees, if available */
+    static final int LOOKAHEAD = 8;
+
+    /** how many tokens behind the furthest one fetched are kept at a minimum */
+    static final int KEEP_BEHIND = 64;
+
+    /** the window is trimmed only when it is at least this big, so trims are infrequent */
+    static final int TRIM_THRESHOLD = 4096;
+
+    /** the number of batches of tokens the producer may get ahead of the plugin */
+    static final int QUEUE_CAPACITY = 16;
+
+    /** how long to wait on the queue before checking that the producer is still alive */
+    private static final long POLL_MILLIS = 200;
+
+    private final BlockingQueue<TokenList> channel;
+    private final Infile infile;
+    private final TokenStreamProducer producer;
+    private Thread producerThread = null;
+
+    /** has the list been closed? No tokens are read after that */
+    private boolean closed = false;
+
+    /** absolute index of the first token in the window */
+    private int base = 0;
+
+    /** absolute index of the furthest token fetched by get() */
+    private int frontier = -1;
+
+    /** has the last batch been received? */
+    private boolean atEnd = false;
+
+    public StreamingTokenList( final Infile inputFile, final PlatypusParser parser, final GDD gdd )
+    {
+        channel = new ArrayBlockingQueue<TokenList>( QUEUE_CAPACITY );
+        infile = inputFile;
+        producer = new TokenStreamProducer( inputFile, parser, channel, gdd );
+    }
+
+    /**
+     * Starts the parsing thread. Should be called once, before the list is handed to
+     * the output plugin.
+     */
+    public void start()
+    {
+        if( producerThread != null || closed ) {
+            return;
+        }
+
+        producerThread = new Thread( producer, "Platypus-parser" );
+        producerThread.setDaemon( true );
+        producerThread.start();
+    }
+
+    @Override
+    public Token get( final int index )
+    {
+        fill( index + 1 );
+        if( index < base || index >= base + super.size() ) {
+            throw new IndexOutOfBoundsException( "Token " + index + " is not in the stream window" );
+        }
+
+        if( index > frontier ) {
+            frontier = index;
+        }
+        return( super.get( index - base ));
+    }
+
+    @Override
+    public Token set( final int index, final Token tok )
+    {
+        fill( index + 1 );
+        if( index < base ) {
+            throw new IndexOutOfBoundsException( "Token " + index + " is not in the stream window" );
+        }
+        return( super.set( index - base, tok ));
+    }
+
+    @Override
+    public void add( final int index, final Token tok )
+    {
+        fill( index );
+        if( index < base ) {
+            throw new IndexOutOfBoundsException( "Token " + index + " is not in the stream window" );
+        }
+        super.add( index - base, tok );
+    }
+
+    @Override
+    public boolean lineSoFarEmitsText( final int tokNum )
+    {
+        fill( tokNum + 1 );
+        if( tokNum < base ) {
+            throw new IndexOutOfBoundsException( "Token " + tokNum + " is not in the stream window" );
+        }
+        return( super.lineSoFarEmitsText( tokNum - base ));
+    }
+
+    @Override
+    public int getLineStart( final int tokNum )
+    {
+        fill( tokNum + 1 );
+        if( tokNum < base ) {
+            throw new IndexOutOfBoundsException( "Token " + tokNum + " is not in the stream window" );
+        }
+        return( base + super.getLineStart( tokNum - base ));
+    }
+
+    @Override
+    public int size()
+    {
+        fill( frontier + 1 + LOOKAHEAD );
+        return( base + super.size() );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return( size() == 0 );
+    }
+
+    /**
+     * Stops reading tokens: cancels the producer, which then closes the input file, and
+     * drops the batches it has queued. (The producer is not interrupted, as that would
+     * close the input file under it in the middle of a read.) The tokens in the window remain available. If the
+     * producer was never started, the input file is closed here.
+     */
+    public void close()
+    {
+        if( closed ) {
+            return;
+        }
+
+        closed = true;
+        atEnd = true;
+        producer.cancel();
+        if( producerThread == null ) {
+            infile.close();
+        }
+        channel.clear();
+    }
+
+    /**
+     * Pulls batches of tokens from the producer until the window extends to
+     * (but not including) absolute index upTo, or the stream ends.
+     *
+     * @param upTo the absolute number of tokens that should be available
+     */
+    private void fill( final int upTo )
+    {
+        while( ! atEnd && base + super.size() < upTo )
+        {
+            TokenList batch = takeBatch();
+            if( batch == TokenStreamProducer.END_OF_STREAM ) {
+                atEnd = true;
+                break;
+            }
+
+            trim();
+            super.addAll( batch );
+        }
+    }
+
+    /**
+     * Waits for the next batch of tokens. If the producer dies without signaling
+     * the end of the stream (a runtime exception in the parser, say), treats it
+     * as the end of the stream.
+     *
+     * @return the next batch, or END_OF_STREAM
+     */
+    private TokenList takeBatch()
+    {
+        start();
+
+        try {
+            while( true )
+            {
+                TokenList batch = channel.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+                if( batch != null ) {
+                    return( batch );
+                }
+
+                if( ! producerThread.isAlive() && channel.isEmpty() ) {
+                    return( TokenStreamProducer.END_OF_STREAM );
+                }
+            }
+        }
+        catch( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            return( TokenStreamProducer.END_OF_STREAM );
+        }
+    }
+
+    /**
+     * Discards tokens that are no longer needed from the front of the window.
+     * Trimming stops short of the line containing the frontier token and of the token
+     * before that line, so that look-behind within the current line continues to work.
+     */
+    private void trim()
+    {
+        if( super.size() < TRIM_THRESHOLD || frontier < base ) {
+            return;
+        }
+
+        final int lineStart = base + super.getLineStart( frontier - base );
+
+        int newBase = Math.min( lineStart - 1, frontier - KEEP_BEHIND );
+        if( newBase <= base ) {
+            return;
+        }
+
+        super.removeRange( 0, newBase - base );
+        base = newBase;
+    }
+
+    //=== getters and setters ===
+
+    /**
+     * @return the absolute index of the first token still held in memory
+     */
+    public int getBase()
+    {
+        return( base );
+    }
+
+    /**
+     * @return true if the producer's thread is still running
+     */
+    boolean isProducing()
+    {
+        return( producerThread != null && producerThread.isAlive() );
+    }
+
+    /**
+     * @return Status.OK, or the error that ended the parsing of the input
+     */
+    public int getStatus()
+    {
+        return( producer.getStatus() );
+    }
+}
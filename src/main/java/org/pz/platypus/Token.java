@@ -31,6 +31,12 @@ public class Token
     /** possible list of parameters for a command */
     private CommandParameter parameter;
 
+    /** the id of the root in CommandIds; looked up when first needed */
+    private int commandId;
+
+    /** value of commandId before it's been looked up */
+    private static final int ID_NOT_LOOKED_UP = -2;
+
     public Token( final Source source,
                   final TokenType type,
                   final String root,
@@ -42,6 +48,21 @@ public class Token
         this.root = root;
         this.content = content;
         this.parameter = parameter;
+        this.commandId = ID_NOT_LOOKED_UP;
+    }
+
+    /*
+     * This constructor is used by TokenList, which stores the command id with the token
+     */
+    Token( final Source source,
+           final TokenType type,
+           final String root,
+           final String content,
+           final CommandParameter parameter,
+           final int commandId )
+    {
+        this( source, type, root, content, parameter );
+        this.commandId = commandId;
     }
 
     /*
@@ -58,6 +79,7 @@ public class Token
         this.content = content;
         this.root = null;
         this.parameter = null;
+        this.commandId = CommandIds.NONE;
     }
 
     /**
@@ -173,10 +195,11 @@ public class Token
 
         // at this point we already know the token types are the same
         if( type == TokenType.COMMAND ) {
-            if( root != t.getRoot() ) {
+            if( root == null ? t.getRoot() != null : ! root.equals( t.getRoot() )) {
                 return( false );
             }
-            else if( ! parameter.equals( t.getParameter() )) {
+            else if( parameter == null ? t.getParameter() != null :
+                                         ! parameter.equals( t.getParameter() )) {
                 return( false );
             }
         }
@@ -239,6 +262,20 @@ public class Token
         return( root );
     }
 
+    /**
+     * Gets the id that CommandIds assigned to the root of this token, so that output
+     * plugins can look up the command without hashing the root.
+     *
+     * @return the id, or CommandIds.NONE if the token has no root or the root is unknown
+     */
+    public int getCommandId()
+    {
+        if( commandId == ID_NOT_LOOKED_UP ) {
+            commandId = CommandIds.lookup( root );
+        }
+        return( commandId );
+    }
+
     public TokenType getType()
     {
         return( type );
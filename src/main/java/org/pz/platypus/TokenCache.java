@@ -0,0 +1,486 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Caches the tokens parsed from an input file in a binary file next to it (with the
+ * extension .ptok), so that if the input is converted again unchanged, the tokens are
+ * read from the cache rather than the input being read and parsed again.
+ *
+ * The cache is keyed by a SHA-1 hash of everything the tokens depend on: the bytes of the
+ * input file and the charset they're decoded with, the file's number, the command and
+ * symbol files, and the config-file entries the parser consults for the output plugin.
+ * If any of them changes, or the cache was written by a different version of this class,
+ * the key doesn't match and the input is parsed as usual (and the cache rewritten).
+ *
+ * The file is: the magic number, the format version, the key, and the token count,
+ * followed by the tokens. A token's source is written only when it differs from that of
+ * the token before it. Short strings (roots, lexemes, and parameter strings) are written
+ * once and then referred to by their index in a table built as the file is read. Counts,
+ * line numbers, and string references are written as variable-length ints, so most of
+ * them take one or two bytes.
+ *
+ * @author alb
+ */
+public class TokenCache
+{
+    /** the extension added to the input filename to make the cache filename */
+    public static final String EXTENSION = ".ptok";
+
+    /** "PTOK" */
+    static final int MAGIC = 0x50544F4B;
+
+    /** the version of the file format; change it whenever the format or key changes */
+    static final int VERSION = 1;
+
+    /** strings longer than this are rarely repeated, so aren't put in the string table */
+    private static final int MAX_SHARED_LENGTH = 32;
+
+    /** references to strings that are not in the string table; the table's start after them */
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING  = 1;
+    private static final int TABLE_START = 2;
+
+    /** values written for the type of a null token and of a token with a null type */
+    private static final byte NULL_TOKEN = -2;
+    private static final byte NULL_TYPE  = -1;
+
+    /** flags written with each token */
+    private static final int NEW_SOURCE    = 1;
+    private static final int HAS_PARAMETER = 2;
+
+    /** the config-file entries, after "pi.out.[prefix].", that change how input is parsed */
+    private static final String[] PARSER_CONFIG_KEYS =
+        { "platyparse", "passthrough_escape_char", "process_replaced_commands" };
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+
+    private final GDD gdd;
+    private final File cacheFile;
+
+    /**
+     * @param Gdd the GDD
+     * @param inputFilename the name of the input file whose tokens are cached
+     */
+    public TokenCache( final GDD Gdd, final String inputFilename )
+    {
+        if( Gdd == null || inputFilename == null ) {
+            throw new IllegalArgumentException( "null param passed to TokenCache()" );
+        }
+
+        gdd = Gdd;
+        cacheFile = new File( inputFilename + EXTENSION );
+    }
+
+    /**
+     * Computes the key for the tokens parsed from an input file. Besides the input, the key
+     * covers the Platypus version, so that a new parser never reads tokens an old one wrote.
+     *
+     * @param inputFile the input file
+     * @return the key; or null if the input file can't be read
+     */
+    public byte[] computeKey( final Infile inputFile )
+    {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch( NoSuchAlgorithmException nsae ) {
+            return( null );     // every JVM is required to have SHA-1
+        }
+
+        try {
+            final DataOutputStream out = new DataOutputStream( new DigestingStream( digest ));
+            out.writeInt( VERSION );
+            out.writeUTF( String.valueOf( gdd.getLit( "VERSION" )));
+            out.writeInt( inputFile.getFileNumber() );
+            out.writeUTF( inputFile.getCharset().name() );
+
+            final String prefix = gdd.getOutputPluginPrefix();
+            out.writeUTF( String.valueOf( prefix ));
+            for( String key : PARSER_CONFIG_KEYS ) {
+                out.writeUTF( String.valueOf(
+                                gdd.getConfigFile().lookup( "pi.out." + prefix + "." + key )));
+            }
+
+            final String configDir = gdd.getHomeDirectory() + "config" + gdd.getFileSeparator();
+            digestFile( digest, new File( configDir + gdd.getCommandPropertyFilename() ));
+            digestFile( digest, new File( configDir + gdd.getSymbolsListFilename() ));
+            digestFile( digest, new File( inputFile.getFilename() ));
+            out.flush();
+        }
+        catch( IOException ioe ) {
+            return( null );
+        }
+
+        return( digest.digest() );
+    }
+
+    /**
+     * Adds the bytes of a file to a digest, along with the file's length, so that the
+     * contents of two files can't run together
+     *
+     * @param digest the digest
+     * @param file the file
+     * @throws IOException if the file can't be read
+     */
+    private static void digestFile( final MessageDigest digest, final File file ) throws IOException
+    {
+        final byte[] buffer = new byte[Infile.BUFFER_SIZE];
+        final InputStream in = new FileInputStream( file );
+        try {
+            long length = 0;
+            int count;
+            while(( count = in.read( buffer )) > 0 ) {
+                digest.update( buffer, 0, count );
+                length += count;
+            }
+            for( int shift = 56; shift >= 0; shift -= 8 ) {
+                digest.update( (byte)( length >>> shift ));
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the cached tokens, if there's a cache with this key
+     *
+     * @param key the key of the tokens, from computeKey()
+     * @param tokens the list the tokens are added to
+     * @return true if the tokens were read; false if there's no cache with this key, or it
+     *         can't be read, in which case no tokens are added.
+     */
+    public boolean load( final byte[] key, final TokenList tokens )
+    {
+        if( key == null || tokens == null || ! cacheFile.isFile() ) {
+            return( false );
+        }
+
+        final int tokensBefore = tokens.size();
+        try {
+            final DataInputStream in = new DataInputStream(
+                    new BufferedInputStream( new FileInputStream( cacheFile ), Infile.BUFFER_SIZE ));
+            try {
+                if( ! readHeader( in, key )) {
+                    return( false );
+                }
+                readTokens( in, tokens );
+                return( true );
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch( IOException ioe ) {  // including a truncated file, or a bad string or type
+            tokens.subList( tokensBefore, tokens.size() ).clear();
+            gdd.logWarning( gdd.getLit( "ERROR.READING_TOKEN_CACHE" ) + " " + cacheFile.getPath() );
+            return( false );
+        }
+    }
+
+    /**
+     * Writes the tokens to the cache. If the cache can't be written, a warning is logged:
+     * the tokens will just be parsed again next time.
+     *
+     * @param key the key of the tokens, from computeKey()
+     * @param tokens the tokens
+     * @return Status.OK if the cache was written; otherwise an error code
+     */
+    public int save( final byte[] key, final TokenList tokens )
+    {
+        if( key == null || tokens == null ) {
+            return( Status.INVALID_PARAM_NULL );
+        }
+
+        // write to a temporary file, so that a partly written cache is never read
+        final File tempFile = new File( cacheFile.getPath() + ".tmp" );
+        try {
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream( new FileOutputStream( tempFile ), Infile.BUFFER_SIZE ));
+            try {
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeShort( key.length );
+                out.write( key );
+                writeTokens( out, tokens );
+            }
+            finally {
+                out.close();
+            }
+
+            cacheFile.delete();
+            if( ! tempFile.renameTo( cacheFile )) {
+                throw new IOException( "cannot rename " + tempFile.getPath() );
+            }
+        }
+        catch( IOException ioe ) {
+            tempFile.delete();
+            gdd.logWarning( gdd.getLit( "ERROR.WRITING_TOKEN_CACHE" ) + " " + cacheFile.getPath() );
+            return( Status.IO_ERR );
+        }
+
+        gdd.log( "Wrote " + tokens.size() + " tokens to token cache: " + cacheFile.getPath() );
+        return( Status.OK );
+    }
+
+    /**
+     * @return true if the header is that of a cache of this version, with this key
+     */
+    private static boolean readHeader( final DataInputStream in, final byte[] key )
+            throws IOException
+    {
+        if( in.readInt() != MAGIC || in.readInt() != VERSION || in.readShort() != key.length ) {
+            return( false );
+        }
+
+        final byte[] cachedKey = new byte[key.length];
+        in.readFully( cachedKey );
+        return( Arrays.equals( key, cachedKey ));
+    }
+
+    private static void writeTokens( final DataOutputStream out, final TokenList tokens )
+            throws IOException
+    {
+        final StringWriter strings = new StringWriter( out );
+        Source prevSource = null;
+
+        writeVarInt( out, tokens.size() );
+        for( Token tok : tokens ) {
+            if( tok == null ) {
+                out.writeByte( NULL_TOKEN );
+                continue;
+            }
+
+            final TokenType type = tok.getType();
+            out.writeByte( type == null ? NULL_TYPE : type.ordinal() );
+
+            final Source source = tok.getSource();
+            final boolean newSource = ( prevSource == null ||
+                                        source.getFileNumber() != prevSource.getFileNumber() ||
+                                        source.getLineNumber() != prevSource.getLineNumber() );
+            final CommandParameter param = tok.getParameter();
+            out.writeByte(( newSource ? NEW_SOURCE : 0 ) | ( param != null ? HAS_PARAMETER : 0 ));
+            if( newSource ) {
+                writeVarInt( out, source.getFileNumber() );
+                writeVarInt( out, source.getLineNumber() );
+                prevSource = source;
+            }
+
+            strings.write( tok.getRoot() );
+            strings.write( tok.getContent() );
+
+            if( param != null ) {
+                out.writeFloat( param.getAmount() );
+                out.writeByte( param.getUnit() == null ? NULL_TYPE : param.getUnit().ordinal() );
+                writeVarInt( out, param.getErrorCode() );
+                writeVarInt( out, param.getCharsParsed() );
+                strings.write( param.getString() );
+            }
+        }
+    }
+
+    private static void readTokens( final DataInputStream in, final TokenList tokens )
+            throws IOException
+    {
+        final StringReader strings = new StringReader( in );
+        Source source = new Source();
+
+        final int count = readVarInt( in );
+        for( int i = 0; i < count; i++ ) {
+            final byte type = in.readByte();
+            if( type == NULL_TOKEN ) {
+                tokens.add( null );
+                continue;
+            }
+
+            final int flags = in.readByte();
+            if(( flags & NEW_SOURCE ) != 0 ) {
+                final int fileNumber = readVarInt( in );
+                source = new Source( fileNumber, readVarInt( in ));
+            }
+
+            final String root = strings.read();
+            final String content = strings.read();
+
+            CommandParameter param = null;
+            if(( flags & HAS_PARAMETER ) != 0 ) {
+                param = new CommandParameter();
+                param.setAmount( in.readFloat() );
+                final byte unit = in.readByte();
+                param.setUnit( unit == NULL_TYPE ? null : lookup( UNIT_TYPES, unit ));
+                param.setErrorCode( readVarInt( in ));
+                param.setCharsParsed( readVarInt( in ));
+                param.setString( strings.read() );
+            }
+
+            tokens.add( new Token( source, type == NULL_TYPE ? null : lookup( TOKEN_TYPES, type ),
+                                   root, content, param ));
+        }
+    }
+
+    /**
+     * Writes an int in 7-bit groups, low group first, with the high bit set on all but the
+     * last. Negative values (which are rare here) take five bytes.
+     */
+    static void writeVarInt( final DataOutputStream out, final int value ) throws IOException
+    {
+        int v = value;
+        while(( v & ~0x7F ) != 0 ) {
+            out.writeByte(( v & 0x7F ) | 0x80 );
+            v >>>= 7;
+        }
+        out.writeByte( v );
+    }
+
+    /**
+     * Reads an int written by writeVarInt()
+     */
+    static int readVarInt( final DataInputStream in ) throws IOException
+    {
+        int value = 0;
+        for( int shift = 0; shift < 35; shift += 7 ) {
+            final int b = in.readUnsignedByte();
+            value |= ( b & 0x7F ) << shift;
+            if(( b & 0x80 ) == 0 ) {
+                return( value );
+            }
+        }
+        throw new IOException( "invalid int in token cache" );
+    }
+
+    /**
+     * @return the enum value with this ordinal
+     * @throws IOException if there is none, in which case the cache is corrupt
+     */
+    private static <T> T lookup( final T[] values, final int ordinal ) throws IOException
+    {
+        if( ordinal < 0 || ordinal >= values.length ) {
+            throw new IOException( "invalid ordinal in token cache: " + ordinal );
+        }
+        return( values[ordinal] );
+    }
+
+    /**
+     * Writes strings, putting the short ones in the string table
+     */
+    private static class StringWriter
+    {
+        private final DataOutputStream out;
+        private final HashMap<String, Integer> table = new HashMap<String, Integer>();
+
+        StringWriter( final DataOutputStream outStream )
+        {
+            out = outStream;
+        }
+
+        void write( final String s ) throws IOException
+        {
+            if( s == null ) {
+                writeVarInt( out, NULL_STRING );
+                return;
+            }
+
+            final Integer index = table.get( s );
+            if( index != null ) {
+                writeVarInt( out, index + TABLE_START );
+                return;
+            }
+
+            writeVarInt( out, NEW_STRING );
+            final byte[] bytes = s.getBytes( "UTF-8" );
+            writeVarInt( out, bytes.length );
+            out.write( bytes );
+            if( s.length() <= MAX_SHARED_LENGTH ) {
+                table.put( s, table.size() );
+            }
+        }
+    }
+
+    /**
+     * Reads the strings written by StringWriter, building the same string table
+     */
+    private static class StringReader
+    {
+        private final DataInputStream in;
+        private final ArrayList<String> table = new ArrayList<String>();
+
+        StringReader( final DataInputStream inStream )
+        {
+            in = inStream;
+        }
+
+        String read() throws IOException
+        {
+            final int ref = readVarInt( in );
+            if( ref == NULL_STRING ) {
+                return( null );
+            }
+
+            if( ref != NEW_STRING ) {
+                if( ref < TABLE_START || ref - TABLE_START >= table.size() ) {
+                    throw new IOException( "invalid string reference in token cache: " + ref );
+                }
+                return( table.get( ref - TABLE_START ));
+            }
+
+            final int length = readVarInt( in );
+            if( length < 0 ) {
+                throw new IOException( "invalid string length in token cache: " + length );
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully( bytes );
+            final String s = new String( bytes, "UTF-8" );
+            if( s.length() <= MAX_SHARED_LENGTH ) {
+                table.add( s );
+            }
+            return( s );
+        }
+    }
+
+    /**
+     * An output stream that adds what's written to it to a digest
+     */
+    private static class DigestingStream extends OutputStream
+    {
+        private final MessageDigest digest;
+
+        DigestingStream( final MessageDigest md )
+        {
+            digest = md;
+        }
+
+        @Override
+        public void write( final int b )
+        {
+            digest.update( (byte) b );
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len )
+        {
+            digest.update( b, off, len );
+        }
+    }
+
+    //=== getters and setters ===
+
+    public File getCacheFile()
+    {
+        return( cacheFile );
+    }
+}
@@ -7,18 +7,745 @@
 
 package org.pz.platypus;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
 
 /**
- * The ArrayList of Tokens that we generate in the parser and pass
+ * The list of Tokens that we generate in the parser and pass
  * to the output plug-in.
  *
+ * A document can have millions of tokens, so the list does not keep the Token objects
+ * themselves (many of which have a CommandParameter). Rather, their fields are copied into
+ * parallel arrays--one per field, with enums stored as ordinals--and get() creates a Token
+ * from the arrays when it's called. As a result, changing a Token returned by get() does
+ * not change the list: the token must be put back with set(). The Source is the exception:
+ * the list keeps a reference to it, which the tokens of a line share, as they do in the
+ * parser. Only some tokens have a parameter, or a root that is not a known command, so
+ * those fields are kept in a separate set of arrays (Extras, below), which the token refers
+ * to by index. The roots of known commands are stored as their ids in CommandIds. Other
+ * roots, short lexemes, and parameter strings, which repeat throughout a document, are
+ * interned, so that the list holds few copies of each. (The parser uses small TokenLists
+ * for single commands, so the extras and the interned strings aren't set up until needed.)
+ *
+ * The text that the parser finds between commands is not copied into Strings of its own.
+ * The list stores the content of the line and where the text is in it (see addText()), and
+ * creates the String when the token is retrieved. So the text of a line is held once, by
+ * the line, however many tokens it is split into.
+ *
+ * The token arrays are gap buffers: they have an unused gap at the point of the most
+ * recent insertion. Appending (as the parser does) and inserting right after the token
+ * being processed (as the plugins do when they expand macros and [* variables) are both
+ * O(1), amortized: the gap moves along with the output plugin, so each token is moved at
+ * most a few times over a whole document, rather than the entire tail of the list being
+ * shifted on every insertion.
+ *
+ * Each token also has its place in its line: how many tokens before it are on the same
+ * input line (in an unbroken run), and whether any of them is text. So the start of a
+ * token's line, and whether the line so far emits text, are found without walking back
+ * through the line. This is kept as a field of the token, so the gap buffer moves it
+ * with the token. When tokens are inserted, replaced, or removed, the places of the
+ * tokens that follow them on the same line are updated.
+ *
  * @author alb
  */
-public class TokenList extends ArrayList<Token>
+public class TokenList extends AbstractList<Token> implements RandomAccess
 {
-    public TokenList() {};
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** lexemes longer than this (such as URLs or text) are rarely repeated, so not interned */
+    private static final int MAX_INTERNED_LENGTH = 32;
+
+    /** the number of interned strings kept; must be a power of 2 */
+    private static final int INTERNED_SIZE = 1024;
+
+    /** values stored in types[] for a null token or a token with a null type */
+    private static final byte NULL_TOKEN = -2;
+    private static final byte NULL_TYPE  = -1;
+
+    /** value stored in types[] for a text token that is stored as a slice of its line */
+    private static final byte TEXT_SLICE = -3;
+
+    /** value stored in extras[] for a token without extra fields */
+    private static final int NO_EXTRAS = 0;
+
+    /**
+     * the largest start and length of a slice: both are packed into the token's extras[]
+     * (start in the high 16 bits). Text outside these bounds is stored as a String.
+     */
+    private static final int MAX_SLICE = 0xFFFF;
+
+    /**
+     * the bit of a token's place in its line (in linePlaces[]) that is set if an earlier
+     * token in the line is text. The other bits hold the number of earlier tokens in the line.
+     */
+    private static final int TEXT_BEFORE = 1;
+
+    private static final byte TEXT_TYPE = (byte) TokenType.TEXT.ordinal();
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    /** the fields of the tokens, with the gap at [gapStart, gapEnd) */
+    private Fields fields;
+    private int gapStart;
+    private int gapEnd;
+
+    /** the parameters and other roots of the tokens; null until a token that has one is added */
+    private Extras extraFields;
+
+    /**
+     * the interned roots, lexemes, and parameter strings, stored by hash code; null until
+     * the list first grows. When two strings have the same slot, the later one replaces the
+     * earlier, so the table does not grow with the number of distinct strings in a document.
+     */
+    private String[] interned;
+
+    public TokenList()
+    {
+        fields = new Fields( INITIAL_CAPACITY );
+        gapStart = 0;
+        gapEnd = INITIAL_CAPACITY;
+    }
+
+    // The public methods work through the private ones below, never through each other,
+    // so that subclasses (such as StreamingTokenList) can override them to change how
+    // tokens are numbered, without affecting the storage.
+
+    @Override
+    public Token get( final int index )
+    {
+        checkIndex( index, stored() - 1 );
+        return( load( slot( index )));
+    }
+
+    @Override
+    public Token set( final int index, final Token tok )
+    {
+        checkIndex( index, stored() - 1 );
+        final int i = slot( index );
+        final Token previous = load( i );
+        release( i, i + 1 );
+        store( i, tok );
+        placeInLines( index, index + 1 );
+        return( previous );
+    }
+
+    @Override
+    public int size()
+    {
+        return( stored() );
+    }
+
+    @Override
+    public boolean add( final Token tok )
+    {
+        insert( stored(), tok );
+        return( true );
+    }
+
+    @Override
+    public void add( final int index, final Token tok )
+    {
+        checkIndex( index, stored() );
+        insert( index, tok );
+    }
+
+    @Override
+    public boolean addAll( final java.util.Collection<? extends Token> newToks )
+    {
+        if( newToks != this && newToks.getClass() == TokenList.class ) {
+            append( (TokenList) newToks );
+            return( ! newToks.isEmpty() );
+        }
+
+        for( Token tok : newToks ) {
+            insert( stored(), tok );
+        }
+        return( ! newToks.isEmpty() );
+    }
+
+    @Override
+    public Token remove( final int index )
+    {
+        checkIndex( index, stored() - 1 );
+        moveGap( index + 1 );
+        final Token tok = load( --gapStart );
+        release( gapStart, gapStart + 1 );
+        placeInLines( index, index );
+        modCount++;
+        return( tok );
+    }
+
+    @Override
+    public void clear()
+    {
+        fields = new Fields( INITIAL_CAPACITY );
+        extraFields = null;
+        gapStart = 0;
+        gapEnd = INITIAL_CAPACITY;
+        interned = null;
+        modCount++;
+    }
+
+    /**
+     * Removes the tokens from fromIndex up to, but not including, toIndex. Indexes are
+     * positions in the storage, which are the token numbers except in subclasses.
+     *
+     * @param fromIndex the first token to remove
+     * @param toIndex the token after the last token to remove
+     */
+    @Override
+    protected void removeRange( final int fromIndex, final int toIndex )
+    {
+        if( fromIndex >= toIndex ) {
+            return;
+        }
+        moveGap( toIndex );
+        release( fromIndex, toIndex );
+        gapStart = fromIndex;
+        placeInLines( fromIndex, fromIndex );
+        modCount++;
+    }
+
+    /**
+     * Inserts a token immediately after the current token. Used by the output plugins to
+     * inject the text of macros and variables into the token stream, so that it's processed
+     * as the next token.
+     *
+     * @param tokNum the number of the current token
+     * @param tok the token to insert
+     */
+    public void insertAfter( final int tokNum, final Token tok )
+    {
+        add( tokNum + 1, tok );
+    }
+
+    /**
+     * Adds a text token whose content is the chars of a line from start up to, but not
+     * including, end. The list keeps the line and the bounds of the text, rather than a copy
+     * of the text. Used by the parser, which finds text in this form.
+     *
+     * @param source the file and line number of the text
+     * @param line the content of the line
+     * @param start the index of the first char of the text
+     * @param end the index after the last char of the text
+     */
+    void addText( final Source source, final String line, final int start, final int end )
+    {
+        final int index = stored();
+        if( start > MAX_SLICE || end - start > MAX_SLICE ) {
+            insert( index, new Token( source, TokenType.TEXT, line.substring( start, end )));
+            return;
+        }
+
+        final int i = open( index );
+        fields.sources[i]    = source;
+        fields.types[i]      = TEXT_SLICE;
+        fields.commandIds[i] = CommandIds.NONE;
+        fields.contents[i]   = line;
+        fields.extras[i]     = ( start << 16 ) | ( end - start );
+        placeInLines( index, index + 1 );
+        modCount++;
+    }
+
+    /** @return the number of tokens stored */
+    private int stored()
+    {
+        return( fields.capacity() - ( gapEnd - gapStart ));
+    }
+
+    /**
+     * @param index the position of a token in the storage
+     * @return the slot in the arrays that holds the token
+     */
+    private int slot( final int index )
+    {
+        return( index < gapStart ? index : index + gapEnd - gapStart );
+    }
+
+    private void checkIndex( final int index, final int max )
+    {
+        if( index < 0 || index > max ) {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + stored() );
+        }
+    }
+
+    private void insert( final int index, final Token tok )
+    {
+        store( open( index ), tok );
+        placeInLines( index, index + 1 );
+        modCount++;
+    }
+
+    /**
+     * Makes room for a token at a position in the storage
+     *
+     * @param index the position
+     * @return the empty slot for the token
+     */
+    private int open( final int index )
+    {
+        if( gapStart == gapEnd ) {
+            grow();
+        }
+        moveGap( index );
+        return( gapStart++ );
+    }
+
+    /**
+     * Appends all the tokens of another list, copying their fields array by array, rather
+     * than creating each token and storing it again. (Used to join the lists of tokens
+     * parsed in parallel.)
+     *
+     * @param other the list whose tokens are appended
+     */
+    private void append( final TokenList other )
+    {
+        final int count = other.stored();
+        moveGap( stored() );
+        while( gapEnd - gapStart < count ) {
+            grow();
+        }
+
+        final int head = other.gapStart;
+        Fields.copy( other.fields, 0, fields, gapStart, head );
+        Fields.copy( other.fields, other.gapEnd, fields, gapStart + head, count - head );
+
+        // the extras get new indexes in this list's Extras
+        for( int i = gapStart; i < gapStart + count; i++ ) {
+            if( hasExtras( i )) {
+                if( extraFields == null ) {
+                    extraFields = new Extras();
+                }
+                fields.extras[i] = extraFields.add( other.extraFields, fields.extras[i] - 1 ) + 1;
+            }
+        }
+        gapStart += count;
+
+        // the places copied are right, except in the first line, which may continue this list's last line
+        placeInLines( gapStart - count, gapStart - count + 1 );
+        modCount++;
+    }
+
+    /**
+     * Creates a Token from the fields stored in a slot
+     *
+     * @param i the slot
+     * @return the token
+     */
+    private Token load( final int i )
+    {
+        final byte type = fields.types[i];
+        if( type == NULL_TOKEN ) {
+            return( null );
+        }
+
+        if( type == TEXT_SLICE ) {
+            final int start = fields.extras[i] >>> 16;
+            final int end = start + ( fields.extras[i] & MAX_SLICE );
+            return( new Token( fields.sources[i], TokenType.TEXT,
+                               fields.contents[i].substring( start, end )));
+        }
+
+        final int id = fields.commandIds[i];
+        final int extra = fields.extras[i];
+        final String root;
+        if( id != CommandIds.NONE ) {
+            root = CommandIds.getRoot( id );
+        }
+        else {
+            root = ( extra == NO_EXTRAS ? null : extraFields.getRoot( extra - 1 ));
+        }
+
+        return( new Token( fields.sources[i],
+                           type == NULL_TYPE ? null : TOKEN_TYPES[type],
+                           root,
+                           fields.contents[i],
+                           extra == NO_EXTRAS ? null : extraFields.getParameter( extra - 1 ),
+                           id ));
+    }
+
+    /**
+     * Copies the fields of a token into an empty slot
+     *
+     * @param i the slot
+     * @param tok the token
+     */
+    private void store( final int i, final Token tok )
+    {
+        if( tok == null ) {
+            fields.types[i] = NULL_TOKEN;
+            return;
+        }
+
+        fields.sources[i] = tok.getSource();
+
+        final TokenType type = tok.getType();
+        fields.types[i] = ( type == null ? NULL_TYPE : (byte) type.ordinal() );
+
+        // the root of a known command is stored as its id; other roots (such as those
+        // of macros) are stored with the extras.
+        final int id = tok.getCommandId();
+        final String root = ( id == CommandIds.NONE ? intern( tok.getRoot() ) : CommandIds.getRoot( id ));
+        fields.commandIds[i] = id;
+
+        // commands' lexemes are interned unless they're the root; text is rarely repeated
+        String content = tok.getContent();
+        if( root != null ) {
+            content = ( root.equals( content ) ? root : intern( content ));
+        }
+        fields.contents[i] = content;
+
+        final CommandParameter param = tok.getParameter();
+        final String otherRoot = ( id == CommandIds.NONE ? root : null );
+        if( param != null || otherRoot != null ) {
+            if( extraFields == null ) {
+                extraFields = new Extras();
+            }
+            fields.extras[i] = extraFields.add( otherRoot, param,
+                                                param == null ? null : intern( param.getString() )) + 1;
+        }
+    }
 
+    /**
+     * @param i a slot
+     * @return whether the token in the slot has fields stored in Extras
+     */
+    private boolean hasExtras( final int i )
+    {
+        return( fields.extras[i] != NO_EXTRAS && fields.types[i] != TEXT_SLICE );
+    }
+
+    /**
+     * Updates the places in their lines of the tokens from start on, after the tokens
+     * from start up to end have been inserted or replaced (or, if end == start, after the
+     * tokens before start have been removed). A token's place depends only on the token
+     * before it, so the update stops at the first token after end whose place is unchanged.
+     *
+     * @param start the position of the first changed token in the storage
+     * @param end the position after the last changed token
+     */
+    private void placeInLines( final int start, final int end )
+    {
+        final int count = stored();
+        for( int index = start; index < count; index++ ) {
+            final int i = slot( index );
+            final int place = ( index == 0 ? 0 : placeAfter( slot( index - 1 ), i ));
+            if( index >= end && place == fields.linePlaces[i] ) {
+                return;
+            }
+            fields.linePlaces[i] = place;
+        }
+    }
+
+    /**
+     * @param prev the slot of a token
+     * @param i the slot of the token after it
+     * @return the place of the token in slot i in its line
+     */
+    private int placeAfter( final int prev, final int i )
+    {
+        final byte prevType = fields.types[prev];
+        if( fields.types[i] == NULL_TOKEN || prevType == NULL_TOKEN ) {
+            return( 0 );
+        }
+
+        final Source source = fields.sources[i];
+        final Source prevSource = fields.sources[prev];
+        if( source != prevSource && ( source == null || ! source.equals( prevSource ))) {
+            return( 0 );
+        }
+
+        final int prevPlace = fields.linePlaces[prev];
+        final boolean prevIsText = ( prevType == TEXT_TYPE || prevType == TEXT_SLICE );
+        final int textBefore = ( prevIsText ? TEXT_BEFORE : prevPlace & TEXT_BEFORE );
+        return(((( prevPlace >>> 1 ) + 1 ) << 1 ) | textBefore );
+    }
+
+    /**
+     * Empties the slots from start up to, but not including, end, and frees their extras.
+     *
+     * @param start the first slot
+     * @param end the slot after the last slot
+     */
+    private void release( final int start, final int end )
+    {
+        for( int i = start; i < end; i++ ) {
+            if( hasExtras( i )) {
+                extraFields.remove( fields.extras[i] - 1 );
+            }
+        }
+        fields.clear( start, end );
+    }
+
+    /**
+     * @param s a root, command lexeme, or parameter string
+     * @return the single copy of s kept by this list, if s is short enough to be interned
+     */
+    private String intern( final String s )
+    {
+        if( interned == null || s == null || s.length() > MAX_INTERNED_LENGTH ) {
+            return( s );
+        }
+
+        final int i = s.hashCode() & ( INTERNED_SIZE - 1 );
+        final String copy = interned[i];
+        if( copy != null && ( copy == s || copy.equals( s ))) {
+            return( copy );
+        }
+        interned[i] = s;
+        return( s );
+    }
+
+    /**
+     * Moves the gap so that it starts at index. Only the tokens between the old and the
+     * new position of the gap are moved.
+     *
+     * @param index where the gap is to start
+     */
+    private void moveGap( final int index )
+    {
+        if( index == gapStart ) {
+            return;
+        }
+
+        // the slots vacated by the moved tokens that are now in the gap are cleared
+        final int gapLength = gapEnd - gapStart;
+        if( index < gapStart ) {
+            final int count = gapStart - index;
+            Fields.copy( fields, index, fields, gapEnd - count, count );
+            fields.clear( index, Math.min( gapStart, index + gapLength ));
+        }
+        else {
+            final int count = index - gapStart;
+            Fields.copy( fields, gapEnd, fields, gapStart, count );
+            fields.clear( Math.max( gapEnd, index ), gapEnd + count );
+        }
+        gapStart = index;
+        gapEnd = index + gapLength;
+    }
+
+    /**
+     * Increases the capacity of the buffer by half, keeping the gap where it is. (With
+     * about 20 bytes per slot, doubling would leave too much of the arrays unused.)
+     */
+    private void grow()
+    {
+        final int capacity = fields.capacity();
+        final int newCapacity = Math.max( INITIAL_CAPACITY, capacity + capacity / 2 );
+        final int tailLength = capacity - gapEnd;
+        final Fields newFields = new Fields( newCapacity );
+
+        if( interned == null ) {
+            interned = new String[INTERNED_SIZE];
+        }
+
+        Fields.copy( fields, 0, newFields, 0, gapStart );
+        Fields.copy( fields, gapEnd, newFields, newCapacity - tailLength, tailLength );
+        gapEnd = newCapacity - tailLength;
+        fields = newFields;
+    }
+
+    /**
+     * The arrays that hold the fields of the tokens, one array per field. An empty slot
+     * has no Source, no strings, and no extras.
+     */
+    private static final class Fields
+    {
+        final Source[] sources;
+        final byte[] types;
+        final int[] commandIds;
+
+        /** the content of the token or, if it's a TEXT_SLICE, the line that contains it */
+        final String[] contents;
+
+        /**
+         * 1 + the index of the token's extra fields in Extras, or NO_EXTRAS. For a
+         * TEXT_SLICE, the start of the text in the line << 16 | the length of the text.
+         */
+        final int[] extras;
+
+        /** the place of the token in its line; see TEXT_BEFORE */
+        final int[] linePlaces;
+
+        Fields( final int capacity )
+        {
+            sources     = new Source[capacity];
+            types       = new byte[capacity];
+            commandIds  = new int[capacity];
+            contents    = new String[capacity];
+            extras      = new int[capacity];
+            linePlaces  = new int[capacity];
+        }
+
+        int capacity()
+        {
+            return( types.length );
+        }
+
+        /**
+         * Copies the fields of count tokens, as System.arraycopy() does
+         */
+        static void copy( final Fields src, final int srcPos,
+                          final Fields dest, final int destPos, final int count )
+        {
+            System.arraycopy( src.sources,     srcPos, dest.sources,     destPos, count );
+            System.arraycopy( src.types,       srcPos, dest.types,       destPos, count );
+            System.arraycopy( src.commandIds,  srcPos, dest.commandIds,  destPos, count );
+            System.arraycopy( src.contents,    srcPos, dest.contents,    destPos, count );
+            System.arraycopy( src.extras,      srcPos, dest.extras,      destPos, count );
+            System.arraycopy( src.linePlaces,  srcPos, dest.linePlaces,  destPos, count );
+        }
+
+        /**
+         * Empties the slots from start up to, but not including, end. Their extras, if
+         * any, are not freed: the caller does that if the tokens are being removed.
+         */
+        void clear( final int start, final int end )
+        {
+            for( int i = start; i < end; i++ ) {
+                sources[i] = null;
+                contents[i] = null;
+                extras[i] = NO_EXTRAS;
+            }
+        }
+    }
+
+    /**
+     * The fields that only some tokens have--a parameter, or a root that is not the root
+     * of a known command--one array per field. A token's extras keep their index for as long
+     * as the token is in the list, so the gap buffer can move the tokens without touching
+     * their extras. The indexes of removed extras are reused.
+     */
+    private static final class Extras
+    {
+        private static final UnitType[] UNIT_TYPES = UnitType.values();
+
+        /** values stored in units[] for a parameter with a null unit, and for no parameter */
+        private static final byte NULL_UNIT = -1;
+        private static final byte NO_PARAMETER = -2;
+
+        private String[] roots;
+        private float[] amounts;
+        private byte[] units;
+        private int[] errorCodes;
+        private int[] charsParsed;
+        private String[] strings;
+
+        /** the number of indexes used so far */
+        private int count;
+
+        /** the indexes of removed extras, available for reuse */
+        private int[] free;
+        private int freeCount;
+
+        Extras()
+        {
+            allocate( INITIAL_CAPACITY );
+            free = new int[INITIAL_CAPACITY];
+        }
+
+        String getRoot( final int i )
+        {
+            return( roots[i] );
+        }
+
+        /**
+         * @param i the index of the extras
+         * @return the parameter, or null if the token has none
+         */
+        CommandParameter getParameter( final int i )
+        {
+            if( units[i] == NO_PARAMETER ) {
+                return( null );
+            }
+
+            final CommandParameter param = new CommandParameter();
+            param.setAmount( amounts[i] );
+            param.setUnit( units[i] == NULL_UNIT ? null : UNIT_TYPES[units[i]] );
+            param.setErrorCode( errorCodes[i] );
+            param.setCharsParsed( charsParsed[i] );
+            param.setString( strings[i] );
+            return( param );
+        }
+
+        /**
+         * @param root the root to store, if it is not a known command's; otherwise null
+         * @param param the parameter to store, or null
+         * @param string the parameter's string, interned
+         * @return the index of the extras
+         */
+        int add( final String root, final CommandParameter param, final String string )
+        {
+            final int i = nextIndex();
+            roots[i] = root;
+            if( param == null ) {
+                units[i] = NO_PARAMETER;
+                return( i );
+            }
+
+            amounts[i] = param.getAmount();
+            units[i] = ( param.getUnit() == null ? NULL_UNIT : (byte) param.getUnit().ordinal() );
+            errorCodes[i] = param.getErrorCode();
+            charsParsed[i] = param.getCharsParsed();
+            strings[i] = string;
+            return( i );
+        }
+
+        /**
+         * @param src the extras of another list
+         * @param srcIndex the index of the extras to copy
+         * @return the index of the copy
+         */
+        int add( final Extras src, final int srcIndex )
+        {
+            final int i = nextIndex();
+            roots[i] = src.roots[srcIndex];
+            amounts[i] = src.amounts[srcIndex];
+            units[i] = src.units[srcIndex];
+            errorCodes[i] = src.errorCodes[srcIndex];
+            charsParsed[i] = src.charsParsed[srcIndex];
+            strings[i] = src.strings[srcIndex];
+            return( i );
+        }
+
+        /** @return an unused index, either a freed one or a new one */
+        private int nextIndex()
+        {
+            if( freeCount > 0 ) {
+                return( free[--freeCount] );
+            }
+            if( count == amounts.length ) {
+                allocate( count + count / 2 );
+            }
+            return( count++ );
+        }
+
+        void remove( final int i )
+        {
+            roots[i] = null;
+            strings[i] = null;
+            if( freeCount == free.length ) {
+                free = Arrays.copyOf( free, freeCount + freeCount / 2 );
+            }
+            free[freeCount++] = i;
+        }
+
+        /**
+         * Allocates the arrays with a new capacity, keeping the extras stored so far
+         *
+         * @param capacity the new capacity
+         */
+        private void allocate( final int capacity )
+        {
+            roots       = ( roots == null       ? new String[capacity] : Arrays.copyOf( roots, capacity ));
+            amounts     = ( amounts == null     ? new float[capacity]  : Arrays.copyOf( amounts, capacity ));
+            units       = ( units == null       ? new byte[capacity]   : Arrays.copyOf( units, capacity ));
+            errorCodes  = ( errorCodes == null  ? new int[capacity]    : Arrays.copyOf( errorCodes, capacity ));
+            charsParsed = ( charsParsed == null ? new int[capacity]    : Arrays.copyOf( charsParsed, capacity ));
+            strings     = ( strings == null     ? new String[capacity] : Arrays.copyOf( strings, capacity ));
+        }
+    }
 
     /**
      * Gets the next token after the token pointed to by the tokenNumber
@@ -60,47 +787,29 @@ public class TokenList extends ArrayList<Token>
     }
 
     /**
-     * Gets all the preceding tokens in this input line and sees whether any
-     * of them contain text.
+     * Sees whether any of the preceding tokens in this input line contain text.
+     * The lines are indexed as tokens are added, so this does not walk the line.
      *
      * @param tokNum the present token
      * @return true if text is emitted false if not
      */
     public boolean lineSoFarEmitsText( int tokNum )
     {
-        assert( tokNum >= 0 && tokNum < this.size() );
-
-        int i;
-
-        Token currTok = (Token) get( tokNum );
-        Token newTok = null;
-
-        for( i = tokNum; i >= 0; i-- )
-        {
-            newTok = (Token) get( i );
-            if( ! currTok.sourceEquals( newTok )) {
-                break;
-            }
-        }
-
-        // if i is not a valid 0 that caused the end of the for loop, increase it by 1
-        if( ! ( i == 0 && ( newTok != null && currTok.sourceEquals( newTok )))) {
-            i++;
-        }
-
-        if( i == tokNum ) {
-            return( false );
-        }
-
-        for( int j = i; j < tokNum; j++ )
-        {
-            Token tok = get( j );
-            if( tok.getType() == TokenType.TEXT ) {
-                return( true );
-            }
-        }
+        checkIndex( tokNum, stored() - 1 );
+        return(( fields.linePlaces[slot( tokNum )] & TEXT_BEFORE ) != 0 );
+    }
 
-        return( false );
+    /**
+     * Gets the first token in the input line of a token: the first of the unbroken run of
+     * tokens from the same line that ends with the token.
+     *
+     * @param tokNum the present token
+     * @return the number of the first token in its line
+     */
+    public int getLineStart( final int tokNum )
+    {
+        checkIndex( tokNum, stored() - 1 );
+        return( tokNum - ( fields.linePlaces[slot( tokNum )] >>> 1 ));
     }
     /**
      * dumps all the tokens in the output token list to System.out
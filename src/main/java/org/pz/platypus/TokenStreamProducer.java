@@ -0,0 +1,155 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2006-10 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The producer half of streaming mode (-stream). Runs on its own thread, reading the
+ * input file a line at a time and parsing each line into tokens. The tokens are handed
+ * in batches to the output plugin via a bounded queue, so that only a small window of
+ * the document is in memory at any one time and parsing overlaps with output.
+ *
+ * When the input is exhausted (or an error occurs), END_OF_STREAM is placed in the queue.
+ * If the consumer stops taking tokens (because the output plugin failed, say), it calls
+ * cancel(), and the producer stops and closes the input file rather than wait for room
+ * in the queue forever.
+ *
+ * @author alb
+ */
+public class TokenStreamProducer implements Runnable
+{
+    /** marks the end of the token stream. Compared by identity, never by contents */
+    public static final TokenList END_OF_STREAM = new TokenList();
+
+    /** the minimum number of tokens in a batch before it's placed in the queue */
+    static final int BATCH_SIZE = 256;
+
+    /** how long to wait for room in the queue before checking for cancellation */
+    private static final long OFFER_MILLIS = 200;
+
+    private final Infile infile;
+    private final PlatypusParser parser;
+    private final BlockingQueue<TokenList> channel;
+    private final GDD gdd;
+
+    /** Status.OK or the error that caused the stream to end. Read by the consuming thread. */
+    private volatile int status = Status.OK;
+
+    /** set by the consuming thread when it no longer wants tokens */
+    private volatile boolean cancelled = false;
+
+    private int lineCount = 0;
+    private int tokenCount = 0;
+
+    public TokenStreamProducer( final Infile inputFile, final PlatypusParser platyParser,
+                                final BlockingQueue<TokenList> queue, final GDD Gdd )
+    {
+        if( inputFile == null || platyParser == null || queue == null || Gdd == null ) {
+            throw new IllegalArgumentException( "null param in TokenStreamProducer()" );
+        }
+
+        infile = inputFile;
+        parser = platyParser;
+        channel = queue;
+        gdd = Gdd;
+    }
+
+    /**
+     * Reads and parses lines until EOF or an error, then closes the input file and
+     * signals the end of the stream.
+     */
+    public void run()
+    {
+        TokenList batch = new TokenList();
+
+        try {
+            while( ! cancelled )
+            {
+                InputLine line = new InputLine();
+                int r = infile.readNextLine( line );
+                if( r == Status.AT_EOF ) {
+                    break;
+                }
+
+                if( r != Status.OK ) {
+                    gdd.logSevere( gdd.getLit( "ERROR.READING_PLATYPUS_FILE" ) + " " +
+                                   infile.getFilename() );
+                    status = r;
+                    break;
+                }
+
+                ++lineCount;
+                if( parser.parseLine( batch, line ) == Status.UNFIXABLE_PARSE_ERR ) {
+                    status = Status.UNFIXABLE_PARSE_ERR;
+                    break;
+                }
+
+                if( batch.size() >= BATCH_SIZE ) {
+                    tokenCount += batch.size();
+                    if( ! hand( batch )) {
+                        return;
+                    }
+                    batch = new TokenList();
+                }
+            }
+
+            if( ! batch.isEmpty() ) {
+                tokenCount += batch.size();
+                if( ! hand( batch )) {
+                    return;
+                }
+            }
+
+            gdd.log( "Finished streaming input: " + lineCount + " lines -> " +
+                     tokenCount + " tokens." );
+            hand( END_OF_STREAM );
+        }
+        catch( InterruptedException ie ) {
+            // the consumer has gone away; nothing more to do.
+            status = Status.ERR;
+        }
+        finally {
+            infile.close();
+        }
+    }
+
+    /**
+     * Places a batch in the queue, waiting for room in it until the producer is cancelled
+     *
+     * @param batch the batch of tokens
+     * @return true if the batch was placed in the queue; false if the producer was cancelled
+     * @throws InterruptedException if the producer's thread is interrupted while waiting
+     */
+    private boolean hand( final TokenList batch ) throws InterruptedException
+    {
+        while( ! cancelled ) {
+            if( channel.offer( batch, OFFER_MILLIS, TimeUnit.MILLISECONDS )) {
+                return( true );
+            }
+        }
+        return( false );
+    }
+
+    /**
+     * Stops the producer: it parses no more lines, places no more batches in the queue, and
+     * closes the input file. Called from the consuming thread.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    //=== getters and setters ===
+
+    public int getStatus()
+    {
+        return( status );
+    }
+}
@@ -110,24 +110,32 @@ public class TypefaceMap
      *
      * 1. Get the list of font directories
      * 2. Get the list of fonts files from within those directories
-     * 3. For each font file, load its family and name into the table
-     * 4. Write out a file with the family and font files to PLATYPUS_HOME/config
+     * 3. Bring the font index up to date: only new or changed font files are opened
+     * 4. For each font file, load its family and name into the table
+     * 5. Write out the updated font index to PLATYPUS_HOME/config
+     *
+     * The caller then writes out the family and font files to PLATYPUS_HOME/config.
      */
     public void loadFamilies()
     {
         String[] fontDirs = new FontDirectoryList( gdd ).getDirs();
         LinkedList<String> fontFiles = getFontFileList( fontDirs );
-        BaseFont bf = null;
+
+        FontIndex index = new FontIndex( gdd, gdd.getHomeDirectory() + "config" +
+                                              gdd.getFileSeparator() + FontIndex.FILENAME );
+        index.load();
+        index.refresh( fontFiles, this );
+        gdd.log( "Font index: read " + index.getFilesRead() + " of " + fontFiles.size() +
+                 " font files" );
 
         for( String fontFilename : fontFiles )
         {
-            try {
-                loadFontFile( fontFilename, bf );
-            }
-            catch( Exception e ) {
-                System.out.println( "Exception loading: " + fontFilename );
+            for( String familyName : index.getFamilies( fontFilename )) {
+                addFontFileToFamily( familyName, fontFilename );
             }
         }
+
+        index.save();
         gdd.log( "Loaded Platypus font-family with " + map.size() + " entries" );
     }
 
@@ -23,6 +23,9 @@ public class CommandR extends Command
     private String replacementRoot;
     private CommandTable cTable;
 
+    /** the command for replacementRoot; looked up on first use, as it may be loaded after this */
+    private ICommand replacement;
+
     public CommandR( final String commandRoot, final String attributes, CommandTable ct )
     {
         parameterType = ParamType.MEASURE;
@@ -79,16 +82,10 @@ public class CommandR extends Command
         /** the root that is going to be mapped to a replacement command root */
         final String aliasRoot = root;
 
-        // insert the replacement command in the ParseContext and call the
-        // replacement command's process() method.
-
-        String newInputLine = TextTransforms.replaceSubstringAtLocation(
-                context.getContent(), aliasRoot, replacementRoot, context.startPoint );
-
-        ParseContext newContext = new ParseContext( gdd, context.source,
-                                                    newInputLine, context.startPoint);
-
-        ICommand com = cTable.getCommand( replacementRoot );
+        ICommand com = replacement;
+        if( com == null ) {
+            com = replacement = cTable.getCommand( replacementRoot );
+        }
         if( com == null ) {
             // if the real command cannot be found, an error occurred. So, output the
             // invalid original alias root as text and advance by its length. This means
@@ -101,9 +98,11 @@ public class CommandR extends Command
             return( aliasRoot.length() ); 
         }
 
-        int i =  com.process( gdd, newContext, tl, inCode );
-
-        int originalCharsProcessed = i - replacementRoot.length() + aliasRoot.length();
+        // the replacement command processes the command in place, reading its parameter
+        // from after the alias root
+        final int originalCharsProcessed = ( com instanceof Command ?
+                ((Command) com).processAlias( gdd, context, tl, inCode, aliasRoot.length() ) :
+                processExpandedAlias( com, gdd, context, tl, inCode, aliasRoot.length() ));
 
         // if we pass through the replaced command (a config-file switch, used mostly for listings),
         // then emit that here
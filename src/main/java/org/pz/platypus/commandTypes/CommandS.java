@@ -36,9 +36,42 @@ public class CommandS extends Command
      */
     public int process( final GDD gdd, ParseContext context,
                         final TokenList tl, final boolean inCode )
+    {
+        return( process( gdd, context, tl, root.length() ));
+    }
+
+    /**
+     * Processes the command where an alias of it is in the input. The string is read from
+     * after the alias, and the token is the same as for the command written out in full.
+     *
+     * @param gdd GDD
+     * @param context the parsing context, with the alias root at startPoint
+     * @param tl TokenList to which the generated tokens are added
+     * @param inCode Are we currently in a code section?
+     * @param aliasLength the number of chars in the alias root
+     * @return number of chars to skip to get past the aliased command in the input
+     */
+    @Override
+    public int processAlias( final GDD gdd, final ParseContext context, final TokenList tl,
+                             final boolean inCode, final int aliasLength )
+    {
+        return( process( gdd, context, tl, aliasLength ));
+    }
+
+    /**
+     * Extracts the string after the root, whose length is given, and emits the token
+     *
+     * @param gdd GDD
+     * @param context the parsing context
+     * @param tl TokenList to which the generated token is added
+     * @param rootLength the number of chars in the root at startPoint
+     * @return number of chars to skip to get past the command string in the input
+     */
+    private int process( final GDD gdd, final ParseContext context, final TokenList tl,
+                         final int rootLength )
     {
         int braces = 0;
-        int parsePoint = context.startPoint + root.length();
+        int parsePoint = context.startPoint + rootLength;
         CommandParameter cparam =
             CommandParameterParser.extractStringParam( context.chars, parsePoint );
 
@@ -52,13 +85,16 @@ public class CommandS extends Command
                             CommandParameterParser.makeBraces( '}', braces ) +
                             "]";
 
+        // the input holds the root that was given, which may be an alias of this one
+        final int rootLengthDiff = rootLength - root.length();
+
         if( ! validInCode && gdd.isInCode() )  {
-            return notExecutedInCodeSection( newContent, tl, context.source, gdd );
+            return( notExecutedInCodeSection( newContent, tl, context.source, gdd ) + rootLengthDiff );
         }
         Token tok = new Token( context.source, TokenType.COMMAND, root, newContent, cparam );
         tl.add( tok );
 
-        return( newContent.length() );
+        return( newContent.length() + rootLengthDiff );
     }
 
     //=== getters and setters ===//
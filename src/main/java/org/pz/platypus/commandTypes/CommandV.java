@@ -37,9 +37,40 @@ public class CommandV extends Command
      */
     public int process( final GDD gdd, final ParseContext context, final TokenList tl,
                         final boolean inCode )
+    {
+        return( process( context, tl, root.length() ));
+    }
+
+    /**
+     * Processes the command where an alias of it is in the input. The value is read from
+     * after the alias, and the token is the same as for the command written out in full.
+     *
+     * @param gdd GDD
+     * @param context the parsing context, with the alias root at startPoint
+     * @param tl TokenList to which the generated tokens are added
+     * @param inCode Are we currently in a code section?
+     * @param aliasLength the number of chars in the alias root
+     * @return number of chars to skip to get past the aliased command in the input
+     */
+    @Override
+    public int processAlias( final GDD gdd, final ParseContext context, final TokenList tl,
+                             final boolean inCode, final int aliasLength )
+    {
+        return( process( context, tl, aliasLength ));
+    }
+
+    /**
+     * Extracts the value after the root, whose length is given, and emits the token
+     *
+     * @param context the parsing context
+     * @param tl TokenList to which the generated token is added
+     * @param rootLength the number of chars in the root at startPoint
+     * @return number of chars to skip to get past the command string in the input
+     */
+    private int process( final ParseContext context, final TokenList tl, final int rootLength )
     {
         int parsePoint = context.startPoint;
-        parsePoint += root.length();
+        parsePoint += rootLength;
 
         CommandParameter cparm = CommandParameterParser.extractUnitValue( context.chars, parsePoint );
         parsePoint += CommandParameterParser.extractNumericString( context.chars, parsePoint).length();
@@ -51,7 +82,10 @@ public class CommandV extends Command
         }
 
         parsePoint += 1;
-        String commandText = context.segment( parsePoint );
+        String commandText = ( rootLength == root.length() ?
+                                    context.segment( parsePoint ) :
+                                    root + context.getContent().substring(
+                                                context.startPoint + rootLength, parsePoint ));
         Token tok = new Token( context.source, TokenType.COMMAND, root, commandText, cparm );
         tl.add( tok );
         return( parsePoint - context.startPoint );
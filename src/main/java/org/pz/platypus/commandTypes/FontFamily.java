@@ -28,7 +28,8 @@ public class FontFamily implements ICommand
 
     private TokenType tokType = TokenType.COMMAND_FONT_FAMILY;
 
-    private static CommandFamilyParser commandParser = null;
+    /** the parser has no state, so a single instance is shared by all documents and threads */
+    private static final CommandFamilyParser commandParser = new CommandFamilyParser();
 
 
 
@@ -42,10 +43,6 @@ public class FontFamily implements ICommand
      */
     public int process( GDD gdd, ParseContext context, final TokenList tl, final boolean inCode )
     {
-        if( commandParser == null ) {
-            commandParser = new CommandFamilyParser();
-        }
-
         TokenList newTokens = new TokenList();
         int length;
 
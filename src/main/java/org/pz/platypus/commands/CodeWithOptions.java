@@ -21,12 +21,6 @@ public abstract class CodeWithOptions
 {
     protected final String root = "[code|";
 
-    /** the parameter data for the token */
-    protected String tokenParam = null;
-
-    /** command parameters: starting line#, which line #s to print */
-    protected String[] params;
-
     /**
      * Basic command housekeeing.
      * @param context the document data container
@@ -41,7 +35,9 @@ public abstract class CodeWithOptions
             throw new IllegalArgumentException();
         }
 
-        tokenParam = tok.getParameter().getString();
+        // the parameter data for the token. Kept local, rather than in a field,
+        // so that the command can be used by several documents at the same time.
+        final String tokenParam = tok.getParameter().getString();
         if( tokenParam == null || ! tokenParam.startsWith( "lines:" )) {
             invalidParameterErrMessage( context.getGdd(), tok.getSource() );
             return( 0 );
@@ -52,7 +48,8 @@ public abstract class CodeWithOptions
         }
 
         String counts = org.pz.platypus.utilities.TextTransforms.lop( tokenParam, "lines:".length() );
-        params = counts.split( "," );
+        // command parameters: starting line#, which line #s to print
+        final String[] params = counts.split( "," );
         if( params.length != 2 ) {
             invalidParameterErrMessage( context.getGdd(), tok.getSource() );
             return( 0 ) ;
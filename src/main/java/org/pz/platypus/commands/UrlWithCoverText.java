@@ -24,9 +24,6 @@ public abstract class UrlWithCoverText implements IOutputCommand
 {
     private final String root = "[+url:";
 
-    /** how many tokens do we consume reading the cover text? Should generally be 2. */
-    private int tokensToSkip = 0;
-
     protected abstract void outputUrl( final IOutputContext context, String url, String coverText );
 
     public int process(IOutputContext context, Token tok, int tokNum)
@@ -42,8 +39,10 @@ public abstract class UrlWithCoverText implements IOutputCommand
             return 0;
         }
 
-        // get the cover text
-        String coverText = getCoverText( context, tokNum );
+        // get the cover text and how many tokens it consumes (generally 2)
+        StringBuilder coverTextBuilder = new StringBuilder();
+        final int tokensToSkip = readCoverText( context, tokNum, coverTextBuilder );
+        String coverText = coverTextBuilder.toString();
         if( coverText == null || coverText.isEmpty() ) {
             showNoCoverTextlErrorMsg( tok, context );
             outputUrl( context, url, null );
@@ -65,12 +64,33 @@ public abstract class UrlWithCoverText implements IOutputCommand
      * @return a string containing the cover text
      */
     String getCoverText( final IOutputContext context, final int startingNum )
+    {
+        StringBuilder coverText = new StringBuilder();
+        readCoverText( context, startingNum, coverText );
+        return( coverText.toString() );
+    }
+
+    /**
+     * Reads the cover text. The number of tokens consumed is returned, rather than stored
+     * in the command, so that the command holds no state between calls.
+     *
+     * @param context the PDF document data
+     * @param startingNum the number of the current token in the list
+     * @param coverText the cover text is appended to this
+     *
+     * @return the number of tokens consumed by the cover text, including the [-url]
+     */
+    int readCoverText( final IOutputContext context, final int startingNum,
+                       final StringBuilder coverText )
     {
         GDD gdd = context.getGdd();
         TokenList tokens = gdd.getInputTokens();
         int currNum;
         Token tok = null;
-        StringBuilder coverText = new StringBuilder();
+
+        // get the starting token now: in streaming mode, it might not be available
+        // after we've looked ahead for the cover text.
+        final Token startTok = tokens.get( startingNum );
 
         for( currNum = startingNum+1; currNum < tokens.size() ;currNum++ ) {
             tok = tokens.get( currNum );
@@ -105,11 +125,10 @@ public abstract class UrlWithCoverText implements IOutputCommand
             }
 
             // anything but the valid options above is an error.
-            showUnclosedUrlCoverTextErrorMsg( tokens.get( startingNum ), gdd );
+            showUnclosedUrlCoverTextErrorMsg( startTok, gdd );
         }
 
-        tokensToSkip = currNum - startingNum;
-        return( coverText.toString() );
+        return( currNum - startingNum );
     }
 
     public String getRoot()
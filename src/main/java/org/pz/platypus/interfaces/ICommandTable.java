@@ -8,6 +8,7 @@
 package org.pz.platypus.interfaces;
 
 import org.pz.platypus.GDD;
+import org.pz.platypus.Token;
 
 /**
  * Interface for plug-in command table
@@ -37,6 +38,13 @@ public interface ICommandTable
      */
     public IOutputCommand getCommand( final String root );
 
+    /** get the processor for a command or symbol token, by the id of its root
+     *
+     *  @param tok the token
+     *  @return the command, or null on error
+     */
+    public IOutputCommand getCommandFor( final Token tok );
+
     /** get size of table
      *
      *  @return the number of entries in the table
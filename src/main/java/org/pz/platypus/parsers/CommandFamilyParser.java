@@ -59,16 +59,16 @@ public class CommandFamilyParser
         boolean paramsProcessed = false;
         while( ! paramsProcessed ) {
 
-            final String command = extractCommandName( context.chars, ++parsePoint );
-
             // look up the command name in the command table
-            ICommand com = ctable.getCommand( familyRoot + command );
+            ICommand com = ctable.getCommand( familyRoot, context.chars, ++parsePoint );
             if( com == null ) {
+                final String command = extractCommandName( context.chars, parsePoint );
                 invalidCommandError( gdd, context, command );
                 throw new InvalidCommandException( command );
             }
 
-            parsePoint += command.length();
+            // the command name, such as size: in [font|size:, is the end of the root
+            parsePoint += com.getRoot().length() - familyRoot.length();
 
             // what type of parameter does the command take? Currently, ParamType.NONE is
             // not a supported option for family commands, but it might be in the future.
@@ -82,7 +82,7 @@ public class CommandFamilyParser
                 param = CommandParameterParser.extractStringParam( context.chars, parsePoint );
                 if( param == null ) {
                     invalidParameterError( gdd, context, com.getRoot() );
-                    throw new InvalidCommandParameterException( command );
+                    throw new InvalidCommandParameterException( commandName( com, familyRoot ));
                 }
                 parsePoint += param.getCharsParsed();
             }
@@ -93,8 +93,8 @@ public class CommandFamilyParser
 
                 param = CommandParameterParser.extractUnitValue( context.chars, parsePoint );
                 if( param == null || param.getErrorCode() != Status.OK ) {
-                    invalidParameterError( gdd, context, command );
-                    throw new InvalidCommandParameterException( command );
+                    invalidParameterError( gdd, context, commandName( com, familyRoot ));
+                    throw new InvalidCommandParameterException( commandName( com, familyRoot ));
                 }
                 parsePoint += param.getCharsParsed();
             }
@@ -102,8 +102,8 @@ public class CommandFamilyParser
             if( com.getParamType() == ParamType.MEASURE ) {
                 param.setUnit( CommandParameterParser.extractUnitType( context.chars, parsePoint ));
                 if( param.getUnit() == UnitType.ERROR ) {
-                    invalidParameterError( gdd, context, command );
-                    throw new InvalidCommandParameterException( command );
+                    invalidParameterError( gdd, context, commandName( com, familyRoot ));
+                    throw new InvalidCommandParameterException( commandName( com, familyRoot ));
                 }
 
                 if( param.getUnit() != UnitType.NONE ) {
@@ -113,7 +113,7 @@ public class CommandFamilyParser
             }
 
             parsedTokens.add( new Token( context.source, TokenType.COMMAND,
-                              familyRoot + command, null, param ));
+                              com.getRoot(), null, param ));
 
             // parsePoint now points to the first char after the processed parameter
             // TODO: make sure it's a legitimate value before dereferencing it
@@ -185,6 +185,16 @@ public class CommandFamilyParser
         return( sb.toString() );
     }
 
+    /**
+     * @param com a command in a family
+     * @param familyRoot the root of the family
+     * @return the name of the command in the family; e.g. "size:" for [font|size:
+     */
+    private String commandName( final ICommand com, final String familyRoot )
+    {
+        return( com.getRoot().substring( familyRoot.length() ));
+    }
+
     /**
      * Outputs the error info to the user console
      *
@@ -265,22 +265,36 @@ public class CommandParameterParser
 
         braceCount = countBraces( input, start );
 
-        StringBuilder closingBracesSb = new StringBuilder( braceCount );
-        for( int x = 0; x < braceCount; x++ ) {
-            closingBracesSb.append( '}' );
-        }
-        String closingBraces = closingBracesSb.toString();
-        String inputText = new String( input );
-
-        i = inputText.indexOf( closingBraces, start );
+        i = findClosingBraces( input, start, braceCount );
         if( i < 0 ) {
             return( "" );
         }
 
-        param = inputText.substring( start + braceCount, i );
+        param = new String( input, start + braceCount, i - ( start + braceCount ));
         return( param );
     }
 
+    /**
+     * Finds the first run of closing braces at or after start, working directly on the
+     * chars rather than converting the whole line to a String.
+     *
+     * @param input the chars to search
+     * @param start where to start searching
+     * @param braceCount the number of closing braces to find in a row
+     * @return the index of the first of the closing braces, or -1 if not found
+     */
+    static int findClosingBraces( final char[] input, final int start, final int braceCount )
+    {
+        int run = 0;
+        for( int i = start; i < input.length; i++ ) {
+            if( run == braceCount ) {
+                return( i - run );
+            }
+            run = ( input[i] == '}' ) ? run + 1 : 0;
+        }
+        return( run == braceCount ? input.length - run : -1 );
+    }
+
     /**
      * Count the number of opening braces in a parameter
      * @param input the chars containing the opening braces
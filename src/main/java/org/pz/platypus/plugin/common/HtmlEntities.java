@@ -0,0 +1,41 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.common;
+
+/**
+ * The entities for the chars that are reserved in HTML and XHTML text, used by the
+ * plugins that write HTML to escape text in one pass.
+ *
+ * @author alb
+ */
+public final class HtmlEntities
+{
+    /** the size of the tables: the entities are all for ASCII chars */
+    public static final int TABLE_SIZE = 128;
+
+    private HtmlEntities()
+    {
+    }
+
+    /**
+     * Creates a table of the entities for the reserved chars (&amp; &lt; &gt; &quot; and ').
+     * A plugin can add entities for other chars to its table.
+     *
+     * @return the entity for each char, by char; null for chars that are written as is
+     */
+    public static String[] createTable()
+    {
+        final String[] table = new String[TABLE_SIZE];
+        table['&']  = "&amp;";
+        table['<']  = "&lt;";
+        table['>']  = "&gt;";
+        table['"']  = "&quot;";
+        table['\''] = "&#39;";
+        return( table );
+    }
+}
@@ -7,10 +7,13 @@
 
 package org.pz.platypus.plugin.html;
 
+import org.pz.platypus.CommandIds;
 import org.pz.platypus.GDD;
+import org.pz.platypus.Token;
 import org.pz.platypus.interfaces.IOutputCommand;
 import org.pz.platypus.plugin.html.commands.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -26,9 +29,13 @@ public class HtmlCommandTable
     /** the hashtable into which the commands are loaded */
     private HashMap<String, IOutputCommand> commandTable;
 
+    /** the same commands, indexed by the id of their root in CommandIds */
+    private IOutputCommand[] commandsById;
+
     public HtmlCommandTable()
     {
         commandTable = new HashMap<String, IOutputCommand>( 300 );
+        commandsById = new IOutputCommand[CommandIds.getCount()];
     }
 
     /**
@@ -86,6 +93,12 @@ public class HtmlCommandTable
     void add( final IOutputCommand entry )
     {
         commandTable.put( entry.getRoot(), entry );
+
+        final int id = CommandIds.register( entry.getRoot() );
+        if( id >= commandsById.length ) {
+            commandsById = Arrays.copyOf( commandsById, Math.max( id + 1, CommandIds.getCount() ));
+        }
+        commandsById[id] = entry;
     }
 
     //=== getters and setters ===/
@@ -100,6 +113,20 @@ public class HtmlCommandTable
         return( commandTable.get( root ));
     }
 
+    /**
+     * Lookup the command for a token by the id of its root, which avoids hashing the root
+     * @param tok the command token
+     * @return the OutputCommandable class found, or null on error
+     */
+    public IOutputCommand getCommandFor( final Token tok )
+    {
+        final int id = tok.getCommandId();
+        if( id == CommandIds.NONE ) {
+            return( commandTable.get( tok.getRoot() ));
+        }
+        return( id < commandsById.length ? commandsById[id] : null );
+    }
+
     /**
      * How many entries in the table
      * @return number of entries
@@ -15,7 +15,11 @@ import org.pz.platypus.GDD;
 import org.pz.platypus.Source;
 
 /**
- * Handles fonts for the PDF plugin
+ * Handles fonts for the HTML plugin
+ *
+ * HTML output needs only the typeface, size, and style of the font, so the iText font
+ * (which means reading the font's files) is created only if getItextFont() is called,
+ * and again after a change to the font.
  *
  * @author alb
  */
@@ -64,7 +68,7 @@ public class HtmlFont
         italics   = DefaultValues.FONT_ITALIC;
         source    = new Source();
 
-        iTfont = createFont( this );
+        iTfont = null;
     }
 
     /**
@@ -259,12 +263,15 @@ public class HtmlFont
 
     //=== getters and setters ===//
     /**
-     * Get the iText font
+     * Get the iText font, creating it if it has not been created since the last change
      *
      * @return  the iText font
      */
     public Font getItextFont()
     {
+        if( iTfont == null ) {
+            iTfont = createFont( this );
+        }
         return( iTfont );
     }
 
@@ -294,7 +301,7 @@ public class HtmlFont
         if( bold != onOff ) {
             bold = onOff;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 
@@ -309,7 +316,7 @@ public class HtmlFont
         if( italics != onOff ) {
             italics = onOff;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 
@@ -318,7 +325,7 @@ public class HtmlFont
         if( size != newSize ) {
             size = newSize;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 
@@ -327,7 +334,7 @@ public class HtmlFont
         if( ! typeface.equals( newFace )) {
             typeface = newFace;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 }
\ No newline at end of file
@@ -7,39 +7,54 @@
 
 package org.pz.platypus.plugin.html;
 
-import org.apache.ecs.Doctype;
-import org.apache.ecs.ECSDefaults;
-import org.apache.ecs.XhtmlDocument;
-import org.apache.ecs.xhtml.body;
-import org.apache.ecs.xhtml.comment;
-import org.apache.ecs.xhtml.meta;
-import org.apache.ecs.xhtml.title;
 import org.pz.platypus.GDD;
 import org.pz.platypus.exceptions.FileCloseException;
+import org.pz.platypus.plugin.common.HtmlEntities;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.lang.reflect.Field;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 
 /**
  * Manage output to the HTML file
  *
+ * The HTML is written as it's emitted, through a buffered UTF-8 writer: the head (and the
+ * body tag) when the file is opened, and the text and tags as the tokens are processed.
+ * Anything emitted before the file is opened is held until it is.
+ *
  * @author ask
  */
 public class HtmlOutfile
 {
+    /** the entities for the chars that are reserved in HTML, by char */
+    private static final String[] ENTITIES = HtmlEntities.createTable();
+
     private boolean openStatus = false;
 
     /** the HTML data structure */
     HtmlData htmlData;
 
+    /** the start of the document, up to the body tag */
+    static final String HEAD =
+        "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" " +
+        "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n" +
+        "<html xmlns='http://www.w3.org/1999/xhtml'><head>\n" +
+        "<title>Html Doc</title>\n" +
+        "<meta content='text/html;charset=utf-8' http-equiv='Content-Type'/>\n" +
+        "<!-- Generated by Platypus - http://platypus.pz.org -->\n" +
+        "</head>\n";
+
     private String htmlFileName;
-    private PrintStream htmlFile;
+    private Writer htmlFile;
+
+    /** what is emitted before the file is opened */
+    private final StringBuilder pending = new StringBuilder();
 
-    XhtmlDocument htmlDoc = new XhtmlDocument();
-    body htmlBody = new body();
+    /** the top margin, for the body tag; -1 if none was set */
+    private int marginTop = -1;
 
     private boolean inParagraph = false;
     private int tab = 0;
@@ -48,47 +63,6 @@ public class HtmlOutfile
     public HtmlOutfile()
     {
         openStatus = false;
-
-        configureHtmlPrettyPrint();
-        configureHead();
-
-        Doctype doctype = new Doctype.XHtml10Transitional();
-        htmlDoc.setDoctype(doctype);
-
-        htmlBody = htmlDoc.getBody();
-        htmlBody.setPrettyPrint( true );
-    }
-
-    /**
-     * The "once only" settings - We set <br>
-     * 1. The title <br>
-     * 2. The content-type <br>
-     * 3. A comment to note that this doc was generated with platypus <br> 
-     * 
-     */
-    private void configureHead() {
-        htmlDoc.setTitle(new title("Html Doc"));
-        meta m = new meta();
-        m.setHttpEquiv("Content-Type");
-        m.setContent("text/html;charset=utf-8");
-        htmlDoc.getHead().addElement(m);
-        htmlDoc.getHead().addElement(new comment("Generated by Platypus - http://platypus.pz.org"));
-    }
-
-    /** A hack to pretty-print the generated XHTML.
-     *
-     */
-    private void configureHtmlPrettyPrint() {
-        try {
-            Field fld = ECSDefaults.class.getDeclaredField("defaults");
-            fld.setAccessible(true);
-            ECSDefaults ed = (ECSDefaults) fld.get(null);
-            Field pp = ECSDefaults.class.getDeclaredField("pretty_print");
-            pp.setAccessible(true);
-            pp.setBoolean(ed, Boolean.TRUE);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
     }
 
     /**
@@ -121,8 +95,25 @@ public class HtmlOutfile
         gdd.log( "Opened HTML output file:" + " " + filename );
     }
 
-    private void openHtmlFile(String filename) throws FileNotFoundException {
-        htmlFile = new PrintStream(filename);
+    private void openHtmlFile(String filename) throws IOException {
+        openHtmlFile( new BufferedWriter(
+                        new OutputStreamWriter( new FileOutputStream( filename ), "UTF-8" )));
+    }
+
+    /**
+     * Starts the document on a writer: writes the head, the body tag, and anything
+     * emitted so far.
+     *
+     * @param writer the writer for the HTML
+     * @throws IOException if an error occurs writing
+     */
+    void openHtmlFile( final Writer writer ) throws IOException {
+        htmlFile = writer;
+        htmlFile.write( HEAD );
+        htmlFile.write( marginTop < 0 ? "<body>\n" : "<body TOPMARGIN='" + marginTop + "'>\n" );
+        htmlFile.append( pending );
+        pending.setLength( 0 );
+        pending.trimToSize();
         openStatus = true;
     }
 
@@ -142,8 +133,7 @@ public class HtmlOutfile
         // now, we can close (note: following steps must occur in this order)
         openStatus =  false;
         try {
-            htmlFile.println(htmlDoc.toString());
-            htmlFile.flush();
+            htmlFile.write( "\n</body></html>\n" );
             htmlFile.close();
         }
         catch( Exception ex ) {
@@ -183,15 +173,67 @@ public class HtmlOutfile
     }
 
     /**
-     * Writes text to the HTML file.            \
-     * TODO: handle quoting of special characters here...
-     * TODO: maybe extract this out in a special class of its own?
+     * Writes text to the HTML file, as is.
      *
      * @param s the text to be written
      */
     public void emitText( String s )
     {
-        htmlBody.addElement(s);
+        if( ! openStatus ) {
+            pending.append( s );
+            return;
+        }
+
+        try {
+            htmlFile.write( s );
+        }
+        catch( IOException ioe ) {
+            logWriteError();
+        }
+    }
+
+    /**
+     * Writes text to the HTML file, replacing the chars that are reserved in HTML
+     * (&amp;, &lt;, &gt;, and quotes) with their entities. The text is scanned once, and
+     * the runs between reserved chars are written directly.
+     *
+     * @param s the text to be written
+     */
+    public void emitEscapedText( final String s )
+    {
+        int start = 0;
+        for( int i = 0; i < s.length(); i++ ) {
+            final char c = s.charAt( i );
+            if( c < ENTITIES.length && ENTITIES[c] != null ) {
+                emitText( s, start, i );
+                emitText( ENTITIES[c] );
+                start = i + 1;
+            }
+        }
+        emitText( s, start, s.length() );
+    }
+
+    private void emitText( final String s, final int start, final int end )
+    {
+        if( start == end ) {
+            return;
+        }
+        if( ! openStatus ) {
+            pending.append( s, start, end );
+            return;
+        }
+
+        try {
+            htmlFile.write( s, start, end - start );
+        }
+        catch( IOException ioe ) {
+            logWriteError();
+        }
+    }
+
+    private void logWriteError() {
+        GDD gdd = htmlData.getGdd();
+        gdd.logSevere( gdd.getLit( "ERROR.WRITING_TO_OUTPUT_FILE" ) + ": " + htmlFileName );
     }
 
     public boolean isOpen()
@@ -242,9 +284,12 @@ public class HtmlOutfile
         return inFont;    
     }
 
+    /**
+     * Sets the top margin, which goes in the body tag. So, it's used only if it's set
+     * before the file is opened (that is, before any text is output).
+     */
     public void setMarginTop() {
-        int marginTop = (int) htmlData.getMarginTop();
-        htmlBody.addAttribute("TOPMARGIN", marginTop);
+        marginTop = (int) htmlData.getMarginTop();
     }
 
     /**
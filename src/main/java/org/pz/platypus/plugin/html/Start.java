@@ -150,7 +150,7 @@ public class Start implements IPlugin
                     processCommand( tok, htmlData, i );
 
                     // if the current command is [] and it's followed by EOL, don't process the EOL.
-                    if( tok.getRoot().equals( "[]" ) && isNextTokenCr( i, tokenList )) {
+                    if( tok.getCommandId() == CommandIds.HARD_CR && isNextTokenCr( i, tokenList )) {
                         ++i;
                     }
                     break;
@@ -195,8 +195,8 @@ public class Start implements IPlugin
             return( false );
         }
 
-        if( nextTok.getType().equals( TokenType.COMMAND ) &&
-            nextTok.getRoot().equals( "[cr]" )) {
+        if( nextTok.getType() == TokenType.COMMAND &&
+            nextTok.getCommandId() == CommandIds.EOL ) {
             return( true );
         }
 
@@ -215,7 +215,7 @@ public class Start implements IPlugin
         assert( commandTable!= null && commandTable.getSize() > 0 );
 
         // lookup the command in the HTML command table
-        IOutputCommand oc = commandTable.getCommand( tok.getRoot() );
+        IOutputCommand oc = commandTable.getCommandFor( tok );
         if( oc != null ) {
              oc.process( htmlData, tok, tokNum );
         }
@@ -303,8 +303,6 @@ public class Start implements IPlugin
             return; // should we log a warning here?
         }
 
-        String sym = tok.getRoot();
-
         // we don't open the file until we have text to output.
         if( ! outfile.isOpen() ) {
             try {
@@ -316,7 +314,7 @@ public class Start implements IPlugin
         }
 
         // lookup the command in the HTML command table
-        IOutputCommand oc = commandTable.getCommand( sym );
+        IOutputCommand oc = commandTable.getCommandFor( tok );
         if( oc != null ) {
              oc.process( htmlData, tok, tokNum );
         }
@@ -347,19 +345,7 @@ public class Start implements IPlugin
                 throw new IOException();
             }
         }
-        String text1 = escapeSpecialChars( text );
-        outfile.emitText( text1 );
-    }
-
-    private String escapeSpecialChars(String s) {
-        s = s.replaceAll("<", "&lt;");
-        s = s.replaceAll(">", "&gt;");
-//        s = s.replaceAll("[euro]", "&euro;");
-//        s = s.replaceAll("[yen]", "&yen;");
-//        s = s.replaceAll("[cents]", "&cent;");
-//        s = s.replaceAll("[currency]", "&curren;");
-        
-        return s;
+        outfile.emitEscapedText( text );
     }
 
 
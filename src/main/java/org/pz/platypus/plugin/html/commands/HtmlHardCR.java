@@ -34,11 +34,16 @@ public class HtmlHardCR implements IOutputCommand
         HtmlData htmlData = (HtmlData) context;
 
         // if it's the first token in line, it = a blank line, so an additional
-        // NEWLINE needs to be emitted.
+        // NEWLINE needs to be emitted. Otherwise, a line separator is emitted, so that the
+        // text before the [] is not run together with the text after it. (When it ends the
+        // line, the [] takes the place of the [cr], which would have emitted a space.)
 
         if( isFirstTokenInLine( context, tok, tokNum ) ) {
             htmlData.getHtmlDocContext().getOutfile().emitText("<br>");
         }
+        else {
+            htmlData.getHtmlDocContext().getOutfile().emitText("\n");
+        }
         return 0;
     }
 
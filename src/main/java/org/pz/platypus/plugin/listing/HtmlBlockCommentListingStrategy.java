@@ -19,24 +19,17 @@ import java.io.IOException;
  * @author ask
  */
 public class HtmlBlockCommentListingStrategy extends HtmlListingStrategy {
-
-    private final Token tok;
-
-    public HtmlBlockCommentListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-
     public boolean canOutputHtmlEndOfLine() {
         return false;  
     }
 
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s = "<span title=\"" +
-                         gdd.getLit( "BLOCK_COMMENT" ) +
-                         "\"><font color=\"green\">" +
-                         convertToHtmlText( tok.getContent() ) +
-                         "</font></span>";
-        return s;
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        out.append( "<span title=\"" );
+        out.append( gdd.getLit( "BLOCK_COMMENT" ));
+        out.append( "\"><font color=\"green\">" );
+        out.appendEscaped( tok.getContent() );
+        out.append( "</font></span>" );
     }
         
 }
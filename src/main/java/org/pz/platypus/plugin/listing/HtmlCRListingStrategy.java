@@ -10,8 +10,6 @@ package org.pz.platypus.plugin.listing;
 import org.pz.platypus.Token;
 import org.pz.platypus.GDD;
 
-import java.io.IOException;
-
 /**
  * The "[cr]" token processing strategy.
  * Decides how the carriage return token will be outputted as Html.
@@ -20,14 +18,9 @@ import java.io.IOException;
  *
  */
 public class HtmlCRListingStrategy extends HtmlListingStrategy {
-    private final Token tok;
-
-    public HtmlCRListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-
-    public String format(Token tok, GDD gdd) throws IOException {
-        return "";
+    public void format( final Token tok, final GDD gdd, final ListingWriter out )
+    {
+        // the soft CR/LF itself prints nothing; the line is ended after it
     }
 
     public boolean canOutputHtmlEndOfLine() {
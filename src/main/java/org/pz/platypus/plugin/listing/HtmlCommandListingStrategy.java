@@ -20,26 +20,18 @@ import java.io.IOException;
 
 public class HtmlCommandListingStrategy extends HtmlListingStrategy
 {
-    private final Token tok;
-
-    public HtmlCommandListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-    
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s;
-
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
         if( tok.getRoot() != null && tok.getRoot().equals( "[CR]" )) { // print [CR] as a blank line
-            s = "<br>\n";
+            out.append( "<br>\n" );
         }
         else {
-            s = "<span title=\"" +
-                gdd.getLit( "COMMAND" ) +
-                "\"><font color=\"blue\">" +
-                convertToHtmlText( tok.getContent() ) +
-                "</font></span>";
+            out.append( "<span title=\"" );
+            out.append( gdd.getLit( "COMMAND" ));
+            out.append( "\"><font color=\"blue\">" );
+            out.appendEscaped( tok.getContent() );
+            out.append( "</font></span>" );
         }
-        return s;        
     }
 
     public boolean canOutputHtmlEndOfLine() {
@@ -20,22 +20,16 @@ import java.io.IOException;
 
 public class HtmlCompoundCommandListingStrategy extends HtmlListingStrategy
 {
-    private final Token tok;
-
-    public HtmlCompoundCommandListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-    
     public boolean canOutputHtmlEndOfLine() {
         return false;  
     }
 
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s = "<span title=\"" +
-                         gdd.getLit( "COMPOUND_COMMAND" ) +
-                         "\"><font color=\"blue\">" +
-                         convertToHtmlText( tok.getContent() ) +
-                         "</font></span>";
-        return s;
-    }        
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        out.append( "<span title=\"" );
+        out.append( gdd.getLit( "COMPOUND_COMMAND" ));
+        out.append( "\"><font color=\"blue\">" );
+        out.appendEscaped( tok.getContent() );
+        out.append( "</font></span>" );
+    }
 }
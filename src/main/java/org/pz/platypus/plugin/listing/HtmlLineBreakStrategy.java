@@ -20,18 +20,13 @@ import java.io.IOException;
 
 public class HtmlLineBreakStrategy extends HtmlListingStrategy
 {
-    private final Token tok;
-
-    public HtmlLineBreakStrategy(Token tok) {
-        this.tok = tok;
-    }
-
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s = tok.getContent().substring( 0, tok.getContent().length() - 2 );
-        final String newLine = "<span title=\"" +
-                               gdd.getLit( "NEW_PARAGRAPH" ) +
-                               "\"><font color=\"blue\">[]</font></span><br>";
-        return s+newLine;        
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        final String content = tok.getContent();
+        out.append( content, 0, content.length() - 2 );
+        out.append( "<span title=\"" );
+        out.append( gdd.getLit( "NEW_PARAGRAPH" ));
+        out.append( "\"><font color=\"blue\">[]</font></span><br>" );
     }
 
     public boolean canOutputHtmlEndOfLine() {
@@ -20,23 +20,17 @@ import java.io.IOException;
 
 public class HtmlLineCommentListingStrategy extends HtmlListingStrategy
 {
-    private final Token tok;
-
-    public HtmlLineCommentListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-
     public boolean canOutputHtmlEndOfLine() {
         return true;  
     }
 
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s = "<span title=\"" +
-                         gdd.getLit( "COMMENT" ) +
-                         "\"><font color=\"green\">" +
-                         convertToHtmlText( tok.getContent() ) +
-                         "</font></span>" +
-                         "<br>" ;
-        return s;        
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        out.append( "<span title=\"" );
+        out.append( gdd.getLit( "COMMENT" ));
+        out.append( "\"><font color=\"green\">" );
+        out.appendEscaped( tok.getContent() );
+        out.append( "</font></span>" );
+        out.append( "<br>" );
     }
 }
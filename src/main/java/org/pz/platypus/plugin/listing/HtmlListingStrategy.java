@@ -14,68 +14,79 @@ import org.pz.platypus.TokenType;
 import java.io.IOException;
 import java.util.logging.Logger;
 
-/** The strategy base class.
+/** The strategy base class. The strategies keep no state, so there is one of each, and
+ * the one for a token is found by the token's type.
  *
  * @author ask
  */
 public abstract class HtmlListingStrategy
 {
+    private static final HtmlListingStrategy CR_STRATEGY = new HtmlCRListingStrategy();
+    private static final HtmlListingStrategy LINE_BREAK_STRATEGY = new HtmlLineBreakStrategy();
+
+    /** the strategy for each token type, by the type's ordinal; null if the type has none */
+    private static final HtmlListingStrategy[] STRATEGIES =
+            new HtmlListingStrategy[TokenType.values().length];
+
+    static {
+        final HtmlListingStrategy command = new HtmlCommandListingStrategy();
+        STRATEGIES[TokenType.COMMAND.ordinal()] = command;
+        STRATEGIES[TokenType.REPLACED_COMMAND.ordinal()] = command;
+        STRATEGIES[TokenType.COMPOUND_COMMAND.ordinal()] = new HtmlCompoundCommandListingStrategy();
+        STRATEGIES[TokenType.MACRO.ordinal()] = new HtmlMacroListingStrategy();
+        STRATEGIES[TokenType.LINE_COMMENT.ordinal()] = new HtmlLineCommentListingStrategy();
+        STRATEGIES[TokenType.BLOCK_COMMENT.ordinal()] = new HtmlBlockCommentListingStrategy();
+        STRATEGIES[TokenType.SYMBOL.ordinal()] = new HtmlSymbolListingStrategy();
+        STRATEGIES[TokenType.TEXT.ordinal()] = new HtmlTextListingStrategy();
+    }
+
     protected Logger logger;
 
-    public abstract String format(Token tok, GDD gdd) throws IOException;
+    /**
+     * Appends the HTML for a token to the output
+     *
+     * @param tok the token
+     * @param gdd the GDD. Only the literals are used
+     * @param out the output
+     * @throws IOException if the output can't be written
+     */
+    public abstract void format( Token tok, GDD gdd, ListingWriter out ) throws IOException;
     public abstract boolean canOutputHtmlEndOfLine();
 
     /**
-     * The "factory method" for creating the correct Strategy instance.
+     * Finds the Strategy instance for a token.
      * Ideally, this would be the only "switching on types" code.
      *
      * @param tok token that is to be processed
      * @return The strategy object encapsulating the processing algorithm.
      */
-    public static HtmlListingStrategy getFormatStrategy(Token tok) {
-
-        if (tok.getContent().equals("[cr]" )) {
-            return new HtmlCRListingStrategy(tok);
-        }
-        else if ( tok.getContent().endsWith( "[]" ) ) {
-            return new HtmlLineBreakStrategy(tok);
-        }
-        else if ( tok.getType().equals( TokenType.COMMAND ) ||
-             tok.getType().equals( TokenType.REPLACED_COMMAND )) {
-            return new HtmlCommandListingStrategy(tok);
-        }
-        else if ( tok.getType().equals( TokenType.COMPOUND_COMMAND )) {
-            return new HtmlCompoundCommandListingStrategy(tok);
-        }
-        else if ( tok.getType().equals( TokenType.MACRO )) {
-            return new HtmlMacroListingStrategy(tok);
-        }
-        else if ( tok.getType().equals( TokenType.LINE_COMMENT )) {
-            return new HtmlLineCommentListingStrategy(tok);
-        }
-        else if ( tok.getType().equals( TokenType.BLOCK_COMMENT )) {
-            return new HtmlBlockCommentListingStrategy(tok);
-        }
-        else if ( tok.getType().equals( TokenType.SYMBOL )) {
-            return new HtmlSymbolListingStrategy(tok);
+    public static HtmlListingStrategy getFormatStrategy( final Token tok )
+    {
+        final String content = tok.getContent();
+        if( content != null ) {
+            if( content.equals( "[cr]" )) {
+                return( CR_STRATEGY );
+            }
+            if( content.endsWith( "[]" )) {
+                return( LINE_BREAK_STRATEGY );
+            }
         }
-        else if ( tok.getType().equals( TokenType.TEXT )) {
-            return new HtmlTextListingStrategy(tok);
+
+        final HtmlListingStrategy strategy = STRATEGIES[tok.getType().ordinal()];
+        if( strategy == null ) {
+            throw new IllegalArgumentException( "Html Listing Strategy not supported for " + tok.getType() );
         }
-        throw new IllegalArgumentException( "Html Listing Strategy not supported for " + tok.getType() );
-        // return null;
+        return( strategy );
     }
 
     /**
-     * Utility method used by subclasses.
+     * Utility method.
      * Replaces reserved HTML characters to make text printable
      * @param text text to transform
      * @return text string with the transformation applied
      */
     public static String convertToHtmlText( final String text )
     {
-        char c;
-
         if( text == null || text.isEmpty() ) {
             return( "" );
         }
@@ -84,17 +95,13 @@ public abstract class HtmlListingStrategy
 
         for( int i = 0; i < text.length(); i++ )
         {
-            switch( c = text.charAt( i ))
-            {
-                case '<':   sb.append( "&lt;" );    break;
-                case '>':   sb.append( "&gt;" );    break;
-                case '(':   sb.append( "&#40;" );   break;
-                case ')':   sb.append( "&#41;" );   break;
-                case '"':   sb.append( "&quot;" );  break;
-                case '\'':  sb.append( "&#39;" );   break;
-                case '&':   sb.append( "&amp;" );   break;
-                case '#':   sb.append( "&#35;" );   break;
-                default:    sb.append( c );         break;
+            final char c = text.charAt( i );
+            final String escape = ListingWriter.escapeOf( c );
+            if( escape != null ) {
+                sb.append( escape );
+            }
+            else {
+                sb.append( c );
             }
         }
         return( sb.toString() );
@@ -20,22 +20,17 @@ import java.io.IOException;
 
 public class HtmlMacroListingStrategy extends HtmlListingStrategy
 {
-    private final Token tok;
-
-    public HtmlMacroListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-
     public boolean canOutputHtmlEndOfLine() {
         return false;  
     }
 
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s = "<span title=\"" +
-                         gdd.getLit( "MACRO" ) +
-                         "\"><font color=\"brown\"><b>" +
-                         convertToHtmlText( tok.getContent() ) +
-                         "</b></font></span>";
-        return s;        
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        out.append( "<span title=\"" );
+        out.append( gdd.getLit( "MACRO" ));
+        out.append( "\"><font color=\"brown\"><b>" );
+        // a macro token has no content, only the root: the macro in brackets
+        out.appendEscaped( tok.getContent() != null ? tok.getContent() : tok.getRoot() );
+        out.append( "</b></font></span>" );
     }
 }
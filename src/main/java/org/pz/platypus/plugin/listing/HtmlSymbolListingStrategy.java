@@ -20,23 +20,16 @@ import java.io.IOException;
 
 public class HtmlSymbolListingStrategy extends HtmlListingStrategy
 {
-
-    private final Token tok;
-
-    public HtmlSymbolListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-    
     public boolean canOutputHtmlEndOfLine() {
         return false;  
     }
 
-    public String format(Token tok, GDD gdd) throws IOException {
-        final String s = "<span title=\"" +
-                         gdd.getLit( "SYMBOL" ) +
-                         "\"><font color=\"blue\">" + "<b>" +
-                         convertToHtmlText( tok.getContent() ) +
-                         "</b></font></span>";
-        return s;
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        out.append( "<span title=\"" );
+        out.append( gdd.getLit( "SYMBOL" ));
+        out.append( "\"><font color=\"blue\"><b>" );
+        out.appendEscaped( tok.getContent() );
+        out.append( "</b></font></span>" );
     }
 }
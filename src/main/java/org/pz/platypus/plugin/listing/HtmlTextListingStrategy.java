@@ -20,17 +20,12 @@ import java.io.IOException;
 
 public class HtmlTextListingStrategy extends HtmlListingStrategy
 {
-    private final Token tok;
-
-    public HtmlTextListingStrategy(Token tok) {
-        this.tok = tok;
-    }
-
     public boolean canOutputHtmlEndOfLine() {
         return false;  
     }
 
-    public String format(Token tok, GDD gdd) throws IOException {
-        return convertToHtmlText( tok.getContent() );
+    public void format( final Token tok, final GDD gdd, final ListingWriter out ) throws IOException
+    {
+        out.appendEscaped( tok.getContent() );
     }
 }
@@ -0,0 +1,150 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.listing;
+
+import org.pz.platypus.plugin.common.HtmlEntities;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The output of the listing plugin: an append-only char buffer in front of the output
+ * file, which is written to the file only when it fills up and on flush(). The strategies
+ * append their HTML to it directly, and text is escaped into it in one pass, so the
+ * formatting of a token creates no intermediate strings.
+ *
+ * In code sections (between [code] and [-code]), spaces in the text are written as
+ * hard spaces, so that the indentation of the code is kept.
+ *
+ * @author alb
+ */
+public final class ListingWriter
+{
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    /** the HTML for the reserved chars, by char; null for chars that are written as is */
+    private static final String[] ESCAPES = HtmlEntities.createTable();
+
+    /** the same, with hard spaces, for code sections */
+    private static final String[] CODE_ESCAPES = new String[HtmlEntities.TABLE_SIZE];
+
+    static {
+        ESCAPES['(']  = "&#40;";
+        ESCAPES[')']  = "&#41;";
+        ESCAPES['#']  = "&#35;";
+
+        System.arraycopy( ESCAPES, 0, CODE_ESCAPES, 0, ESCAPES.length );
+        CODE_ESCAPES[' '] = "&nbsp;";
+    }
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count = 0;
+
+    private String[] escapes = ESCAPES;
+
+    /**
+     * @param outfile the file the listing is written to
+     */
+    public ListingWriter( final Writer outfile )
+    {
+        out = outfile;
+    }
+
+    /**
+     * Gets the HTML for a char that is reserved in HTML
+     *
+     * @param c the char
+     * @return the HTML for it, or null if the char can be written as is
+     */
+    static String escapeOf( final char c )
+    {
+        return( c < ESCAPES.length ? ESCAPES[c] : null );
+    }
+
+    /**
+     * Appends HTML (or any string that needs no escaping)
+     *
+     * @param html the string to append
+     * @throws IOException if the buffer had to be written and could not be
+     */
+    public void append( final String html ) throws IOException
+    {
+        append( html, 0, html.length() );
+    }
+
+    /**
+     * Appends part of a string, without escaping it
+     *
+     * @param s the string
+     * @param from the index of the first char to append
+     * @param to the index after the last char to append
+     * @throws IOException if the buffer had to be written and could not be
+     */
+    public void append( final String s, int from, final int to ) throws IOException
+    {
+        while( from < to ) {
+            if( count == buffer.length ) {
+                flush();
+            }
+            final int end = Math.min( to, from + buffer.length - count );
+            s.getChars( from, end, buffer, count );
+            count += end - from;
+            from = end;
+        }
+    }
+
+    /**
+     * Appends text, replacing the chars that are reserved in HTML (and, in code sections,
+     * the spaces) with their HTML entities. The runs of chars between them are copied as is.
+     *
+     * @param text the text to append; null appends nothing
+     * @throws IOException if the buffer had to be written and could not be
+     */
+    public void appendEscaped( final String text ) throws IOException
+    {
+        if( text == null ) {
+            return;
+        }
+
+        final String[] table = escapes;
+        final int length = text.length();
+        int start = 0;
+        for( int i = 0; i < length; i++ ) {
+            final char c = text.charAt( i );
+            if( c < table.length && table[c] != null ) {
+                append( text, start, i );
+                append( table[c] );
+                start = i + 1;
+            }
+        }
+        append( text, start, length );
+    }
+
+    /**
+     * Writes the buffered HTML to the output file
+     *
+     * @throws IOException if the file can't be written to
+     */
+    public void flush() throws IOException
+    {
+        if( count > 0 ) {
+            out.write( buffer, 0, count );
+            count = 0;
+        }
+    }
+
+    /**
+     * @param inCode true if the text appended next is in a code section, so its spaces
+     *               are to be written as hard spaces
+     */
+    public void setHardSpaces( final boolean inCode )
+    {
+        escapes = inCode ? CODE_ESCAPES : ESCAPES;
+    }
+}
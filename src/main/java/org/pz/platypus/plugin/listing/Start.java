@@ -90,7 +90,8 @@ public class Start implements IPlugin
     }
 
     /**
-     * Where the content of the listing file is written out
+     * Where the content of the listing file is written out. The HTML is built up in a
+     * ListingWriter, which writes it to the file in large blocks.
      *
      * @param outfile the file being written to
      * @param gdd the GDD. Only the literals are used
@@ -102,76 +103,67 @@ public class Start implements IPlugin
         Token tok;
         int lineNumber = 0;
 
-        final TokenList tokensList = gdd.getInputTokens();
-        for( int i = 0; i < tokensList.size(); i++ ) {
-            tok = tokensList.get( i );
+        final ListingWriter out = new ListingWriter( outfile );
+        try {
+            final TokenList tokensList = gdd.getInputTokens();
+            for( int i = 0; i < tokensList.size(); i++ ) {
+                tok = tokensList.get( i );
 
-            if(isItANewHtmlLine(tok, lineNumber))
-                lineNumber = startANewHtmlLine(outfile, gdd, tok);
+                if(isItANewHtmlLine(tok, lineNumber))
+                    lineNumber = startANewHtmlLine(out, tok);
 
-            if (skipThisToken(tok, tokensList, i))
-                continue;
+                if (skipThisToken(tok, tokensList, i))
+                    continue;
 
-            i += skipNextTokens(i, tok, tokensList);
+                i += skipNextTokens(i, tok, tokensList);
 
-            printToken(outfile, gdd, tok);
+                printToken(out, gdd, tok);
+            }
+            out.flush();
+        }
+        catch( IOException ioe ) {
+            logger.severe( gdd.getLit( "ERROR.WRITING_TO_OUTPUT_FILE" ));
+            throw new IOException();
         }
     }
 
     /**
      * Print the token contents with all the Html bells and whistles
      * (colors, bold fonts, line breaks etc.)
-     * Get the Html string and output it to the output file.
-     * @param outfile
+     * In code sections, the spaces in the token's text are made hard spaces, except in
+     * the [code] and [-code] commands themselves.
+     * @param out the output
      * @param gdd
      * @param tok
      * @throws IOException
      */
-    private void printToken(FileWriter outfile, GDD gdd, Token tok) throws IOException {
-        HtmlListingStrategy strategy = HtmlListingStrategy.getFormatStrategy( tok );
-        String s = strategy.format(tok, gdd);
-        if (s.indexOf("[code]") != -1) {
+    private void printToken(ListingWriter out, GDD gdd, Token tok) throws IOException {
+        final HtmlListingStrategy strategy = HtmlListingStrategy.getFormatStrategy( tok );
+        final String content = tok.getContent();
+        if ( content != null && content.indexOf("[code]") != -1 ) {
             inCode = true;
-            writeIt(outfile, gdd, strategy, s); // do not process whitespace(s)
-            return;                             // in front of [code] command itself
-        } else if (s.indexOf("[-code]") != -1) {
+            out.setHardSpaces( false );
+        } else if ( content != null && content.indexOf("[-code]") != -1 ) {
             inCode = false;
+            out.setHardSpaces( false );
+        } else {
+            out.setHardSpaces( inCode );
         }
-        if (inCode) {
-            s = makeInitialSpacesHard(s);
-        }
-        writeIt(outfile, gdd, strategy, s);
-    }
 
-    private void writeIt(FileWriter outfile, GDD gdd, HtmlListingStrategy strategy, String s) throws IOException {
-        writeStringToFile(outfile, gdd, s);
+        strategy.format( tok, gdd, out );
         if (strategy.canOutputHtmlEndOfLine())
-            outfile.write( "</li>\n" );
-    }
-
-    private String makeInitialSpacesHard(String s) {
-        StringBuilder sb = new StringBuilder();
-        for ( int i = 0; i < s.length(); ++i ) {
-            char ch = s.charAt(i);
-            if ( ch == ' ') {
-                sb.append("&nbsp;");
-            } else {
-                sb.append(ch);
-            }
-        }
-        return sb.toString();
+            out.append( "</li>\n" );
     }
 
     /**
      * Start a new Html line. This amounts to outputting an Html <li> token.
-     * @param outfile
-     * @param gdd
+     * @param out the output
      * @param tok
      * @return the new / next line number.
      * @throws IOException
      */
-    private int startANewHtmlLine(FileWriter outfile, GDD gdd, Token tok) throws IOException {
-        writeStringToFile(outfile, gdd, "<li>");
+    private int startANewHtmlLine(ListingWriter out, Token tok) throws IOException {
+        out.append( "<li>" );
         int lineNumber = tok.getSource().getLineNumber();
         return lineNumber;
     }
@@ -223,7 +215,7 @@ public class Start implements IPlugin
      */
     private int skipNextTokens( int currTokIndex, Token tok, TokenList tokensList ) throws IOException
     {
-        if ( tok.getContent().endsWith( "[]" )) {
+        if ( tok.getContent() != null && tok.getContent().endsWith( "[]" )) {
             if ( tokensList.areNextTokenContentsEqualTo(currTokIndex, "[cr]") )
                 return 1;                
         }
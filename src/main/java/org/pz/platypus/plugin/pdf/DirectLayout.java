@@ -0,0 +1,553 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.pdf;
+
+import com.lowagie.text.Chunk;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfTextArray;
+
+import java.awt.Color;
+import java.util.IdentityHashMap;
+
+/**
+ * Lays out simple paragraphs by breaking the lines itself and writing them directly to the
+ * page's PdfContentByte, rather than going through iText's ColumnText. It's used by
+ * PdfOutfile when pi.out.pdf.direct_layout=yes.
+ *
+ * A simple paragraph is plain text: chunks with no attributes (so no underlining,
+ * strikethrough, links, images, etc.) in fonts that iText does not simulate bold or italics
+ * for, and with no spacing before or after it. load() checks this; any other paragraph is
+ * laid out by ColumnText as before.
+ *
+ * The lines are broken at the same places and positioned the same way as ColumnText does
+ * it, so that documents look the same either way. The advance widths of the chars are
+ * looked up once per font and cached, and each paragraph's text is gathered into one
+ * char array, so breaking a line does not allocate.
+ *
+ * @author alb
+ */
+class DirectLayout
+{
+    /** chars below this have their widths cached per font */
+    static final int CACHED_CHARS = 0x800;
+
+    /** punctuation that hangs partly into the right margin of a justified line, as in iText */
+    static final String HANGING_PUNCTUATION = ".,;:'";
+
+    /** ratio of the extra space added to spaces, vs. other chars, in a justified line */
+    private final float spaceCharRatio;
+
+    /** the advance widths, in thousandths of an em, of the chars below CACHED_CHARS */
+    private final IdentityHashMap<BaseFont, int[]> widthCache = new IdentityHashMap<BaseFont, int[]>();
+
+    /** the paragraph's text, and the width in points and the run of each char */
+    private char[] text = new char[256];
+    private float[] widths = new float[256];
+    private int[] runOf = new int[256];
+    private int textLength;
+
+    /** the runs: consecutive text in the same font, size, and color */
+    private BaseFont[] runFonts = new BaseFont[16];
+    private float[] runSizes = new float[16];
+    private Color[] runColors = new Color[16];
+    private int runCount;
+
+    /** the paragraph's settings */
+    private int alignment;
+    private float leading;
+    private float indentLeft;
+    private float firstIndent;
+    private float indentRight;
+
+    /** the line-breaking state: the current segment (text up to a newline) and position */
+    private int segmentEnd;
+    private int nextSegment;
+    private int position;
+    private boolean lastWasNewline;
+
+    /** the line last broken off by breakLine() */
+    private int lineStart;
+    private int lineEnd;
+    private float lineWidthLeft;
+    private boolean lineNewlineSplit;
+    private float lineX;
+
+    /** the char spacing of the last justified line in this column, as iText keeps it */
+    private float lastCharSpacing;
+
+    /**
+     * @param spaceCharRatio the writer's space-char ratio, used to justify lines
+     */
+    DirectLayout( final float spaceCharRatio )
+    {
+        this.spaceCharRatio = spaceCharRatio;
+    }
+
+    /**
+     * Loads a paragraph to be laid out, if it's simple enough.
+     *
+     * @param para the paragraph
+     * @return true if the paragraph was loaded; false if it must be laid out by ColumnText
+     */
+    boolean load( final Paragraph para )
+    {
+        if( para.getSpacingBefore() != 0f || para.getSpacingAfter() != 0f ||
+            para.getExtraParagraphSpace() != 0f || para.getKeepTogether() ||
+            para.getMultipliedLeading() != 0f || para.getLeading() <= 0f ) {
+            return( false );
+        }
+
+        switch( para.getAlignment() ) {
+            case Element.ALIGN_UNDEFINED:
+            case Element.ALIGN_LEFT:
+            case Element.ALIGN_CENTER:
+            case Element.ALIGN_RIGHT:
+            case Element.ALIGN_JUSTIFIED:
+                break;
+            default:
+                return( false );
+        }
+
+        textLength = 0;
+        runCount = 0;
+        for( Object element : para ) {
+            if( ! ( element instanceof Chunk ) || ! loadChunk( (Chunk) element )) {
+                return( false );
+            }
+        }
+
+        alignment = para.getAlignment();
+        leading = para.getLeading();
+        indentLeft = para.getIndentationLeft();
+        firstIndent = para.getIndentationLeft() + para.getFirstLineIndent();
+        indentRight = para.getIndentationRight();
+
+        segmentEnd = 0;
+        nextSegment = 0;
+        position = 0;
+        lastWasNewline = true;
+        lastCharSpacing = 0f;
+        return( true );
+    }
+
+    /**
+     * Adds a chunk's text to the paragraph's text.
+     *
+     * @param chunk the chunk
+     * @return false if the chunk can't be laid out here
+     */
+    private boolean loadChunk( final Chunk chunk )
+    {
+        if( chunk.hasAttributes() ) {
+            return( false );
+        }
+
+        // the font as iText's PdfChunk works it out: it simulates bold and italics when
+        // they're asked for in a font that has a BaseFont, and draws underlines itself
+        final Font font = chunk.getFont();
+        int style = font.getStyle();
+        if( style == Font.UNDEFINED ) {
+            style = Font.NORMAL;
+        }
+        if(( style & ( Font.UNDERLINE | Font.STRIKETHRU )) != 0 ) {
+            return( false );
+        }
+
+        BaseFont bf = font.getBaseFont();
+        if( bf == null ) {
+            bf = font.getCalculatedBaseFont( false );
+        }
+        else
+        if(( style & Font.BOLDITALIC ) != 0 ) {
+            return( false );
+        }
+        if( bf.getFontType() == BaseFont.FONT_TYPE_CJK || bf.getFontType() == BaseFont.FONT_TYPE_T3 ) {
+            return( false );
+        }
+
+        final float size = font.getCalculatedSize();
+        final int run = findRun( bf, size, font.getColor() );
+        final int[] fontWidths = getWidths( bf );
+
+        final String content = chunk.getContent();
+        ensureCapacity( textLength + content.length() );
+        for( int i = 0; i < content.length(); i++ ) {
+            final char c = content.charAt( i );
+            if(( c >= 0xd800 && c <= 0xdfff ) || c == '\r' ||
+               ( c >= 0x200b && c <= 0x200f ) || ( c >= 0x202a && c <= 0x202e )) {
+                return( false );    // surrogates and the chars iText doesn't print
+            }
+
+            final int w = ( c < CACHED_CHARS ? fontWidths[c] : bf.getWidth( c ));
+            text[textLength] = c;
+            widths[textLength] = w * 0.001f * size;
+            runOf[textLength] = run;
+            textLength++;
+        }
+        return( true );
+    }
+
+    /**
+     * Finds the run for text in a font, size, and color: the last run if it's the same,
+     * or else a new run.
+     */
+    private int findRun( final BaseFont bf, final float size, final Color color )
+    {
+        if( runCount > 0 ) {
+            final int last = runCount - 1;
+            if( runFonts[last] == bf && runSizes[last] == size &&
+                ( color == null ? runColors[last] == null : color.equals( runColors[last] ))) {
+                return( last );
+            }
+        }
+
+        if( runCount == runFonts.length ) {
+            final BaseFont[] fonts = new BaseFont[runCount * 2];
+            final float[] sizes = new float[runCount * 2];
+            final Color[] colors = new Color[runCount * 2];
+            System.arraycopy( runFonts, 0, fonts, 0, runCount );
+            System.arraycopy( runSizes, 0, sizes, 0, runCount );
+            System.arraycopy( runColors, 0, colors, 0, runCount );
+            runFonts = fonts;
+            runSizes = sizes;
+            runColors = colors;
+        }
+
+        runFonts[runCount] = bf;
+        runSizes[runCount] = size;
+        runColors[runCount] = color;
+        return( runCount++ );
+    }
+
+    /**
+     * Gets the cached advance widths of a font's chars below CACHED_CHARS, creating them
+     * the first time the font is used.
+     */
+    int[] getWidths( final BaseFont bf )
+    {
+        int[] fontWidths = widthCache.get( bf );
+        if( fontWidths == null ) {
+            fontWidths = new int[CACHED_CHARS];
+            for( int c = 0; c < CACHED_CHARS; c++ ) {
+                fontWidths[c] = bf.getWidth( c );
+            }
+            widthCache.put( bf, fontWidths );
+        }
+        return( fontWidths );
+    }
+
+    private void ensureCapacity( final int length )
+    {
+        if( length > text.length ) {
+            final int capacity = Math.max( length, text.length * 2 );
+            final char[] newText = new char[capacity];
+            final float[] newWidths = new float[capacity];
+            final int[] newRunOf = new int[capacity];
+            System.arraycopy( text, 0, newText, 0, textLength );
+            System.arraycopy( widths, 0, newWidths, 0, textLength );
+            System.arraycopy( runOf, 0, newRunOf, 0, textLength );
+            text = newText;
+            widths = newWidths;
+            runOf = newRunOf;
+        }
+    }
+
+    /**
+     * Called when the paragraph goes on to a new column, where iText starts the spacing of
+     * justified lines afresh
+     */
+    void startColumn()
+    {
+        lastCharSpacing = 0f;
+    }
+
+    /**
+     * @return the leading of the loaded paragraph
+     */
+    float getLeading()
+    {
+        return( leading );
+    }
+
+    /**
+     * @return true if the loaded paragraph has lines that have not yet been broken off
+     */
+    boolean hasMoreLines()
+    {
+        return( position < segmentEnd || nextSegment < textLength );
+    }
+
+    /**
+     * Breaks off the next line of the paragraph, to fit in a column with the given edges.
+     * The paragraph's text is split into segments at the newlines, without their trailing
+     * spaces; each segment starts a new line, which has the first-line indent. As in
+     * iText, a line is broken at the last split char (a space, hyphen, etc.) that fits,
+     * trailing spaces are dropped, and the leading spaces of the following line are
+     * skipped. If not even one char fits, the line has the one char.
+     *
+     * @param left the left edge of the column
+     * @param right the right edge of the column
+     */
+    void breakLine( final float left, final float right )
+    {
+        final float indent = ( lastWasNewline ? firstIndent : indentLeft );
+        final float width = right - left - indent - indentRight;
+        int segmentStart = position;
+
+        if( position >= segmentEnd ) {
+            segmentStart = nextSegment;
+            segmentEnd = segmentStart;
+            while( segmentEnd < textLength && text[segmentEnd] != '\n' ) {
+                segmentEnd++;
+            }
+            nextSegment = segmentEnd + 1;
+            while( segmentEnd > segmentStart && text[segmentEnd - 1] <= ' ' ) {
+                segmentEnd--;
+            }
+            position = segmentStart;
+
+            if( segmentStart == segmentEnd ) {
+                setLine( segmentStart, segmentStart - 1, 0f, true, left + indent, segmentEnd );
+                return;
+            }
+        }
+        else {
+            while( position < segmentEnd && text[position] <= ' ' ) {
+                position++;
+            }
+        }
+
+        final int start = position;
+        float widthLeft = width;
+        int lastSplit = -1;
+        int i = start;
+        for( ; i < segmentEnd; i++ ) {
+            final char c = text[i];
+            final float charWidth = widths[i];
+            final boolean split = isSplitChar( c );
+            if( split && Character.isWhitespace( c )) {
+                lastSplit = i;
+            }
+            if( widthLeft - charWidth < 0f ) {
+                break;
+            }
+            if( split ) {
+                lastSplit = i;
+            }
+            widthLeft -= charWidth;
+        }
+
+        if( i == start ) {
+            // nothing fit (or only spaces were left): the line has the next char, if any
+            final int end = ( start < segmentEnd ? start : start - 1 );
+            setLine( start, end, 0f, false, left + indent, start + 1 );
+            return;
+        }
+
+        if( i >= segmentEnd ) {
+            setLine( start, segmentEnd - 1, widthLeft, true, left + indent, segmentEnd );
+            return;
+        }
+
+        int end = trimRight( start, i - 1 );
+        if( end < start ) {
+            setLine( start, i - 1, widthLeft, false, left + indent, i );
+        }
+        else
+        if( lastSplit == -1 || lastSplit >= end ) {
+            setLine( start, end, widthLeft + sumWidths( end + 1, i - 1 ), false, left + indent, i );
+        }
+        else {
+            end = trimRight( start, lastSplit );
+            if( end < start ) {
+                end = lastSplit;
+            }
+            setLine( start, end, width - sumWidths( start, end ), false, left + indent, lastSplit + 1 );
+        }
+    }
+
+    /**
+     * Records the line just broken off, and where the next one starts.
+     */
+    private void setLine( final int start, final int end, final float widthLeft,
+                          final boolean newlineSplit, final float x, final int next )
+    {
+        lineStart = start;
+        lineEnd = end;
+        lineWidthLeft = widthLeft;
+        lineNewlineSplit = newlineSplit;
+        position = next;
+        lastWasNewline = newlineSplit;
+
+        if( alignment == Element.ALIGN_RIGHT ) {
+            lineX = x + widthLeft;
+        }
+        else
+        if( alignment == Element.ALIGN_CENTER ) {
+            lineX = x + widthLeft / 2;
+        }
+        else {
+            lineX = x;
+        }
+    }
+
+    /**
+     * Can a line be broken after this char? The same chars as iText's DefaultSplitCharacter.
+     */
+    static boolean isSplitChar( final char c )
+    {
+        if( c <= ' ' || c == '-' || c == '\u2010' ) {
+            return( true );
+        }
+        if( c < 0x2002 ) {
+            return( false );
+        }
+        return(( c >= 0x2002 && c <= 0x200b ) ||
+               ( c >= 0x2e80 && c < 0xd7a0 ) ||
+               ( c >= 0xf900 && c < 0xfb00 ) ||
+               ( c >= 0xfe30 && c < 0xfe50 ) ||
+               ( c >= 0xff61 && c < 0xffa0 ));
+    }
+
+    private int trimRight( final int start, final int end )
+    {
+        int i = end;
+        while( i >= start && text[i] <= ' ' ) {
+            i--;
+        }
+        return( i );
+    }
+
+    private float sumWidths( final int start, final int end )
+    {
+        float sum = 0f;
+        for( int i = start; i <= end; i++ ) {
+            sum += widths[i];
+        }
+        return( sum );
+    }
+
+    /**
+     * Writes the line last broken off to the page, with its baseline at y. Justified lines
+     * are spread out with the character and word spacing, as iText does it.
+     *
+     * @param cb the page's content
+     * @param y the baseline
+     */
+    void writeLine( final PdfContentByte cb, final float y )
+    {
+        if( lineEnd < lineStart ) {
+            return;
+        }
+
+        int spaces = 0;
+        for( int i = lineStart; i <= lineEnd; i++ ) {
+            if( text[i] == ' ' ) {
+                spaces++;
+            }
+        }
+        final int length = lineEnd - lineStart + 1;
+        final boolean justified = alignment == Element.ALIGN_JUSTIFIED &&
+                                  lineWidthLeft != 0f && ( spaces != 0 || length > 1 );
+
+        cb.saveState();
+        cb.beginText();
+        cb.setTextMatrix( lineX, y );
+
+        float wordSpacing = 0f;
+        if( justified ) {
+            // the last line of a segment keeps the spacing of the line before, unless it's
+            // too long for that, in which case it's justified like the other lines
+            final float slots = spaceCharRatio * spaces + length - 1;
+            float charSpacing = lastCharSpacing;
+            if( ! lineNewlineSplit || lineWidthLeft < lastCharSpacing * slots ) {
+                float width = lineWidthLeft;
+                if( HANGING_PUNCTUATION.indexOf( text[lineEnd] ) >= 0 ) {
+                    width += widths[lineEnd] * 0.4f;
+                }
+                charSpacing = width / slots;
+                lastCharSpacing = charSpacing;
+            }
+            if( lineNewlineSplit ) {
+                lastCharSpacing = 0f;
+            }
+
+            wordSpacing = spaceCharRatio * charSpacing;
+            cb.setWordSpacing( wordSpacing );
+            cb.setCharacterSpacing( charSpacing );
+        }
+
+        Color color = null;
+        int i = lineStart;
+        while( i <= lineEnd ) {
+            final int run = runOf[i];
+            int end = i + 1;
+            while( end <= lineEnd && runOf[end] == run ) {
+                end++;
+            }
+
+            final BaseFont bf = runFonts[run];
+            cb.setFontAndSize( bf, runSizes[run] );
+            if( runColors[run] != null && ! runColors[run].equals( color )) {
+                color = runColors[run];
+                cb.setColorFill( color );
+            }
+
+            final String s = new String( text, i, end - i );
+            if( justified && BaseFont.IDENTITY_H.equals( bf.getEncoding() ) && s.indexOf( ' ' ) >= 0 ) {
+                // word spacing applies only to single-byte spaces, so it's done explicitly
+                cb.showText( spreadWords( s, -wordSpacing * 1000f / runSizes[run] ));
+            }
+            else {
+                cb.showText( s );
+            }
+            i = end;
+        }
+
+        cb.endText();
+        cb.restoreState();
+    }
+
+    /**
+     * Splits text before each of its spaces, with the extra word spacing put between
+     */
+    private static PdfTextArray spreadWords( final String s, final float adjustment )
+    {
+        int space = s.indexOf( ' ' );
+        final PdfTextArray words = new PdfTextArray( s.substring( 0, space ));
+        int from = space;
+        while(( space = s.indexOf( ' ', from + 1 )) >= 0 ) {
+            words.add( adjustment );
+            words.add( s.substring( from, space ));
+            from = space;
+        }
+        words.add( adjustment );
+        words.add( s.substring( from ));
+        return( words );
+    }
+
+    /**
+     * @return the text of the line last broken off
+     */
+    String getLineText()
+    {
+        return( lineEnd < lineStart ? "" : new String( text, lineStart, lineEnd - lineStart + 1 ));
+    }
+
+    /**
+     * @return the x position of the line last broken off
+     */
+    float getLineX()
+    {
+        return( lineX );
+    }
+}
@@ -7,11 +7,14 @@
 
 package org.pz.platypus.plugin.pdf;
 
+import org.pz.platypus.CommandIds;
 import org.pz.platypus.GDD;
+import org.pz.platypus.Token;
 import org.pz.platypus.interfaces.ICommandTable;
 import org.pz.platypus.interfaces.IOutputCommand;
 import org.pz.platypus.plugin.pdf.commands.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.MissingResourceException;
 import java.util.Set;
@@ -29,9 +32,13 @@ public class PdfCommandTable  implements ICommandTable
     /** the hashtable into which the commands are loaded */
     private HashMap<String, IOutputCommand> commandTable;
 
+    /** the same commands, indexed by the id of their root in CommandIds */
+    private IOutputCommand[] commandsById;
+
     public PdfCommandTable()
     {
         commandTable = new HashMap<String, IOutputCommand>( 300 );
+        commandsById = new IOutputCommand[CommandIds.getCount()];
     }
 
     /**
@@ -111,7 +118,7 @@ public class PdfCommandTable  implements ICommandTable
     public void loadSymbols( final GDD gdd )
     {
         try {
-            PdfSymbolsTable pst = new PdfSymbolsTable( gdd );
+            PdfSymbolsTable pst = getSymbolsTable( gdd );
             Set<String> symbols = pst.keySet();
             for( String symbol : symbols ) {
                 add( new PdfSymbol( symbol, pst.getPropertyFile().lookup( symbol )));
@@ -124,6 +131,27 @@ public class PdfCommandTable  implements ICommandTable
         }
     }
 
+    /**
+     * Gets the table of PDF symbols. It's loaded from the symbols file once, and then
+     * kept in the GDD's shared tables for any other documents converted in this run.
+     *
+     * @param gdd the global document data
+     * @return the symbols table
+     */
+    PdfSymbolsTable getSymbolsTable( final GDD gdd )
+    {
+        final String tableName = "PdfSymbolsTable." + gdd.getOutputPluginPrefix();
+
+        PdfSymbolsTable pst = (PdfSymbolsTable) gdd.getSharedTables().get( tableName );
+        if( pst == null ) {
+            pst = new PdfSymbolsTable( gdd );
+            if( pst.getPropertyFile() != null ) {
+                pst = (PdfSymbolsTable) gdd.getSharedTables().add( tableName, pst );
+            }
+        }
+        return( pst );
+    }
+
     /**
      * add a OutputCommandable item to the hash table, using its root as the key to the entry
      * @param entry to be added (either a command or a symbol)
@@ -131,6 +159,12 @@ public class PdfCommandTable  implements ICommandTable
     public void add( final IOutputCommand entry )
     {
         commandTable.put( entry.getRoot(), entry );
+
+        final int id = CommandIds.register( entry.getRoot() );
+        if( id >= commandsById.length ) {
+            commandsById = Arrays.copyOf( commandsById, Math.max( id + 1, CommandIds.getCount() ));
+        }
+        commandsById[id] = entry;
     }
 
     //=== getters and setters ===/
@@ -145,6 +179,20 @@ public class PdfCommandTable  implements ICommandTable
         return( commandTable.get( root ));
     }
 
+    /**
+     * Lookup the command for a token by the id of its root, which avoids hashing the root
+     * @param tok the command token
+     * @return the OutputCommandable class found, or null on error
+     */
+    public IOutputCommand getCommandFor( final Token tok )
+    {
+        final int id = tok.getCommandId();
+        if( id == CommandIds.NONE ) {
+            return( commandTable.get( tok.getRoot() ));
+        }
+        return( id < commandsById.length ? commandsById[id] : null );
+    }
+
     /**
      * How many entries in the table
      * @return number of entries
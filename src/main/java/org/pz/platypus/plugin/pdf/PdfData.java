@@ -34,6 +34,8 @@ public class PdfData extends DocData implements IOutputContext
     private boolean eolPending;
     private Value eolTreatment;
     private PdfFont font;
+    private PdfFontCache fontCache;
+    private PdfFontFactory fontFactory;
     private Footer footer;
     private FormatStack formatStack;
     private TypefaceMap typefaceMap;
@@ -51,6 +53,8 @@ public class PdfData extends DocData implements IOutputContext
         eolPending      = false;
         eolTreatment    = new Value( DefaultValues.EOL_TREATMENT );
 
+        fontCache       = new PdfFontCache();
+        fontFactory     = new PdfFontFactory( gdd, this );
         font            = new PdfFont( this );
         footer          = new Footer( this );
 
@@ -72,11 +76,20 @@ public class PdfData extends DocData implements IOutputContext
     }
 
     /**
-     * Load the typefaces from the fontlist into the typefaceMap.
+     * Load the typefaces from the fontlist into the typefaceMap. The map is loaded
+     * once and then kept in the GDD's shared tables for any other documents converted
+     * in this run.
      */
     public void loadTypefaceMap()
     {
-        typefaceMap.loadMapFromFile();
+        final String tableName = "TypefaceMap";
+
+        TypefaceMap sharedMap = (TypefaceMap) gdd.getSharedTables().get( tableName );
+        if( sharedMap == null ) {
+            typefaceMap.loadMapFromFile();
+            sharedMap = (TypefaceMap) gdd.getSharedTables().add( tableName, typefaceMap );
+        }
+        typefaceMap = sharedMap;
     }
 
 
@@ -190,6 +203,16 @@ public class PdfData extends DocData implements IOutputContext
         font.setSize( newSize, newSource );
     }
 
+    public PdfFontCache getFontCache()
+    {
+        return( fontCache );
+    }
+
+    public PdfFontFactory getFontFactory()
+    {
+        return( fontFactory );
+    }
+
     public Footer getFooter()
     {
         return( footer );
@@ -51,7 +51,7 @@ public class PdfFont implements Cloneable
     {
         pdfData = pdd;
         gdd = pdd.getGdd();
-        fontFactory = new PdfFontFactory( gdd, pdd );
+        fontFactory = pdd.getFontFactory();
 
         setToDefault();
     }
@@ -74,7 +74,7 @@ public class PdfFont implements Cloneable
         italics = existingFont.getItalics();
         source = existingFont.getSource();
 
-        fontFactory = new PdfFontFactory( gdd, pdd );
+        fontFactory = pdd.getFontFactory();
         iTfont = fontFactory.createItextFont( this );
     }
 
@@ -0,0 +1,182 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.pdf;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.FontSelector;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the iText fonts created for a PDF document. Creating an iText font is expensive
+ * (a registry lookup plus a FontFactory call), and fonts change constantly, as with
+ * [+b]...[-b], so fonts are looked up here by their attributes (face, size, bold, italics,
+ * color) and created only when not already present. Identical font states therefore share
+ * the same iText Font instance.
+ *
+ * The cache lives for one run of the PDF plugin and holds at most MAX_ENTRIES fonts,
+ * discarding the least-recently used one when full.
+ *
+ * @author alb
+ */
+public class PdfFontCache
+{
+    /** the most fonts the cache will hold */
+    static final int MAX_ENTRIES = 256;
+
+    /** the fonts, in least-recently used order */
+    private final LinkedHashMap<FontKey, Font> fonts;
+
+    /** FontSelectors for emitting single chars in a given font. See PdfOutfile.emitChar() */
+    private final IdentityHashMap<Font, FontSelector> selectors;
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public PdfFontCache()
+    {
+        fonts = new LinkedHashMap<FontKey, Font>( 64, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<FontKey, Font> eldest )
+            {
+                if( size() > MAX_ENTRIES ) {
+                    selectors.remove( eldest.getValue() );
+                    return( true );
+                }
+                return( false );
+            }
+        };
+
+        selectors = new IdentityHashMap<Font, FontSelector>();
+    }
+
+    /**
+     * Looks up the iText font for a set of font attributes.
+     *
+     * @param face the typeface name
+     * @param size the size in points
+     * @param bold bold on/off
+     * @param italics italics on/off
+     * @param color the RGB color value as an int: 0xRRGGBB
+     * @return the font, or null if it's not in the cache
+     */
+    public Font get( final String face, final float size, final boolean bold,
+                     final boolean italics, final int color )
+    {
+        Font font = fonts.get( new FontKey( face, size, bold, italics, color ));
+        if( font == null ) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return( font );
+    }
+
+    /**
+     * Adds an iText font to the cache under the given attributes.
+     *
+     * @param face the typeface name
+     * @param size the size in points
+     * @param bold bold on/off
+     * @param italics italics on/off
+     * @param color the RGB color value as an int: 0xRRGGBB
+     * @param font the iText font to add
+     */
+    public void put( final String face, final float size, final boolean bold,
+                     final boolean italics, final int color, final Font font )
+    {
+        if( font == null ) {
+            return;
+        }
+
+        fonts.put( new FontKey( face, size, bold, italics, color ), font );
+    }
+
+    /**
+     * Gets a FontSelector that uses only the specified iText font. FontSelectors hold no
+     * state between calls to process(), so one can be shared by every use of a font.
+     *
+     * @param font the iText font
+     * @return the FontSelector for this font
+     */
+    public FontSelector getFontSelector( final Font font )
+    {
+        FontSelector fs = selectors.get( font );
+        if( fs == null ) {
+            fs = new FontSelector();
+            fs.addFont( font );
+            selectors.put( font, fs );
+        }
+        return( fs );
+    }
+
+    //=== getters and setters ===
+
+    public int getHits()
+    {
+        return( hits );
+    }
+
+    public int getMisses()
+    {
+        return( misses );
+    }
+
+    public int getSize()
+    {
+        return( fonts.size() );
+    }
+
+    /**
+     * The key to the cache: all the attributes that go into creating an iText font.
+     */
+    static final class FontKey
+    {
+        private final String face;
+        private final float size;
+        private final boolean bold;
+        private final boolean italics;
+        private final int color;
+
+        FontKey( final String face, final float size, final boolean bold,
+                 final boolean italics, final int color )
+        {
+            this.face = ( face == null ? "" : face );
+            this.size = size;
+            this.bold = bold;
+            this.italics = italics;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if( ! ( o instanceof FontKey )) {
+                return( false );
+            }
+
+            FontKey k = (FontKey) o;
+            return( k.size == size && k.bold == bold && k.italics == italics &&
+                    k.color == color && k.face.equals( face ));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int h = face.hashCode();
+            h = 31 * h + Float.floatToIntBits( size );
+            h = 31 * h + color;
+            h = 31 * h + ( bold ? 1 : 0 );
+            h = 31 * h + ( italics ? 2 : 0 );
+            return( h );
+        }
+    }
+}
@@ -36,7 +36,9 @@ public class PdfFontFactory
     }
 
     /**
-     * Creates an iText Font object based on a passed-in PdfFont
+     * Gets the iText Font object for a passed-in PdfFont. If a font with the same
+     * attributes was previously created in this document, that same font is returned
+     * from the font cache; otherwise, the font is created and added to the cache.
      *
      * @param f the PdfFont containing the parameters for the font
      * @return the iText Font object
@@ -45,14 +47,79 @@ public class PdfFontFactory
     {
         PdfFont pf = f;
 
-        int style = 0;
-
-        Font font = null;
-
         if( pf == null ) {
             pf = new PdfFont( pdfData );
         }
 
+        PdfFontCache cache = ( pdfData == null ? null : pdfData.getFontCache() );
+        if( cache == null ) {
+            return( buildItextFont( pf ));
+        }
+
+        final int rgb = computeRgbValue( pf );
+        Font font = cache.get( pf.getFace(), pf.getSize(), pf.getBold(), pf.getItalics(), rgb );
+        if( font == null ) {
+            font = buildItextFont( pf );
+            cache.put( pf.getFace(), pf.getSize(), pf.getBold(), pf.getItalics(), rgb, font );
+        }
+
+        return( font );
+    }
+
+    /**
+     * Gets the iText Font object for a different typeface, but with the other attributes
+     * (size, color, etc.) of an existing font. Used for symbols, which are often in a
+     * specific typeface.
+     *
+     * @param face the typeface
+     * @param existingFont the font from which to take the other attributes
+     * @return the iText Font object
+     */
+    public Font createItextFont( final String face, final PdfFont existingFont )
+    {
+        PdfFontCache cache = ( pdfData == null ? null : pdfData.getFontCache() );
+        if( cache != null ) {
+            Font font = cache.get( face, existingFont.getSize(), existingFont.getBold(),
+                                   existingFont.getItalics(), computeRgbValue( existingFont ));
+            if( font != null ) {
+                return( font );
+            }
+        }
+
+        // the PdfFont constructor creates the font and adds it to the cache.
+        return( new PdfFont( pdfData, face, existingFont ).getItextFont() );
+    }
+
+    /**
+     * Creates an iText Font object based on a passed-in PdfFont. This does the actual
+     * work of font creation; it's called only if the font is not in the font cache.
+     *
+     * iText's FontFactory is a global registry that is not safe for concurrent updates,
+     * so font creation (which can register new fonts) is serialized across all documents
+     * being converted in this JVM.
+     *
+     * @param pf the PdfFont containing the parameters for the font
+     * @return the iText Font object
+     */
+    Font buildItextFont( final PdfFont pf )
+    {
+        synchronized( FontFactory.class ) {
+            return( buildItextFontFromRegistry( pf ));
+        }
+    }
+
+    /**
+     * Creates the iText font. Must be called only from buildItextFont().
+     *
+     * @param pf the PdfFont containing the parameters for the font
+     * @return the iText Font object
+     */
+    private Font buildItextFontFromRegistry( final PdfFont pf )
+    {
+        int style = 0;
+
+        Font font = null;
+
         Color col  = new Color( pf.getColor().getR(), pf.getColor().getG(), pf.getColor().getB() );
         String iTextFontName = createItextFontName( pf );
 
@@ -78,6 +145,17 @@ public class PdfFontFactory
         return( font );
     }
 
+    /**
+     * Converts the PdfFont color into a single int, for use in the font-cache key
+     *
+     * @param f the PdfFont whose color is being converted
+     * @return the RGB value as 0xRRGGBB
+     */
+    int computeRgbValue( final PdfFont f )
+    {
+        return(( f.getColor().getR() << 16 ) | ( f.getColor().getG() << 8 ) | f.getColor().getB() );
+    }
+
     /**
      * iText font style captures bold, italic, strikethru, underline. Since we handle
      * strikethrough and underline ourselves, we use it to communicate italic and bold
@@ -371,6 +449,7 @@ public class PdfFontFactory
         TypefaceMap typefaceMap = pdfData.getTypefaceMap();
         if( typefaceMap == null  ) {
             pdfData.loadTypefaceMap();
+            typefaceMap = pdfData.getTypefaceMap();
         }
 
         return( typefaceMap.getFamilyFilenames( typefaceName ));
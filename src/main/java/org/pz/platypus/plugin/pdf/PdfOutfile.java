@@ -54,6 +54,42 @@ public class PdfOutfile
     /** the PDF data structure */
     PdfData pdfData;
 
+    /** default for the number of elements queued in iTColumn before they're laid out */
+    static final int DEFAULT_FLUSH_THRESHOLD = 32;
+
+    /** lay out the queued elements once this many are in iTColumn; 0 = only at page breaks */
+    int flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+
+    /** the number of elements added to iTColumn since it was last laid out */
+    int queuedElements = 0;
+
+    /** true if the last layout ran out of text part-way down the current column */
+    boolean columnInProgress = false;
+
+    /** text emitted but not yet added to iTPara. Consecutive text in the same font, underline,
+        and strikethrough is gathered here and added to the paragraph as one Chunk. */
+    final StringBuilder pendingText = new StringBuilder();
+
+    /** the style of pendingText */
+    Font pendingFont;
+    boolean pendingStrikethru;
+    float pendingStrikethruPosition;
+    boolean pendingUnderline;
+    float pendingUnderlineThickness;
+    float pendingUnderlinePosition;
+
+    /** should consecutive text in the same style be emitted as one Chunk? */
+    boolean coalesceText = true;
+
+    /** lays out simple paragraphs directly on the page, rather than in iTColumn. It is null
+        unless direct layout is turned on in the config file. */
+    DirectLayout directLayout = null;
+
+    /** the edges of the current column, as last set by setColumnSize() */
+    float columnLeft;
+    float columnRight;
+    float columnBottom;
+
     public PdfOutfile()
     {
         openStatus = false;
@@ -128,6 +164,7 @@ public class PdfOutfile
         {
             fos = new FileOutputStream( filename );
             iTWriter = PdfWriter.getInstance( iTDocument, fos );
+            iTWriter.setCompressionLevel( lookupCompressionLevel( gdd ));
             gdd.log( "Opened PDF output stream: " + filename );
         }
         catch (DocumentException e)
@@ -165,6 +202,12 @@ public class PdfOutfile
         iTContentByte = iTWriter.getDirectContent();
 
         iTColumn = new ColumnText( iTContentByte );
+        queuedElements = 0;
+        columnInProgress = false;
+        flushThreshold = lookupFlushThreshold( gdd );
+        coalesceText = lookupCoalesceText( gdd );
+        directLayout = ( lookupDirectLayout( gdd ) ?
+                            new DirectLayout( iTWriter.getSpaceCharRatio() ) : null );
 
         // determine the size of columns based on page size at open
         pdf.setColumns( new Columns( pdf.getColumnCount(), 0f, pdf ));
@@ -188,6 +231,7 @@ public class PdfOutfile
         }
 
         // First output any unwritten paragraph text to the column(s)
+        addPendingText();
         if( iTPara != null ) {
             addParagraph( iTPara, iTColumn );
             iTPara = null;
@@ -225,6 +269,7 @@ public class PdfOutfile
             return;
         }
 
+        addPendingText();
         assert( column != null );
         assert( pdfData != null );
 
@@ -250,10 +295,122 @@ public class PdfOutfile
             doParagraphIndentRight( para, pdfData );
             doFirstLineIndent( para, pdfData );
             doParagraphSpaceBefore( para, pdfData );
-            outputColumn.addElement( para );
+            if( outputColumn == iTColumn && directLayout != null && directLayout.load( para )) {
+                layOutDirectly();
+            }
+            else {
+                outputColumn.addElement( para );
+                if( outputColumn == iTColumn ) {
+                    elementQueued();
+                }
+            }
         }
     }
 
+    /**
+     * Called after an element is added to iTColumn. Once enough elements are queued, they
+     * are laid out, so that completed pages are written to the file as the document is
+     * processed, rather than all the text being held in iTColumn until the end.
+     */
+    void elementQueued()
+    {
+        queuedElements++;
+        if( flushThreshold > 0 && queuedElements >= flushThreshold ) {
+            layOutQueuedElements();
+        }
+    }
+
+    /**
+     * Looks up the flush threshold (pi.out.pdf.flush_threshold) in the configuration file.
+     *
+     * @param gdd the GDD
+     * @return the threshold, or DEFAULT_FLUSH_THRESHOLD if it is not specified or is invalid
+     */
+    int lookupFlushThreshold( final GDD gdd )
+    {
+        if( gdd == null || gdd.getConfigFile() == null ) {
+            return( DEFAULT_FLUSH_THRESHOLD );
+        }
+
+        final String threshold = gdd.getConfigFile().lookup(
+                    "pi.out." + gdd.getOutputPluginPrefix() + ".flush_threshold" );
+        if( threshold == null ) {
+            return( DEFAULT_FLUSH_THRESHOLD );
+        }
+
+        try {
+            final int value = Integer.parseInt( threshold.trim() );
+            return( value < 0 ? DEFAULT_FLUSH_THRESHOLD : value );
+        }
+        catch( NumberFormatException nfe ) {
+            return( DEFAULT_FLUSH_THRESHOLD );
+        }
+    }
+
+    /**
+     * Looks up the level at which iText compresses the page contents and embedded fonts
+     * (pi.out.pdf.compression_level) in the configuration file: from 0 (none) to 9 (best).
+     *
+     * @param gdd the GDD
+     * @return the level, or PdfStream.DEFAULT_COMPRESSION if it is not specified or is invalid
+     */
+    int lookupCompressionLevel( final GDD gdd )
+    {
+        if( gdd == null || gdd.getConfigFile() == null ) {
+            return( PdfStream.DEFAULT_COMPRESSION );
+        }
+
+        final String level = gdd.getConfigFile().lookup(
+                    "pi.out." + gdd.getOutputPluginPrefix() + ".compression_level" );
+        if( level == null ) {
+            return( PdfStream.DEFAULT_COMPRESSION );
+        }
+
+        try {
+            final int value = Integer.parseInt( level.trim() );
+            return( value < PdfStream.NO_COMPRESSION || value > PdfStream.BEST_COMPRESSION ?
+                        PdfStream.DEFAULT_COMPRESSION : value );
+        }
+        catch( NumberFormatException nfe ) {
+            return( PdfStream.DEFAULT_COMPRESSION );
+        }
+    }
+
+    /**
+     * Looks up whether to coalesce text runs (pi.out.pdf.coalesce_text) in the configuration file.
+     *
+     * @param gdd the GDD
+     * @return false if the setting is no; otherwise, true
+     */
+    boolean lookupCoalesceText( final GDD gdd )
+    {
+        if( gdd == null || gdd.getConfigFile() == null ) {
+            return( true );
+        }
+
+        final String coalesce = gdd.getConfigFile().lookup(
+                    "pi.out." + gdd.getOutputPluginPrefix() + ".coalesce_text" );
+        return( coalesce == null || ! coalesce.trim().equalsIgnoreCase( "no" ));
+    }
+
+    /**
+     * Looks up whether to lay out simple paragraphs directly (pi.out.pdf.direct_layout)
+     * in the configuration file.
+     *
+     * @param gdd the GDD
+     * @return true if the setting is yes; otherwise, false
+     */
+    boolean lookupDirectLayout( final GDD gdd )
+    {
+        if( gdd == null || gdd.getConfigFile() == null ) {
+            return( false );
+        }
+
+        final String direct = gdd.getConfigFile().lookup(
+                    "pi.out." + gdd.getOutputPluginPrefix() + ".direct_layout" );
+        return( direct != null && direct.trim().equalsIgnoreCase( "yes" ));
+    }
+
     /**
      * Converts bullet string into an iText Chunk and calls the method that
      * adds a list using the Chunk to define the bullet symbol.
@@ -310,6 +467,8 @@ public class PdfOutfile
             return;  // TODO: should add an error message
         }
 
+        addPendingText();
+
         List currList;
         try {
             currList = (List) bulletLists.peek();
@@ -342,6 +501,7 @@ public class PdfOutfile
         }
 
         // if in a paragraph, add the paragraph to the list before closing the list.
+        addPendingText();
         if( iTPara != null ) {
             addParagraphToList( iTPara );
         }
@@ -354,6 +514,7 @@ public class PdfOutfile
         // if not, add it to the column of text.
         else {
             iTColumn.addElement( currList );
+            elementQueued();
         }
     }
     /**
@@ -477,9 +638,22 @@ public class PdfOutfile
     }
 
     /**
-     * The method that renders the PDF file
+     * The method that renders the PDF file. Lays out all the text in iTColumn, after which
+     * the next text starts at the top of a column, as set by setColumnSize(). (This is what
+     * commands that change the page size or the number of columns rely on.)
      */
     public void addColumnsContentToDocument()
+    {
+        layOutQueuedElements();
+        columnInProgress = false;
+    }
+
+    /**
+     * Lays out the elements queued in iTColumn, going on to new columns and pages as they
+     * fill up. If the elements run out part-way down a column, the column is left in
+     * progress, and the next call continues from the same vertical position.
+     */
+    void layOutQueuedElements()
     {
         // following test required if the [columns: command appears before any text
         if( iTDocument == null || iTColumn == null ) {
@@ -487,19 +661,28 @@ public class PdfOutfile
         }
 
         iTStatus = ColumnText.NO_MORE_COLUMN;
+        queuedElements = 0;
 
         try
         {
             while( ColumnText.hasMoreText( iTStatus )) {
 
-                if( pdfData.getCurrColumn() >= pdfData.getColumnCount() ) {
-                    iTDocument.newPage();
-                    pdfData.setCurrColumn( 0 );
+                if( columnInProgress ) {
+                    // not the top of a column, so iText must not drop the space before
+                    iTColumn.setAdjustFirstLine( false );
+                }
+                else {
+                    if( pdfData.getCurrColumn() >= pdfData.getColumnCount() ) {
+                        iTDocument.newPage();
+                        pdfData.setCurrColumn( 0 );
+                    }
+
+                    setColumnSize();
+                    iTColumn.setAdjustFirstLine( true );
                 }
-
-                setColumnSize();
 
                 iTStatus =  iTColumn.go();
+                columnInProgress = ! ColumnText.hasMoreText( iTStatus );
 
                  if ( ColumnText.hasMoreText( iTStatus )) {
                      int currCol = pdfData.getCurrColumn();
@@ -512,6 +695,55 @@ public class PdfOutfile
         }
     }
 
+    /**
+     * Lays out the paragraph loaded in directLayout directly on the page, going on to new
+     * columns and pages as they fill up, as layOutQueuedElements() does. Anything still
+     * queued in iTColumn is laid out first, and iTColumn is left at the position below the
+     * paragraph, so that paragraphs laid out either way follow one another.
+     */
+    void layOutDirectly()
+    {
+        layOutQueuedElements();
+
+        final PdfContentByte cb = iTWriter.getDirectContent();
+        final float leading = directLayout.getLeading();
+        float y = iTColumn.getYLine();
+        boolean atColumnTop = false;
+
+        while( directLayout.hasMoreLines() ) {
+            if( ! columnInProgress ) {
+                if( pdfData.getCurrColumn() >= pdfData.getColumnCount() ) {
+                    iTDocument.newPage();
+                    pdfData.setCurrColumn( 0 );
+                }
+
+                setColumnSize();
+                y = iTColumn.getYLine();
+                columnInProgress = true;
+                atColumnTop = true;
+                directLayout.startColumn();
+            }
+
+            // a line too deep for even an empty column is written there anyway
+            if( y - leading < columnBottom && ! atColumnTop ) {
+                pdfData.setCurrColumn( pdfData.getCurrColumn() + 1 );
+                columnInProgress = false;
+                continue;
+            }
+
+            directLayout.breakLine( columnLeft, columnRight );
+            y -= leading;
+            directLayout.writeLine( cb, y );
+            atColumnTop = false;
+
+            // a blank line writes nothing, but its page must still be emitted, as
+            // ColumnText does it
+            iTWriter.setPageEmpty( false );
+        }
+
+        iTColumn.setYLine( y );
+    }
+
     /**
      * Set the size of the columns based on their number, page size, and gutter size.
      */
@@ -529,6 +761,10 @@ public class PdfOutfile
                                   bottomColEdge,
                                   rightColEdge,
                                   topColEdge );
+
+        columnLeft = leftColEdge;
+        columnRight = rightColEdge;
+        columnBottom = bottomColEdge;
     }
 
     /**
@@ -592,6 +828,7 @@ public class PdfOutfile
      */
     public void newPage()
     {
+        addPendingText();
         if( iTPara != null && iTPara.size() > 0 ) {
             addParagraph( iTPara, iTColumn );
         }
@@ -629,6 +866,7 @@ public class PdfOutfile
      */
     public void startNewParagraph()
     {
+        addPendingText();
         if( iTPara != null ) {
             addParagraph( iTPara, iTColumn );
         }
@@ -663,6 +901,12 @@ public class PdfOutfile
      * Writes text to the PDF file. Because text can be written either as a Chunk or a Phrase
      * in iText, this method has to manage both entities within the larger context of a Paragraph.
      *
+     * The text is not added to the paragraph right away. Runs of text in the same font,
+     * underline, and strikethrough--such as the words and soft line breaks of a paragraph of
+     * prose--are gathered and added as one Chunk when the style changes or anything else is
+     * added to the paragraph. (See addPendingText().) This saves iText from laying out many
+     * small Chunks, and from re-copying the text of the previous Chunk as it merges them.
+     *
      * @param s the text to be written
      */
     public void emitText( String s )
@@ -674,19 +918,58 @@ public class PdfOutfile
            startNewParagraph();
         }
 
-        // now create a Chunk containing the text in String s using the font in pdfData
-        final Chunk chunk = new Chunk( s, pdfData.getFont().getItextFont() );
+        final Font font = pdfData.getFont().getItextFont();
+        final boolean strikethru = pdfData.getStrikethru();
+        final float strikethruPosition = ( strikethru ?
+                pdfData.getFontSize() / DefaultValues.FONT_SIZE_TO_STRIKETHRU_RATIO : 0f );
+        final Underline ul = pdfData.getUnderline();
+        final boolean underline = ul.isInEffect();
+        final float underlineThickness = ( underline ? ul.geTthickness() : 0f );
+        final float underlinePosition = ( underline ? ul.getPosition() : 0f );
+
+        if( pendingText.length() > 0 &&
+                ( font != pendingFont ||
+                  strikethru != pendingStrikethru ||
+                  strikethruPosition != pendingStrikethruPosition ||
+                  underline != pendingUnderline ||
+                  underlineThickness != pendingUnderlineThickness ||
+                  underlinePosition != pendingUnderlinePosition )) {
+            addPendingText();
+        }
+
+        pendingFont = font;
+        pendingStrikethru = strikethru;
+        pendingStrikethruPosition = strikethruPosition;
+        pendingUnderline = underline;
+        pendingUnderlineThickness = underlineThickness;
+        pendingUnderlinePosition = underlinePosition;
+        pendingText.append( s );
+
+        if( ! coalesceText ) {
+            addPendingText();
+        }
+    }
+
+    /**
+     * Adds the text gathered by emitText() to the current paragraph as a Chunk in the
+     * text's font, with its underline and strikethrough.
+     */
+    void addPendingText()
+    {
+        if( pendingText.length() == 0 ) {
+            return;
+        }
+
+        final Chunk chunk = new Chunk( pendingText.toString(), pendingFont );
+        pendingText.setLength( 0 );
 
         // if strikethrough is on, then set it here for this chunk
-        if( pdfData.getStrikethru() ) {
-            float lineLocation =
-                                pdfData.getFontSize() / DefaultValues.FONT_SIZE_TO_STRIKETHRU_RATIO;
-            chunk.setUnderline( DefaultValues.UNDERLINE_THICKNESS, lineLocation );
+        if( pendingStrikethru ) {
+            chunk.setUnderline( DefaultValues.UNDERLINE_THICKNESS, pendingStrikethruPosition );
         }
 
-        if ( pdfData.getUnderline().isInEffect() ) {
-            Underline ul = pdfData.getUnderline();
-            chunk.setUnderline( ul.geTthickness(), ul.getPosition() );
+        if ( pendingUnderline ) {
+            chunk.setUnderline( pendingUnderlineThickness, pendingUnderlinePosition );
         }
 
         iTPara.add( chunk );
@@ -701,22 +984,34 @@ public class PdfOutfile
      * @param fontName fontName to use. If null, use current font.
      */
     public void emitChar( final String ch, final String fontName)
+    {
+        Font font;
+        if( fontName == null || fontName.isEmpty() ) {
+            font = pdfData.getFont().getItextFont();
+        }
+        else {
+            font = pdfData.getFontFactory().createItextFont( fontName, pdfData.getFont() );
+        }
+
+        emitChar( ch, pdfData.getFontCache().getFontSelector( font ));
+    }
+
+    /**
+     * Emit a single character using a FontSelector that has already been resolved for
+     * the font to use. Called by PdfSymbol, which keeps the FontSelector of its font.
+     *
+     * @param ch char to be emitted
+     * @param fs the FontSelector of the font to emit the char in
+     */
+    public void emitChar( final String ch, final FontSelector fs )
     {
         assert( ch != null ) : "ch parameter null in PdfOutfile.emitChar()";
 
+        addPendingText();
         if( iTPara == null ) {
             startNewParagraph();
         }
 
-        FontSelector fs = new FontSelector();
-        if( fontName == null || fontName.isEmpty() ) {
-            fs.addFont( pdfData.getFont().getItextFont() );
-        }
-        else {
-            PdfFont newFont = new PdfFont( pdfData, fontName, pdfData.getFont() );
-            fs.addFont( newFont.getItextFont() );
-        }
-        
         Phrase phr = fs.process( ch );
         iTPara.add( phr );
     }
@@ -750,6 +1045,7 @@ public class PdfOutfile
             return;
         }
         
+        addPendingText();
         if( iTPara == null ) {
             startNewParagraph();
         }
@@ -938,8 +1234,15 @@ public class PdfOutfile
         return( iTColumn.getFilledWidth() );
     }
 
+    /**
+     * Gets the current paragraph, with any text gathered by emitText() added to it, so that
+     * commands that add to the paragraph directly do so after the text that precedes them.
+     *
+     * @return the current iText paragraph; null if there is none
+     */
     public Paragraph getItPara()
     {
+        addPendingText();
         return( iTPara );
     }
 
@@ -953,6 +1256,7 @@ public class PdfOutfile
     // this method is only ever used for testing.
     public void setItPara( Paragraph newPara )
     {
+        addPendingText();
         iTPara = newPara;
     }
 
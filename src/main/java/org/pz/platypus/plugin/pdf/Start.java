@@ -86,6 +86,7 @@ public class Start implements IPlugin
             processTokens( pdfData, outFilename );
             outfile.close();
             gdd.log( "Closed output PDF file" );
+            logFontCacheStats( gdd );
         }
         catch( IOException ioe ) {
             return;  //todo: log some kind of error
@@ -99,6 +100,18 @@ public class Start implements IPlugin
         }
     }
 
+    /**
+     * Logs how effective the font cache was in this document
+     *
+     * @param gdd the GDD
+     */
+    void logFontCacheStats( final GDD gdd )
+    {
+        PdfFontCache cache = pdfData.getFontCache();
+        gdd.log( "Font cache: " + cache.getSize() + " fonts, " + cache.getHits() + " hits, " +
+                 cache.getMisses() + " misses" );
+    }
+
     /**
      * set up various data items needed in processing
      * @param gdd the GDD
@@ -150,7 +163,7 @@ public class Start implements IPlugin
                         i += processCommand( tok, pdfData, i );
 
                         // if the current command is [] and it's followed by EOL, don't process the EOL.
-                        if( tok.getRoot().equals( "[]" ) && isNextTokenCr( i, tokenList )) {
+                        if( tok.getCommandId() == CommandIds.HARD_CR && isNextTokenCr( i, tokenList )) {
                             ++i;
                     }
                     break;
@@ -195,8 +208,8 @@ public class Start implements IPlugin
             return( false );
         }
 
-        if( nextTok.getType().equals( TokenType.COMMAND ) &&
-            nextTok.getRoot().equals( "[cr]" )) {
+        if( nextTok.getType() == TokenType.COMMAND &&
+            nextTok.getCommandId() == CommandIds.EOL ) {
             return( true );
         }
 
@@ -217,7 +230,7 @@ public class Start implements IPlugin
         assert( commandTable!= null && commandTable.getSize() > 0 );
 
         // lookup the command in the PDF command table
-        IOutputCommand oc = commandTable.getCommand( tok.getRoot() );
+        IOutputCommand oc = commandTable.getCommandFor( tok );
         if( oc != null ) {
              return( oc.process( pdfData, tok, tokNum ));
         }
@@ -293,7 +306,7 @@ public class Start implements IPlugin
     {
         UserStrings macros = gdd.getUserStrings();
         String macroText = macros.getString( tok.getParameter().getString() );
-        gdd.getInputTokens().add( tokNum+1, new Token( tok.getSource(), TokenType.TEXT, macroText ));
+        gdd.getInputTokens().insertAfter( tokNum, new Token( tok.getSource(), TokenType.TEXT, macroText ));
     }
 
     /**
@@ -312,8 +325,6 @@ public class Start implements IPlugin
             return; // should we log a warning here?
         }
 
-        String sym = tok.getRoot();
-
         // we don't open the file until we have text to output.
         if( ! outfile.isOpen() ) {
             try {
@@ -325,7 +336,7 @@ public class Start implements IPlugin
         }
 
         // lookup the command in the PDF command table
-        IOutputCommand oc = commandTable.getCommand( sym );
+        IOutputCommand oc = commandTable.getCommandFor( tok );
         if( oc != null ) {
              oc.process( pdfData, tok, tokNum );
         }
@@ -72,7 +72,7 @@ public class PdfPrintVariable implements IOutputCommand
     {
         TokenList tokList = gdd.getInputTokens();
         Token newTextToken = new Token( source, TokenType.MACRO_TEXT, text );
-        tokList.add( tokNum+1, newTextToken );
+        tokList.insertAfter( tokNum, newTextToken );
     }
 
     public void issueErrorMessage( final GDD gdd, final Source source, final String macro )
@@ -13,11 +13,17 @@ import org.pz.platypus.Token;
 import org.pz.platypus.GDD;
 import org.pz.platypus.plugin.pdf.PdfData;
 
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.FontSelector;
+
 /**
  * This is the command-equivalent that is called by PDF plugin to 'execute' a symbol.
  * It looks what the chars to ouput are to generate the symbol in PDF and it outputs
  * those as text. If Unicode conversion is necessary, that is performed as well.
  *
+ * The definition of the symbol is parsed once, when the symbol is loaded into the command
+ * table, so that emitting a symbol is just a lookup of its font and the output of its chars.
+ *
  * @author alb
  */
 public class PdfSymbol implements IOutputCommand
@@ -25,6 +31,19 @@ public class PdfSymbol implements IOutputCommand
     private String root;
     private String passedValue;
 
+    /** the chars to emit for the symbol; empty if the definition is not a valid Unicode value */
+    private final String charCode;
+
+    /** the typeface in which to emit the symbol; empty if it's emitted in the current font */
+    private final String fontName;
+
+    /** does the definition specify a font that is not valid, such as {}? */
+    private final boolean invalidFontName;
+
+    /** the current iText font when the symbol was last emitted, and the FontSelector used then */
+    private Font lastFont;
+    private FontSelector lastFontSelector;
+
     public PdfSymbol( final String symbolRoot, final String stringToEmit )
     {
         assert( root != null );
@@ -32,6 +51,12 @@ public class PdfSymbol implements IOutputCommand
 
         root = symbolRoot;
         passedValue = stringToEmit;
+
+        final String definition = ( stringToEmit == null ? "" : stringToEmit );
+        charCode = getCharCode( definition );
+        invalidFontName = definition.startsWith( "{" ) && definition.indexOf( '}' ) < 2;
+        fontName = ( definition.startsWith( "{" ) && ! invalidFontName ?
+                        definition.substring( 1, definition.indexOf( '}' )) : "" );
     }
 
     public int process( final IOutputContext context, final Token tok, final int tokNum )
@@ -42,11 +67,12 @@ public class PdfSymbol implements IOutputCommand
 
         PdfData pdd = (PdfData) context;
 
-        String fontName = getFontName( passedValue, pdd.getGdd(), tok );
-        String charCode = getCharCode( passedValue );
+        if( invalidFontName ) {
+            extractFontName( passedValue, pdd.getGdd(), tok ); // logs the error
+        }
 
-        if( charCode != null && ! charCode.isEmpty() ) {
-            pdd.getOutfile().emitChar( charCode, fontName );
+        if( ! charCode.isEmpty() ) {
+            pdd.getOutfile().emitChar( charCode, getFontSelector( pdd ));
         }
         else {
             // if a problem occurred, emit the character escape code as text, such as: \\u12CD.
@@ -55,6 +81,29 @@ public class PdfSymbol implements IOutputCommand
         return 0;
     }
 
+    /**
+     * Gets the FontSelector with which to emit the symbol. The symbol's font takes its size,
+     * style, and color from the current font, so it's looked up again only when the current
+     * font has changed since the symbol was last emitted. (The font cache returns the same
+     * iText font for the same attributes.)
+     *
+     * @param pdd the PDF document data, for the current font
+     * @return the FontSelector for the symbol's font
+     */
+    FontSelector getFontSelector( final PdfData pdd )
+    {
+        final Font currentFont = pdd.getFont().getItextFont();
+        if( lastFontSelector == null || currentFont != lastFont ) {
+            Font font = currentFont;
+            if( ! fontName.isEmpty() ) {
+                font = pdd.getFontFactory().createItextFont( fontName, pdd.getFont() );
+            }
+            lastFontSelector = pdd.getFontCache().getFontSelector( font );
+            lastFont = currentFont;
+        }
+        return( lastFontSelector );
+    }
+
     /**
      * Get the Unicode character code to emit
      * @param symEquiv the symbol equivalent (consisting of what is on the right of the = sign
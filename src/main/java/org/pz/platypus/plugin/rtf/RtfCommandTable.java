@@ -9,8 +9,13 @@ package org.pz.platypus.plugin.rtf;
 
 import org.pz.platypus.interfaces.IOutputCommand;
 import org.pz.platypus.plugin.rtf.commands.*;
+import org.pz.platypus.CommandIds;
 import org.pz.platypus.GDD;
+import org.pz.platypus.PropertyFile;
+import org.pz.platypus.Token;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.MissingResourceException;
 
@@ -27,9 +32,13 @@ public class RtfCommandTable
     /** the hashtable into which the commands are loaded */
     private HashMap<String, IOutputCommand> commandTable;
 
+    /** the same commands, indexed by the id of their root in CommandIds */
+    private IOutputCommand[] commandsById;
+
     public RtfCommandTable()
     {
         commandTable = new HashMap<String, IOutputCommand>( 300 );
+        commandsById = new IOutputCommand[CommandIds.getCount()];
     }
 
     /**
@@ -41,7 +50,7 @@ public class RtfCommandTable
     public void load( GDD gdd )
     {
         loadCommands();
-//        loadSymbols( gdd );
+        loadSymbols( gdd );
     }
 
     /**
@@ -92,18 +101,22 @@ public class RtfCommandTable
     }
 
     /**
-     * load the symbols and special characters. These are loaded from a text file.
+     * load the symbols and special characters. These are loaded from the text file named
+     * in the config file (pi.out.rtf.symbollist). If none is named, symbols are not loaded
+     * and generate a warning that they are not recognized.
      *
      * @param gdd the global document data
      */
     void loadSymbols( final GDD gdd )
     {
         try {
-//            PdfSymbolsTable pst = new PdfSymbolsTable( gdd );
-//            Set<String> symbols = pst.keySet();
-//            for( String symbol : symbols ) {
-//                add( new PdfSymbol( symbol, pst.getPropertyFile().lookup( symbol )));
-//            }
+            PropertyFile symbols = getSymbolsFile( gdd );
+            if( symbols == null ) {
+                return;
+            }
+            for( String symbol : symbols.keySet() ) {
+                add( new RtfSymbol( symbol, symbols.lookup( symbol )));
+            }
         }
         catch( MissingResourceException mre ) {
             // Do nothing. Error message has already been displayed.
@@ -112,6 +125,40 @@ public class RtfCommandTable
         }
     }
 
+    /**
+     * Gets the file of symbols named in the config file. It's loaded once, and then kept in
+     * the GDD's shared tables for any other documents converted in this run.
+     *
+     * @param gdd the global document data
+     * @return the symbols, or null if no file is named or it does not exist
+     */
+    PropertyFile getSymbolsFile( final GDD gdd )
+    {
+        if( gdd == null || gdd.getConfigFile() == null ) {
+            return( null );
+        }
+
+        final String filename = gdd.getConfigFile().lookup(
+                    "pi.out." + gdd.getOutputPluginPrefix() + ".symbollist" );
+        if( filename == null ) {
+            return( null );
+        }
+
+        final String tableName = "RtfSymbols." + filename;
+        PropertyFile symbols = (PropertyFile) gdd.getSharedTables().get( tableName );
+        if( symbols == null ) {
+            final String path = gdd.getHomeDirectory() + "config" + gdd.getFileSeparator() + filename;
+            if( ! new File( path ).exists() ) {
+                gdd.logWarning( gdd.getLit( "ERROR.INVALID_PLUGIN_URL" ) + ": " + path );
+                return( null );
+            }
+            symbols = new PropertyFile( path, gdd );
+            symbols.load();
+            symbols = (PropertyFile) gdd.getSharedTables().add( tableName, symbols );
+        }
+        return( symbols );
+    }
+
     /**
      * add a OutputCommandable item to the hash table, using its root as the key to the entry
      * @param entry to be added (either a command or a symbol)
@@ -119,6 +166,12 @@ public class RtfCommandTable
     void add( final IOutputCommand entry )
     {
         commandTable.put( entry.getRoot(), entry );
+
+        final int id = CommandIds.register( entry.getRoot() );
+        if( id >= commandsById.length ) {
+            commandsById = Arrays.copyOf( commandsById, Math.max( id + 1, CommandIds.getCount() ));
+        }
+        commandsById[id] = entry;
     }
 
     //=== getters and setters ===/
@@ -133,6 +186,20 @@ public class RtfCommandTable
         return( commandTable.get( root ));
     }
 
+    /**
+     * Lookup the command for a token by the id of its root, which avoids hashing the root
+     * @param tok the command token
+     * @return the OutputCommandable class found, or null on error
+     */
+    public IOutputCommand getCommandFor( final Token tok )
+    {
+        final int id = tok.getCommandId();
+        if( id == CommandIds.NONE ) {
+            return( commandTable.get( tok.getRoot() ));
+        }
+        return( id < commandsById.length ? commandsById[id] : null );
+    }
+
     /**
      * How many entries in the table
      * @return number of entries
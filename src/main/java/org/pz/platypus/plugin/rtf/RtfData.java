@@ -36,6 +36,9 @@ public class RtfData extends DocData implements IOutputContext
     private Value strikethru;
     private TypefaceMap typefaceMap;
 
+    /** has the fontlist been loaded into the typefaceMap? */
+    private boolean typefaceMapLoaded = false;
+
 
     /**
      * Initializes the state of the PDF document.
@@ -64,11 +67,15 @@ public class RtfData extends DocData implements IOutputContext
     }
 
     /**
- * Load the typefaces from the fontlist into the typefaceMap.
- */
+     * Load the typefaces from the fontlist into the typefaceMap, if they have not already
+     * been loaded.
+     */
     public void loadTypefaceMap()
     {
-        typefaceMap.loadMapFromFile();
+        if( ! typefaceMapLoaded ) {
+            typefaceMapLoaded = true;
+            typefaceMap.loadMapFromFile();
+        }
     }
     
     //=== getters and setters in alpha order by field  ===
@@ -158,5 +165,6 @@ public class RtfData extends DocData implements IOutputContext
     public void setTypefaceMap( final TypefaceMap tfMap )
     {
         typefaceMap = tfMap;
+        typefaceMapLoaded = true;
     }
 }
\ No newline at end of file
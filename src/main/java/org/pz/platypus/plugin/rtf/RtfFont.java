@@ -12,12 +12,17 @@ import com.lowagie.text.FontFactory;
 import com.lowagie.text.pdf.BaseFont;
 import org.pz.platypus.GDD;
 import org.pz.platypus.Source;
-import org.pz.platypus.TypefaceMap;
 import org.pz.platypus.DefaultValues;
+import org.pz.platypus.exceptions.InvalidConfigFileException;
 
 /**
  * Handles fonts for the RTF plugin
  *
+ * RTF output needs only the typeface, size, and style of the font. A typeface is checked
+ * against the base14 fonts and the typeface map (the fontlist), without opening any font
+ * files; one that is in neither is replaced by the default typeface. The iText font is
+ * created only if getItextFont() is called, and again after a change to the font.
+ *
  * @author alb
  */
 public class RtfFont
@@ -70,7 +75,7 @@ public class RtfFont
         italics = existingFont.getItalics();
         source = existingFont.getSource();
 
-        iTfont = createFont( this );
+        typeface = resolveTypeface( fontName );
     }
 
     /**
@@ -85,7 +90,7 @@ public class RtfFont
         italics   = DefaultValues.FONT_ITALIC;
         source    = new Source();
 
-        iTfont = createFont( this );
+        iTfont = null;
     }
 
     /**
@@ -123,6 +128,24 @@ public class RtfFont
         return( font );
     }
 
+    /**
+     * Checks that a typeface is a base14 font or is in the typeface map. Only the map is
+     * consulted; the font's files are not opened.
+     *
+     * @param typefaceName name of the typeface
+     * @return the typeface, or the default typeface if it's not a base14 font nor in the map
+     */
+    String resolveTypeface( final String typefaceName )
+    {
+        if( isBase14Font( typefaceName ) || lookupFontFilenames( typefaceName ).length > 0 ) {
+            return( typefaceName );
+        }
+
+        gdd.logWarning( gdd.getLit( "COULD_NOT_FIND") + " " + typefaceName + " " +
+                        gdd.getLit( "IN_FONT_LIST" ) + ". " +  gdd.getLit( "USING_TIMES_ROMAN" ) + "." );
+        return( DefaultValues.FONT_TYPEFACE );
+    }
+
     /**
      * Opens a font using the IDENTITY-H encoding.
      *
@@ -337,12 +360,13 @@ public class RtfFont
         assert rtfData != null;
         assert typefaceName != null;
 
-        TypefaceMap typefaceMap = rtfData.getTypefaceMap();
-        if( typefaceMap == null  ) {
+        try {
             rtfData.loadTypefaceMap();
         }
-
-        return( typefaceMap.getFamilyFilenames( typefaceName ));
+        catch( InvalidConfigFileException icfe ) {
+            return( new String[] {} ); // the missing fontlist has already been reported
+        }
+        return( rtfData.getTypefaceMap().getFamilyFilenames( typefaceName ));
     }
 
     /**
@@ -383,12 +407,15 @@ public class RtfFont
         return( italics );
     }
     /**
-     * Get the iText font
+     * Get the iText font, creating it if it has not been created since the last change
      *
      * @return  the iText font
      */
     public Font getItextFont()
     {
+        if( iTfont == null ) {
+            iTfont = createFont( this );
+        }
         return( iTfont );
     }
 
@@ -418,7 +445,7 @@ public class RtfFont
         if( bold != onOff ) {
             bold = onOff;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 
@@ -433,7 +460,7 @@ public class RtfFont
         if( italics != onOff ) {
             italics = onOff;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 
@@ -442,16 +469,16 @@ public class RtfFont
         if( size != newSize ) {
             size = newSize;
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 
     public void setFace( final String newFace, final Source newSource )
     {
         if( ! typeface.equals( newFace )) {
-            typeface = newFace;
+            typeface = resolveTypeface( newFace );
             source = newSource;
-            iTfont = createFont( this );
+            iTfont = null;
         }
     }
 }
\ No newline at end of file
@@ -10,23 +10,76 @@ package org.pz.platypus.plugin.rtf;
 import org.pz.platypus.GDD;
 import org.pz.platypus.DefaultValues;
 
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
  * Handles the output to the RTF file
  *
+ * RTF is a 7-bit format, so the output is written as bytes, through a buffer. Text is
+ * escaped as it's copied into the buffer: ASCII chars are copied as is, except for \, {,
+ * and }, which are escaped; chars in the Windows-1252 code page are written as \'hh; and all
+ * other chars as RTF Unicode escapes (a backslash, u, the char's value as a signed 16-bit
+ * number, and a ? for readers that don't support Unicode).
+ *
  * @author alb
  */
 public class RtfOutfile
 {
+    /** the size of the output buffer */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /** the number of the Symbol font in the font table */
+    public static final int SYMBOL_FONT = 1;
+
+    /** the chars of Windows-1252 at 0x80-0x9F; U+FFFD marks the codes that are not used */
+    private static final String CP1252_80_9F =
+        "\u20AC\uFFFD\u201A\u0192\u201E\u2026\u2020\u2021\u02C6\u2030\u0160\u2039\u0152\uFFFD\u017D\uFFFD" +
+        "\uFFFD\u2018\u2019\u201C\u201D\u2022\u2013\u2014\u02DC\u2122\u0161\u203A\u0153\uFFFD\u017E\u0178";
+
+    /** the Windows-1252 chars above U+00FF, sorted, and their escapes */
+    private static final char[] CP1252_CHARS;
+    private static final byte[][] CP1252_ESCAPES;
+
+    /** the escape for each char below U+0100; null if the char is written as is */
+    private static final byte[][] ESCAPES = new byte[0x100][];
+
+    static {
+        final char[] chars = new char[CP1252_80_9F.length()];
+        int count = 0;
+        for( int i = 0; i < CP1252_80_9F.length(); i++ ) {
+            if( CP1252_80_9F.charAt( i ) != '\uFFFD' ) {
+                chars[count++] = CP1252_80_9F.charAt( i );
+            }
+        }
+        CP1252_CHARS = Arrays.copyOf( chars, count );
+        Arrays.sort( CP1252_CHARS );
+        CP1252_ESCAPES = new byte[count][];
+        for( int i = 0; i < count; i++ ) {
+            CP1252_ESCAPES[i] = getCodePageEscape( 0x80 + CP1252_80_9F.indexOf( CP1252_CHARS[i] ));
+        }
+
+        ESCAPES['\\'] = getAsciiBytes( "\\\\" );
+        ESCAPES['{'] = getAsciiBytes( "\\{" );
+        ESCAPES['}'] = getAsciiBytes( "\\}" );
+        for( char c = 0x80; c < 0x100; c++ ) {
+            ESCAPES[c] = ( c < 0xA0 ? getUnicodeEscape( c ) : getCodePageEscape( c ));
+        }
+    }
+
     private boolean isOpen = false;
     private String filename;
-    private FileWriter fwOut;
+    private OutputStream out;
     private GDD gdd;
     private RtfData rtd;
 
+    /** the output not yet written to the file */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferCount = 0;
+
     public RtfOutfile( final String filename, final RtfData rtd )
     {
         this.filename = filename;
@@ -35,14 +88,13 @@ public class RtfOutfile
     }
 
     /**
-     *  Get an instance of FileWriter, to which we will emit RTF output
+     *  Opens the file to which we will emit RTF output, and writes the RTF prolog
      *
      *  @param filename of file to open (obtained from the command line)
      *  @param log logger for error messages
      *  @throws IOException in the event the file can't be opened
-     *  @return the open FileWriter
      */
-    public FileWriter open( final String filename, final Logger log )
+    public void open( final String filename, final Logger log )
             throws IOException
     {
         if( filename == null || filename.isEmpty() ) {
@@ -51,18 +103,29 @@ public class RtfOutfile
         }
 
         try {
-            fwOut = new FileWriter( filename );
+            open( new FileOutputStream( filename ));
         }
         catch ( IOException e ) {
             log.severe( gdd.getLit( "ERROR.OPENING_OUTPUT_FILE" ) + " " + filename );
             isOpen = false;
             throw new IOException();
         }
+    }
 
+    /**
+     *  Starts the RTF output on a stream, and writes the RTF prolog
+     *
+     *  @param stream the stream to write to
+     *  @throws IOException in the event of an I/O error
+     */
+    void open( final OutputStream stream )
+            throws IOException
+    {
+        out = stream;
+        bufferCount = 0;
         isOpen = true;
 
         emitRtfProlog();
-        return( fwOut );
     }
 
     /**
@@ -75,9 +138,10 @@ public class RtfOutfile
             throws IOException
     {
         // the CR/LF chars at end of some commands are for readability only. They're not part of the RTF commands.
-        final String prologString = "{\\rtf1\\ansi\n";
+        final String prologString = "{\\rtf1\\ansi\\ansicpg1252\n";
         final String resetStyles = "\\plain\n";
-        final String defaultFont = "\\deff0{\\fonttbl{\\f0 Times New Roman;}}\n";
+        final String defaultFont = "\\deff0{\\fonttbl{\\f0 Times New Roman;}{\\f" + SYMBOL_FONT +
+                                   "\\fcharset2 Symbol;}}\n";
         final String docComment = "{\\info{\\doccomm " + gdd.getLit( "CREATED_BY_PLATYPUS" ) + " " +
                                    gdd.getLit( "VERSION") + " " + gdd.getLit( "AVAILABLE_AT_PZ_ORG" ) + "}}\n";
         final String widowControlOn = "\\widowctrl\n";
@@ -90,18 +154,18 @@ public class RtfOutfile
         final String eoCommands = "\n";
 
         try {
-            fwOut.write( prologString );
-            fwOut.write( resetStyles );
-            fwOut.write( defaultFont );
-            fwOut.write( docComment );
-            fwOut.write( widowControlOn );
-            fwOut.write( pageWidth );
-            fwOut.write( pageHeight );
-            fwOut.write( marginR );
-            fwOut.write( marginL );
-            fwOut.write( marginT );
-            fwOut.write( marginB );
-            fwOut.write( eoCommands );
+            put( prologString, false );
+            put( resetStyles, false );
+            put( defaultFont, false );
+            put( docComment, false );
+            put( widowControlOn, false );
+            put( pageWidth, false );
+            put( pageHeight, false );
+            put( marginR, false );
+            put( marginL, false );
+            put( marginT, false );
+            put( marginB, false );
+            put( eoCommands, false );
         }
         catch( IOException ioe ) {
             gdd.logSevere( gdd.getLit( "ERROR.WRITING_TO_OUTPUT_FILE" ));
@@ -122,7 +186,7 @@ public class RtfOutfile
         final String epilogString = "}";
 
         try {
-            fwOut.write( epilogString );
+            put( epilogString, false );
         }
         catch( IOException ioe ) {
             gdd.logSevere( gdd.getLit( "ERROR.WRITING_TO_OUTPUT_FILE" ));
@@ -147,7 +211,7 @@ public class RtfOutfile
                 open( filename, gdd.getLogger() );
             }
 
-            fwOut.write( text );
+            put( text, true );
         }
         catch( IOException ioe ) {
             gdd.logSevere( gdd.getLit( "ERROR.WRITING_TO_OUTPUT_FILE" ));
@@ -172,7 +236,7 @@ public class RtfOutfile
                 open( filename, gdd.getLogger() );
             }
 
-            fwOut.write( command );
+            put( command, false );
         }
         catch( IOException ioe ) {
             gdd.logSevere( gdd.getLit( "ERROR.WRITING_TO_OUTPUT_FILE" ));
@@ -195,7 +259,9 @@ public class RtfOutfile
         emitRtfEpilog();
 
         try {
-            fwOut.close();
+            flushBuffer();
+            out.close();
+            isOpen = false;
         }
         catch( IOException ioe ) {
             log.severe( gdd.getLit( "ERROR.CLOSING_OUTPUT_FILE" ));
@@ -203,6 +269,91 @@ public class RtfOutfile
         }
     }
 
+    /**
+     * Copies a string into the output buffer, escaping its chars. The chars special to RTF
+     * (\\, {, and }) are escaped only in text, as commands are made of them.
+     *
+     * @param s the string
+     * @param isText true if the string is text; false if it's RTF commands
+     * @throws IOException in the event of an I/O error
+     */
+    private void put( final String s, final boolean isText ) throws IOException
+    {
+        final int length = s.length();
+        int i = 0;
+        while( i < length ) {
+            if( bufferCount == BUFFER_SIZE ) {
+                flushBuffer();
+            }
+
+            // copy chars as is until one must be escaped or the buffer is full
+            final int end = Math.min( length, i + BUFFER_SIZE - bufferCount );
+            for( ; i < end; i++ ) {
+                final char c = s.charAt( i );
+                if( c >= 0x80 || ( isText && ESCAPES[c] != null )) {
+                    break;
+                }
+                buffer[bufferCount++] = (byte) c;
+            }
+
+            if( i < end ) {
+                put( getEscape( s.charAt( i )));
+                i++;
+            }
+        }
+    }
+
+    private void put( final byte[] bytes ) throws IOException
+    {
+        if( bufferCount + bytes.length > BUFFER_SIZE ) {
+            flushBuffer();
+        }
+        System.arraycopy( bytes, 0, buffer, bufferCount, bytes.length );
+        bufferCount += bytes.length;
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if( bufferCount > 0 ) {
+            out.write( buffer, 0, bufferCount );
+            bufferCount = 0;
+        }
+    }
+
+    /**
+     * Gets the RTF for a char that can't be written as is
+     *
+     * @param c the char
+     * @return the escape for the char
+     */
+    static byte[] getEscape( final char c )
+    {
+        if( c < 0x100 ) {
+            return( ESCAPES[c] );
+        }
+        final int i = Arrays.binarySearch( CP1252_CHARS, c );
+        return( i >= 0 ? CP1252_ESCAPES[i] : getUnicodeEscape( c ));
+    }
+
+    private static byte[] getCodePageEscape( final int code )
+    {
+        return( getAsciiBytes( "\\'" + Integer.toHexString( code )));
+    }
+
+    private static byte[] getUnicodeEscape( final char c )
+    {
+        return( getAsciiBytes( "\\u" + (short) c + "?" ));
+    }
+
+    private static byte[] getAsciiBytes( final String s )
+    {
+        final byte[] bytes = new byte[s.length()];
+        for( int i = 0; i < bytes.length; i++ ) {
+            bytes[i] = (byte) s.charAt( i );
+        }
+        return( bytes );
+    }
+
     //==== getters and setters ====//
     
     public boolean isOpen()
@@ -122,7 +122,8 @@ public class Start implements IPlugin
             case REPLACED_COMMAND: //TODO
                 break;
 
-            case SYMBOL:  //TODO
+            case SYMBOL:
+                processCommand( gdd, ctable, tok, tokenNumber );
                 break;
 
             case TEXT:
@@ -155,7 +156,7 @@ public class Start implements IPlugin
         assert( tok != null );
         assert( outfile != null );
 
-        IOutputCommand command = commandTable.getCommand( tok.getRoot() );
+        IOutputCommand command = commandTable.getCommandFor( tok );
         if( command == null ) {
             //TODO: error message
             return;
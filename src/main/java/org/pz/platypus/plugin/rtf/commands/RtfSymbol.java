@@ -0,0 +1,111 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.rtf.commands;
+
+import org.pz.platypus.Token;
+import org.pz.platypus.interfaces.IOutputCommand;
+import org.pz.platypus.interfaces.IOutputContext;
+import org.pz.platypus.plugin.rtf.RtfData;
+import org.pz.platypus.plugin.rtf.RtfOutfile;
+
+import java.io.IOException;
+
+/**
+ * This is the command-equivalent that is called by the RTF plugin to 'execute' a symbol.
+ * The symbols are defined in the same file as those of the PDF plugin: a definition is
+ * a char, or a Unicode value (such as \\u00E6), optionally preceded by a font in braces.
+ * The chars are written in the Symbol font if that's the font specified; otherwise in the
+ * current font, as the RTF reader will find a font for them.
+ *
+ * The definition is parsed once, when the symbol is loaded into the command table.
+ *
+ * @author alb
+ */
+public class RtfSymbol implements IOutputCommand
+{
+    private final String root;
+
+    /** the chars to emit for the symbol */
+    private final String chars;
+
+    /** is the symbol in the Symbol font? */
+    private final boolean inSymbolFont;
+
+    public RtfSymbol( final String symbolRoot, final String definition )
+    {
+        root = symbolRoot;
+
+        String def = ( definition == null ? "" : definition );
+        String fontName = "";
+        final int closingBrace = def.indexOf( '}' );
+        if( def.startsWith( "{" ) && closingBrace > 0 ) {
+            fontName = def.substring( 1, closingBrace );
+            def = def.substring( closingBrace + 1 );
+        }
+
+        chars = getChars( def );
+        inSymbolFont = fontName.equalsIgnoreCase( "Symbol" ) && ! chars.isEmpty();
+    }
+
+    /**
+     * Converts a symbol definition (without any font) to the chars it specifies
+     *
+     * @param def the definition: a Unicode value in the format \\u12CD, or the chars as is
+     * @return the chars; a pair of surrogates for a value beyond the Basic Multilingual Plane
+     */
+    static String getChars( final String def )
+    {
+        if( def.startsWith( "\\\\u" ) && def.length() > 3 ) {
+            try {
+                return( new String( Character.toChars( Integer.parseInt( def.substring( 3 ), 16 ))));
+            }
+            catch( IllegalArgumentException iae ) { // including a NumberFormatException
+                return( def );
+            }
+        }
+        return( def );
+    }
+
+    public int process( final IOutputContext context, final Token tok, final int tokNum )
+    {
+        if( context == null ) {
+            throw new IllegalArgumentException();
+        }
+
+        final RtfOutfile outfile = ((RtfData) context).getOutfile();
+        try {
+            if( inSymbolFont ) {
+                outfile.writeCommand( "{\\f" + RtfOutfile.SYMBOL_FONT + " " );
+                outfile.writeText( chars );
+                outfile.writeCommand( "}" );
+            }
+            else {
+                outfile.writeText( chars );
+            }
+        }
+        catch( IOException ioe ) {
+            // the error has already been logged by the outfile
+        }
+        return 0;
+    }
+
+    public String getRoot()
+    {
+        return( root );
+    }
+
+    public String getChars()
+    {
+        return( chars );
+    }
+
+    public boolean isInSymbolFont()
+    {
+        return( inSymbolFont );
+    }
+}
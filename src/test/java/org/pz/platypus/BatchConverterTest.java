@@ -0,0 +1,132 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Test of the batch converter's handling of document lists and per-document setup
+ *
+ * @author alb
+ */
+public class BatchConverterTest
+{
+    private GDD gdd;
+
+    @Before
+    public void setUp()
+    {
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.getLogger().setLevel( Level.OFF );
+    }
+
+    private BatchConverter createConverter( final String[] args )
+    {
+        return( new BatchConverter( gdd, new CommandLineArgs( args ),
+                                    new PrintStream( new ByteArrayOutputStream() )));
+    }
+
+    @Test
+    public void isRequested()
+    {
+        assertTrue( BatchConverter.isRequested( new CommandLineArgs( new String[] { "-batch", "list.txt" } )));
+        assertTrue( BatchConverter.isRequested( new CommandLineArgs( new String[] { "-server" } )));
+        assertFalse( BatchConverter.isRequested( new CommandLineArgs( new String[] { "in.txt", "out.pdf" } )));
+    }
+
+    @Test
+    public void threadCount()
+    {
+        assertEquals( 3, BatchConverter.computeThreadCount(
+                            new CommandLineArgs( new String[] { "-batch", "x", "-threads", "3" } )));
+        assertEquals( Runtime.getRuntime().availableProcessors(), BatchConverter.computeThreadCount(
+                            new CommandLineArgs( new String[] { "-batch", "x", "-threads", "none" } )));
+    }
+
+    @Test
+    public void parserThreadCount()
+    {
+        assertEquals( 1, BatchConverter.computeParserThreadCount( 4 ));
+        assertEquals( Runtime.getRuntime().availableProcessors(),
+                      BatchConverter.computeParserThreadCount( 1 ));
+    }
+
+    @Test
+    public void parseListLineWithSpaces()
+    {
+        BatchConverter bc = createConverter( new String[] { "-batch", "list.txt" } );
+        assertTrue( Arrays.equals( new String[] { "a.txt", "b.pdf" }, bc.parseListLine( "  a.txt   b.pdf " )));
+    }
+
+    @Test
+    public void parseListLineWithTab()
+    {
+        BatchConverter bc = createConverter( new String[] { "-batch", "list.txt" } );
+        assertTrue( Arrays.equals( new String[] { "my doc.txt", "my doc.html" },
+                                   bc.parseListLine( "my doc.txt\tmy doc.html" )));
+    }
+
+    @Test
+    public void parseListLineSkipsBlanksAndComments()
+    {
+        BatchConverter bc = createConverter( new String[] { "-batch", "list.txt" } );
+        assertNull( bc.parseListLine( "   " ));
+        assertNull( bc.parseListLine( "# a comment" ));
+    }
+
+    @Test
+    public void parseListLineDerivesOutputFile()
+    {
+        BatchConverter bc = createConverter( new String[] { "-batch", "list.txt", "-format", "html" } );
+        assertTrue( Arrays.equals( new String[] { "dir.v2/a.txt", "dir.v2/a.html" },
+                                   bc.parseListLine( "dir.v2/a.txt" )));
+        assertEquals( "dir.v2/readme.html", bc.deriveOutputFilename( "dir.v2/readme" ));
+    }
+
+    @Test
+    public void documentArgsCarryOptions()
+    {
+        BatchConverter bc = createConverter( new String[] { "-batch", "list.txt", "-verbose", "-format", "pdf",
+                                                            "-encoding", "ISO-8859-1" } );
+        CommandLineArgs docArgs = new CommandLineArgs( bc.createDocumentArgs( "a.txt", "b.out" ));
+        assertEquals( "a.txt", docArgs.lookup( "inputFile" ));
+        assertEquals( "b.out", docArgs.lookup( "outputFile" ));
+        assertEquals( "pdf", docArgs.lookup( "format" ));
+        assertEquals( "ISO-8859-1", docArgs.lookup( "encoding" ));
+        assertNotNull( docArgs.lookup( "verbose" ));
+        assertNull( docArgs.lookup( "stream" ));
+    }
+
+    @Test
+    public void documentGddSharesTables()
+    {
+        gdd.setCommandTable( new CommandTable( gdd ));
+        BatchConverter bc = createConverter( new String[] { "-batch", "list.txt" } );
+        CommandLineArgs docArgs = new CommandLineArgs( bc.createDocumentArgs( "a.txt", "b.pdf" ));
+        GDD docGdd = bc.createDocumentGdd( docArgs );
+
+        assertNotSame( gdd, docGdd );
+        assertSame( gdd.getCommandTable(), docGdd.getCommandTable() );
+        assertSame( gdd.getSharedTables(), docGdd.getSharedTables() );
+        assertSame( gdd.getLits(), docGdd.getLits() );
+        assertNotSame( gdd.getInputTokens(), docGdd.getInputTokens() );
+        assertEquals( "b.pdf", docGdd.getSysStrings().getString( "_outputFile" ));
+    }
+}
@@ -0,0 +1,66 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the ids assigned to command roots
+ *
+ * @author alb
+ */
+public class CommandIdsTest
+{
+    @Test
+    public void registeringTwiceGivesSameId()
+    {
+        int id = CommandIds.register( "[test-root:" );
+        assertEquals( id, CommandIds.register( new String( "[test-root:" )));
+        assertEquals( id, CommandIds.lookup( "[test-root:" ));
+        assertEquals( "[test-root:", CommandIds.getRoot( id ));
+    }
+
+    @Test
+    public void unknownRootHasNoId()
+    {
+        assertEquals( CommandIds.NONE, CommandIds.lookup( "[never-registered]" ));
+        assertEquals( CommandIds.NONE, CommandIds.lookup( null ));
+        assertNull( CommandIds.getRoot( CommandIds.NONE ));
+    }
+
+    @Test
+    public void eolHasFixedId()
+    {
+        assertEquals( CommandIds.EOL, CommandIds.lookup( "[cr]" ));
+        assertTrue( CommandIds.getCount() > CommandIds.HARD_CR );
+    }
+
+    @Test
+    public void tokenCarriesId()
+    {
+        Token tok = new Token( new Source( 1 ), TokenType.COMMAND, "[cr]", "[cr]", null );
+        assertEquals( CommandIds.EOL, tok.getCommandId() );
+
+        Token text = new Token( new Source( 1 ), TokenType.TEXT, "[cr]" );
+        assertEquals( CommandIds.NONE, text.getCommandId() );
+    }
+
+    @Test
+    public void tokenListKeepsId()
+    {
+        TokenList tl = new TokenList();
+        tl.add( new Token( new Source( 1 ), TokenType.COMMAND, "[]", "[]", null ));
+        tl.add( new Token( new Source( 1 ), TokenType.MACRO, "[$unknown]", null, null ));
+
+        assertEquals( CommandIds.HARD_CR, tl.get( 0 ).getCommandId() );
+        assertEquals( "[]", tl.get( 0 ).getRoot() );
+        assertEquals( CommandIds.NONE, tl.get( 1 ).getCommandId() );
+        assertEquals( "[$unknown]", tl.get( 1 ).getRoot() );
+    }
+}
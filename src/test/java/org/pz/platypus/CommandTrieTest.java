@@ -0,0 +1,80 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.commandTypes.Command0;
+import org.pz.platypus.commandTypes.CommandV;
+import org.pz.platypus.interfaces.ICommand;
+
+/**
+ * Tests for CommandTrie
+ *
+ * @author alb
+ */
+public class CommandTrieTest
+{
+    private CommandTrie trie;
+    private ICommand bold;
+    private ICommand fsize;
+    private ICommand fontSize;
+
+    @Before
+    public void setUp()
+    {
+        trie = new CommandTrie();
+        bold = new Command0( "[+b]", 'y' );
+        fsize = new CommandV( "[fsize:", 'y' );
+        fontSize = new CommandV( "[font|size:", 'y' );
+        trie.add( "[+b]", bold );
+        trie.add( "[fsize:", fsize );
+        trie.add( "[font|size:", fontSize );
+    }
+
+    @Test
+    public void testMatchRoot()
+    {
+        assertSame( bold, trie.match( "", "ab[+b]cd".toCharArray(), 2 ));
+        assertSame( fsize, trie.match( "", "[fsize:12pt]".toCharArray(), 0 ));
+    }
+
+    @Test
+    public void testMatchFamilyMember()
+    {
+        final char[] line = "[font|size:12pt]".toCharArray();
+        assertSame( fontSize, trie.match( "[font|", line, 6 ));
+
+        // without the family root as a prefix, the match ends at the |
+        assertNull( trie.match( "", line, 0 ));
+    }
+
+    @Test
+    public void testMatchPrefixOfRootOnly()
+    {
+        assertNull( trie.match( "", "[font|face:Arial]".toCharArray(), 0 ));
+        assertNull( trie.match( "", "[+bx]".toCharArray(), 0 ));
+        assertNull( trie.match( "", "[+]".toCharArray(), 0 ));
+    }
+
+    @Test
+    public void testMatchWithoutTerminator()
+    {
+        assertNull( trie.match( "", "[+b".toCharArray(), 0 ));
+        assertNull( trie.match( "[font|", "[font|size".toCharArray(), 6 ));
+    }
+
+    @Test
+    public void testAddReplacesCommand()
+    {
+        final ICommand other = new Command0( "[+b]", 'n' );
+        trie.add( "[+b]", other );
+        assertSame( other, trie.match( "", "[+b]".toCharArray(), 0 ));
+    }
+}
@@ -0,0 +1,131 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Test of the persistent index of font files
+ *
+ * @author alb
+ */
+public class FontIndexTest
+{
+    private GDD gdd;
+    private File indexFile;
+    private File fontFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.getLogger().setLevel( Level.OFF );
+
+        indexFile = File.createTempFile( "fontindex", ".txt" );
+        indexFile.delete();
+        fontFile = File.createTempFile( "notAFont", ".ttf" );
+        FileWriter fw = new FileWriter( fontFile );
+        fw.write( "this is not a font file" );
+        fw.close();
+    }
+
+    @After
+    public void tearDown()
+    {
+        indexFile.delete();
+        fontFile.delete();
+    }
+
+    @Test
+    public void loadLineValid()
+    {
+        FontIndex fi = new FontIndex( gdd, indexFile.getPath() );
+        fi.loadLine( "/fonts/a.ttf\t100\t200\tArial\tArial Bold" );
+        assertEquals( 1, fi.getSize() );
+        assertTrue( Arrays.equals( new String[] { "Arial", "Arial Bold" },
+                                   fi.getFamilies( "/fonts/a.ttf" )));
+    }
+
+    @Test
+    public void loadLineMalformed()
+    {
+        FontIndex fi = new FontIndex( gdd, indexFile.getPath() );
+        fi.loadLine( "/fonts/a.ttf\tnot-a-number\t200\tArial" );
+        fi.loadLine( "/fonts/b.ttf" );
+        assertEquals( 0, fi.getSize() );
+    }
+
+    @Test
+    public void unknownFileHasNoFamilies()
+    {
+        FontIndex fi = new FontIndex( gdd, indexFile.getPath() );
+        assertEquals( 0, fi.getFamilies( "nothing.ttf" ).length );
+    }
+
+    @Test
+    public void unchangedFilesAreNotReread()
+    {
+        TypefaceMap tfm = new TypefaceMap( gdd );
+
+        FontIndex fi = new FontIndex( gdd, indexFile.getPath() );
+        fi.load();
+        fi.refresh( Arrays.asList( fontFile.getPath() ), tfm );
+        assertEquals( 1, fi.getFilesRead() );
+        assertEquals( 1, fi.getSize() );
+        fi.save();
+
+        FontIndex fi2 = new FontIndex( gdd, indexFile.getPath() );
+        fi2.load();
+        assertEquals( 1, fi2.getSize() );
+        fi2.refresh( Arrays.asList( fontFile.getPath() ), tfm );
+        assertEquals( 0, fi2.getFilesRead() );
+    }
+
+    @Test
+    public void changedFilesAreReread() throws IOException
+    {
+        TypefaceMap tfm = new TypefaceMap( gdd );
+
+        FontIndex fi = new FontIndex( gdd, indexFile.getPath() );
+        fi.refresh( Arrays.asList( fontFile.getPath() ), tfm );
+
+        FileWriter fw = new FileWriter( fontFile, true );
+        fw.write( "more bytes" );
+        fw.close();
+
+        fi.refresh( Arrays.asList( fontFile.getPath() ), tfm );
+        assertEquals( 1, fi.getFilesRead() );
+    }
+
+    @Test
+    public void removedFilesAreDropped()
+    {
+        TypefaceMap tfm = new TypefaceMap( gdd );
+
+        FontIndex fi = new FontIndex( gdd, indexFile.getPath() );
+        fi.refresh( Arrays.asList( fontFile.getPath() ), tfm );
+        assertEquals( 1, fi.getSize() );
+
+        fi.refresh( Arrays.<String>asList(), tfm );
+        assertEquals( 0, fi.getSize() );
+    }
+}
@@ -12,6 +12,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.pz.platypus.exceptions.FilenameLookupException;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
 public class InfileTest
 {
     private GDD gdd;
@@ -104,4 +110,99 @@ public class InfileTest
         Infile inf = new Infile( validFilename, gdd );
         assertEquals( Status.INVALID_PARAM_NULL, inf.readFileIntoInputLines( null ));
     }
+
+    @Test
+    public void everyKindOfLineEndBecomesLf() throws Exception
+    {
+        LineList lines = readFile( "one\ntwo\r\nthree\rfour\r\n\nlast".getBytes( "UTF-8" ), null );
+        assertEquals( 6, lines.size() );
+        assertEquals( "one\n", lines.get( 0 ).getContent() );
+        assertEquals( "two\n", lines.get( 1 ).getContent() );
+        assertEquals( "three\n", lines.get( 2 ).getContent() );
+        assertEquals( "four\n", lines.get( 3 ).getContent() );
+        assertEquals( "\n", lines.get( 4 ).getContent() );
+        assertEquals( "last\n", lines.get( 5 ).getContent() );
+        assertEquals( 6, lines.get( 5 ).getSource().getLineNumber() );
+    }
+
+    @Test
+    public void emptyFileHasNoLines() throws Exception
+    {
+        assertEquals( 0, readFile( new byte[0], null ).size() );
+    }
+
+    @Test
+    public void fileIsReadAsUtf8ByDefault() throws Exception
+    {
+        LineList lines = readFile( "na\u00efve caf\u00e9 \u20ac\n".getBytes( "UTF-8" ), null );
+        assertEquals( "na\u00efve caf\u00e9 \u20ac\n", lines.get( 0 ).getContent() );
+    }
+
+    @Test
+    public void charsetCanBeSet() throws Exception
+    {
+        LineList lines = readFile( "caf\u00e9\n".getBytes( "ISO-8859-1" ),
+                                   Charset.forName( "ISO-8859-1" ));
+        assertEquals( "caf\u00e9\n", lines.get( 0 ).getContent() );
+    }
+
+    @Test
+    public void byteOrderMarkSetsCharset() throws Exception
+    {
+        byte[] text = "caf\u00e9\n".getBytes( "UTF-16LE" );
+        byte[] file = new byte[text.length + 2];
+        file[0] = (byte) 0xFF;
+        file[1] = (byte) 0xFE;
+        System.arraycopy( text, 0, file, 2, text.length );
+        assertEquals( "caf\u00e9\n", readFile( file, Charset.forName( "ISO-8859-1" )).get( 0 ).getContent() );
+
+        byte[] utf8 = "\ufeffcaf\u00e9\n".getBytes( "UTF-8" );
+        assertEquals( "caf\u00e9\n", readFile( utf8, null ).get( 0 ).getContent() );
+    }
+
+    @Test
+    public void linesLongerThanTheBufferAreRead() throws Exception
+    {
+        char[] longLine = new char[Infile.BUFFER_SIZE * 3 + 7];
+        Arrays.fill( longLine, '\u00e9' );
+        String text = "short\r" + new String( longLine ) + "\r\nend\n";
+        LineList lines = readFile( text.getBytes( "UTF-8" ), null );
+        assertEquals( 3, lines.size() );
+        assertEquals( new String( longLine ) + "\n", lines.get( 1 ).getContent() );
+        assertEquals( "end\n", lines.get( 2 ).getContent() );
+    }
+
+    /**
+     * Writes the bytes to a temporary file and reads it into lines
+     *
+     * @param content the contents of the file
+     * @param charset the charset to read it with; null for the default
+     * @return the lines read
+     * @throws IOException if the file can't be written
+     */
+    private LineList readFile( final byte[] content, final Charset charset ) throws IOException
+    {
+        File file = File.createTempFile( "platypus-test", ".txt" );
+        try {
+            FileOutputStream out = new FileOutputStream( file );
+            out.write( content );
+            out.close();
+
+            gdd.getInputFileList().addFilename( file.getPath() );
+            Infile inf = new Infile( file.getPath(), gdd );
+            if( charset != null ) {
+                inf.setCharset( charset );
+            }
+            LineList lines = new LineList();
+            assertTrue( inf.readFileIntoInputLines( lines ) >= 0 );
+            return( lines );
+        }
+        catch( FilenameLookupException fle ) {
+            fail( "unexpected exception adding filename in readFile()" );
+            return( null );
+        }
+        finally {
+            file.delete();
+        }
+    }
 }
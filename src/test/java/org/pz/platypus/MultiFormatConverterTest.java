@@ -0,0 +1,105 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Tests of the set-up of multi-format conversion: the formats, output files, args, and
+ * the grouping of formats that can share one parse.
+ *
+ * @author alb
+ */
+public class MultiFormatConverterTest
+{
+    private GDD gdd;
+
+    @Before
+    public void setUp()
+    {
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.getLogger().setLevel( Level.OFF );
+    }
+
+    private MultiFormatConverter createConverter( final String[] args )
+    {
+        return( new MultiFormatConverter( gdd, new CommandLineArgs( args )));
+    }
+
+    @Test
+    public void isRequested()
+    {
+        assertTrue( MultiFormatConverter.isRequested(
+                        new CommandLineArgs( new String[] { "in.txt", "-formats", "pdf,html" } )));
+        assertFalse( MultiFormatConverter.isRequested(
+                        new CommandLineArgs( new String[] { "in.txt", "out.pdf" } )));
+    }
+
+    @Test
+    public void parseFormats()
+    {
+        assertEquals( Arrays.asList( "pdf", "html", "rtf" ),
+                      MultiFormatConverter.parseFormats( " PDF, html,,rtf,pdf " ));
+        assertTrue( MultiFormatConverter.parseFormats( "," ).isEmpty() );
+    }
+
+    @Test
+    public void outputFilenameFromOutputFile()
+    {
+        MultiFormatConverter mfc =
+                createConverter( new String[] { "in.txt", "out/doc.v2.pdf", "-formats", "pdf,html" } );
+        assertEquals( "out/doc.v2.html", mfc.deriveOutputFilename( "html" ));
+    }
+
+    @Test
+    public void outputFilenameFromInputFile()
+    {
+        MultiFormatConverter mfc = createConverter( new String[] { "docs/readme.txt", "-formats", "rtf" } );
+        assertEquals( "docs/readme.rtf", mfc.deriveOutputFilename( "rtf" ));
+    }
+
+    @Test
+    public void formatArgsCarryOptions()
+    {
+        MultiFormatConverter mfc = createConverter( new String[] { "in.txt", "-formats", "pdf,html",
+                                                                   "-encoding", "ISO-8859-1",
+                                                                   "-verbose", "-stream" } );
+        CommandLineArgs docArgs = new CommandLineArgs( mfc.createFormatArgs( "in.txt", "in.html", "html" ));
+        assertEquals( "in.txt", docArgs.lookup( "inputFile" ));
+        assertEquals( "in.html", docArgs.lookup( "outputFile" ));
+        assertEquals( "html", docArgs.lookup( "format" ));
+        assertEquals( "ISO-8859-1", docArgs.lookup( "encoding" ));
+        assertNotNull( docArgs.lookup( "verbose" ));
+        assertNull( docArgs.lookup( "stream" ));
+        assertNull( docArgs.lookup( "formats" ));
+    }
+
+    @Test
+    public void parseSettingsDefaultToThoseOfPdf()
+    {
+        PropertyFile config = new PropertyFile();
+        config.loadLine( "pi.out.pdf.platyparse=yes" );
+        config.loadLine( "pi.out.pdf.passthrough_escape_char=no" );
+        config.loadLine( "pi.out.listing.passthrough_escape_char=yes" );
+
+        assertEquals( MultiFormatConverter.lookupParseSettings( config, "pdf" ),
+                      MultiFormatConverter.lookupParseSettings( config, "html" ));
+        assertFalse( MultiFormatConverter.lookupParseSettings( config, "pdf" ).equals(
+                     MultiFormatConverter.lookupParseSettings( config, "listing" )));
+    }
+}
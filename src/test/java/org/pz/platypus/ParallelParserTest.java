@@ -0,0 +1,169 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+import org.pz.platypus.test.mocks.MockPropertyFile;
+import org.pz.platypus.commandTypes.CommandV;
+import org.pz.platypus.commandTypes.CommandS;
+import org.pz.platypus.commandTypes.CommandR;
+
+import java.util.ArrayList;
+
+/**
+ * Tests for ParallelParser: the tokens must be the same as those from PlatypusParser
+ *
+ * @author alb
+ */
+public class ParallelParserTest
+{
+    private RecordingGdd gdd;
+    private MockPropertyFile configFile;
+
+    /** a GDD that records the info and warning messages logged to it */
+    static class RecordingGdd extends GDD
+    {
+        final ArrayList<String> messages = new ArrayList<String>();
+
+        @Override
+        public void logInfo( final String msg )    { messages.add( "info: " + msg ); }
+
+        @Override
+        public void logWarning( final String msg ) { messages.add( "warning: " + msg ); }
+    }
+
+    @Before
+    public void setUp()
+    {
+        gdd = new RecordingGdd();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+
+        CommandTable ct = new CommandTable( gdd );
+        ct.add( new CommandV( "[font|:", 'n' ));
+        ct.add( new CommandS( "[font|face:", 'n' ));
+        ct.add( new CommandV( "[font|size:", 'n' ));
+        ct.add( new CommandR( "[fsize:", "r [font|size:", ct ));
+        gdd.setCommandTable( ct );
+
+        configFile = new MockPropertyFile();
+        configFile.lookupShouldReturnNull();
+    }
+
+    private LineList createLines( final String[] contents, final int count )
+    {
+        final LineList lines = new LineList();
+        for( int i = 0; i < count; i++ ) {
+            lines.add( new InputLine( 1, i + 1, contents[i % contents.length] ));
+        }
+        return( lines );
+    }
+
+    private TokenList parseSerially( final LineList lines )
+    {
+        final TokenList tokens = new TokenList();
+        assertEquals( Status.OK,
+                      new PlatypusParser( gdd ).parse( lines, tokens, configFile, "pdf" ));
+        return( tokens );
+    }
+
+    private TokenList parseInParallel( final LineList lines, final int threads, final int minChunk )
+    {
+        final TokenList tokens = new TokenList();
+        assertEquals( Status.OK,
+                      new ParallelParser( gdd, threads, minChunk ).parse( lines, tokens,
+                                                                         configFile, "pdf" ));
+        return( tokens );
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorInvalidThreadCount()
+    {
+        new ParallelParser( gdd, 0 );
+    }
+
+    @Test
+    public void testParseNullParams()
+    {
+        final ParallelParser pp = new ParallelParser( gdd, 4 );
+        assertEquals( Status.INVALID_PARAM_NULL,
+                      pp.parse( null, new TokenList(), configFile, "pdf" ));
+        assertEquals( Status.INVALID_PARAM_NULL,
+                      pp.parse( new LineList(), new TokenList(), configFile, null ));
+    }
+
+    @Test
+    public void testParseSameAsSerial()
+    {
+        final String[] contents = {
+            "Some text [font|size:14pt]bigger[fsize:12pt] text.\n",
+            "[font|face:COURIER]code[font|face:TIMES_ROMAN]\n",
+            "// a line comment\n",
+            "Text, [%inline comment%] more text.\n",
+            "\n" };
+        final LineList lines = createLines( contents, 103 );
+
+        final TokenList serial = parseSerially( lines );
+        final TokenList parallel = parseInParallel( lines, 4, 10 );
+
+        assertEquals( serial.size(), parallel.size() );
+        for( int i = 0; i < serial.size(); i++ ) {
+            assertEquals( serial.get( i ), parallel.get( i ));
+        }
+    }
+
+    @Test
+    public void testBlockCommentAcrossChunks()
+    {
+        // chunks are 10 lines each, so the comment on lines 8 to 23 spans three chunks
+        final LineList lines = createLines( new String[] { "text [fsize:12pt] text\n" }, 40 );
+        lines.set( 7, new InputLine( 1, 8, "before [% a block comment that\n" ));
+        lines.set( 10, new InputLine( 1, 11, "[fsize:14pt] is still in the comment\n" ));
+        lines.set( 22, new InputLine( 1, 23, "ends here %] after\n" ));
+
+        final TokenList serial = parseSerially( lines );
+        final TokenList parallel = parseInParallel( lines, 4, 10 );
+
+        assertEquals( serial.size(), parallel.size() );
+        for( int i = 0; i < serial.size(); i++ ) {
+            assertEquals( serial.get( i ), parallel.get( i ));
+        }
+    }
+
+    @Test
+    public void testMessagesLoggedInOrder()
+    {
+        final LineList lines = createLines( new String[] { "text\n" }, 40 );
+        for( int i = 0; i < 40; i += 7 ) {
+            lines.set( i, new InputLine( 1, i + 1, "[nosuchcommand" + i + "] text\n" ));
+        }
+
+        parseSerially( lines );
+        final ArrayList<String> serialMessages = new ArrayList<String>( gdd.messages );
+        assertFalse( serialMessages.isEmpty() );
+
+        gdd.messages.clear();
+        parseInParallel( lines, 4, 10 );
+        assertEquals( serialMessages, gdd.messages );
+    }
+
+    @Test
+    public void testSmallInputParsedSerially()
+    {
+        final LineList lines = createLines( new String[] { "text [fsize:12pt] text\n" }, 15 );
+
+        final TokenList serial = parseSerially( lines );
+        final TokenList parallel = parseInParallel( lines, 4, 10 );
+        assertEquals( serial, parallel );
+    }
+}
@@ -18,6 +18,18 @@ public class ParseContextTest
     {
         assertEquals( 1, 2-1 );
     }
+
+    @Test
+    public void moveToNextSegment()
+    {
+        ParseContext pc = new ParseContext( new GDD(), new Source(), "abc [+b]def]\n", 0 );
+        assertTrue( pc.containsInRemainingChars( "]" ));
+        pc.moveTo( 8 );
+        assertEquals( 8, pc.startPoint );
+        assertEquals( "def", pc.segment( 11 ));
+        assertEquals( 11, pc.getLocation( "]" ));
+        assertFalse( pc.containsInRemainingChars( "[" ));
+    }
 //        Source source = new Source();
 //        ParseContext pc = new ParseContext( null, source, "Edo12345\n", 0 );
 //        pc.replaceStringWithNewStringAtCurrentLocation( "Edo", "Tokyo" );
@@ -0,0 +1,53 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the tables shared by all documents in a run
+ *
+ * @author alb
+ */
+public class SharedTablesTest
+{
+    @Test
+    public void addAndGet()
+    {
+        SharedTables st = new SharedTables();
+        Object table = new Object();
+        assertSame( table, st.add( "table", table ));
+        assertSame( table, st.get( "table" ));
+        assertEquals( 1, st.getSize() );
+    }
+
+    @Test
+    public void firstTableAddedIsKept()
+    {
+        SharedTables st = new SharedTables();
+        Object first = new Object();
+        st.add( "table", first );
+        assertSame( first, st.add( "table", new Object() ));
+        assertSame( first, st.get( "table" ));
+    }
+
+    @Test
+    public void missingTableIsNull()
+    {
+        SharedTables st = new SharedTables();
+        assertNull( st.get( "nothing" ));
+        assertNull( st.get( null ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullTableIsInvalid()
+    {
+        new SharedTables().add( "table", null );
+    }
+}
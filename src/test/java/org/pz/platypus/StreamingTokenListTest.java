@@ -0,0 +1,192 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2006-10 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Tests for the token list used in streaming mode
+ *
+ * @author alb
+ */
+public class StreamingTokenListTest
+{
+    private GDD gdd;
+    private File inputFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.setCommandTable( new CommandTable( gdd ));
+
+        inputFile = File.createTempFile( "platypus", ".txt" );
+        inputFile.deleteOnExit();
+        gdd.getInputFileList().addFilename( inputFile.getPath() );
+    }
+
+    @After
+    public void tearDown()
+    {
+        inputFile.delete();
+    }
+
+    private void writeLines( final int count ) throws IOException
+    {
+        FileWriter fw = new FileWriter( inputFile );
+        for( int i = 0; i < count; i++ ) {
+            fw.write( "line number " + i + "\n" );
+        }
+        fw.close();
+    }
+
+    private StreamingTokenList openStream()
+    {
+        Infile infile = new Infile( inputFile.getPath(), gdd );
+        StreamingTokenList tokens = new StreamingTokenList( infile, new PlatypusParser( gdd ), gdd );
+        tokens.start();
+        return( tokens );
+    }
+
+    @Test
+    public void testSameTokensAsSerialParse() throws IOException
+    {
+        writeLines( 5000 );
+
+        LineList lines = new LineList();
+        new Infile( inputFile.getPath(), gdd ).readFileIntoInputLines( lines );
+        TokenList serial = new TokenList();
+        PlatypusParser pp = new PlatypusParser( gdd );
+        for( InputLine line : lines ) {
+            pp.parseLine( serial, line );
+        }
+
+        StreamingTokenList streamed = openStream();
+        int i;
+        for( i = 0; i < streamed.size(); i++ ) {
+            Token t = streamed.get( i );
+            assertEquals( serial.get( i ).getContent(), t.getContent() );
+            assertTrue( serial.get( i ).sourceEquals( t ));
+        }
+
+        assertEquals( serial.size(), i );
+        assertEquals( Status.OK, streamed.getStatus() );
+    }
+
+    @Test
+    public void testCloseStopsProducerThatIsAhead() throws Exception
+    {
+        writeLines( 100000 );
+
+        StreamingTokenList streamed = openStream();
+        streamed.get( 0 );
+        streamed.close();
+
+        for( int i = 0; i < 100 && streamed.isProducing(); i++ ) {
+            Thread.sleep( 50 );
+        }
+        assertFalse( streamed.isProducing() );
+        assertEquals( "line number 0", streamed.get( 0 ).getContent().trim() );
+    }
+
+    @Test
+    public void testCloseWithoutStart() throws IOException
+    {
+        writeLines( 10 );
+
+        Infile infile = new Infile( inputFile.getPath(), gdd );
+        assertEquals( Status.OK, infile.open() );
+        StreamingTokenList tokens = new StreamingTokenList( infile, new PlatypusParser( gdd ), gdd );
+        tokens.close();
+        tokens.start();
+
+        assertFalse( tokens.isProducing() );
+        assertEquals( 0, tokens.size() );
+    }
+
+    @Test
+    public void testEarlyTokensAreDiscarded() throws IOException
+    {
+        writeLines( 10000 );
+
+        StreamingTokenList streamed = openStream();
+        for( int i = 0; i < streamed.size(); i++ ) {
+            streamed.get( i );
+        }
+
+        assertTrue( streamed.getBase() > 0 );
+        try {
+            streamed.get( 0 );
+            fail( "discarded token should not be available" );
+        }
+        catch( IndexOutOfBoundsException ioobe ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSizeLooksAhead() throws IOException
+    {
+        writeLines( 1000 );
+
+        StreamingTokenList streamed = openStream();
+        streamed.get( 100 );
+        assertTrue( streamed.size() >= 100 + 1 + StreamingTokenList.LOOKAHEAD );
+    }
+
+    @Test
+    public void testInjectedTokenIsNext() throws IOException
+    {
+        writeLines( 1000 );
+
+        StreamingTokenList streamed = openStream();
+        Token tok = streamed.get( 1500 );
+        streamed.add( 1501, new Token( tok.getSource(), TokenType.MACRO_TEXT, "injected" ));
+
+        assertEquals( "injected", streamed.get( 1501 ).getContent() );
+        assertEquals( TokenType.MACRO_TEXT, streamed.get( 1501 ).getType() );
+    }
+
+    @Test
+    public void testLineSoFarEmitsTextAfterTrimming() throws IOException
+    {
+        writeLines( 10000 );
+
+        StreamingTokenList streamed = openStream();
+        int i;
+        for( i = 0; i < 15001; i++ ) {
+            streamed.get( i );
+        }
+
+        // tokens alternate: text, [cr]. So a [cr] is preceded by text on the same line.
+        int crTok = ( streamed.get( i ).getType() == TokenType.COMMAND ) ? i : i + 1;
+        assertTrue( streamed.lineSoFarEmitsText( crTok ));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException
+    {
+        writeLines( 0 );
+
+        StreamingTokenList streamed = openStream();
+        assertEquals( 0, streamed.size() );
+        assertTrue( streamed.isEmpty() );
+    }
+}
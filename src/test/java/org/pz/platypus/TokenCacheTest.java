@@ -0,0 +1,193 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.exceptions.FilenameLookupException;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+import org.pz.platypus.test.mocks.MockPropertyFile;
+
+import java.io.*;
+
+/**
+ * Tests for TokenCache
+ *
+ * @author alb
+ */
+public class TokenCacheTest
+{
+    private GDD gdd;
+    private File homeDir;
+    private File inputFile;
+    private Infile infile;
+    private TokenCache cache;
+
+    @Before
+    public void setUp() throws IOException, FilenameLookupException
+    {
+        homeDir = File.createTempFile( "platypus-home", "" );
+        homeDir.delete();
+        new File( homeDir, "config" ).mkdirs();
+        writeFile( new File( homeDir, "config/Commands.properties" ), "[+b]=+b\n" );
+        writeFile( new File( homeDir, "config/Symbols.list" ), "[alpha]\n" );
+
+        gdd = new GDD() {
+            @Override
+            public String getHomeDirectory()
+            {
+                return( homeDir.getPath() + File.separator );
+            }
+        };
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.setConfigFile( new MockPropertyFile() );
+        gdd.setOutputPluginPrefix( "pdf" );
+
+        inputFile = new File( homeDir, "input.txt" );
+        writeFile( inputFile, "Some [+b]text[-b].\n" );
+        gdd.getInputFileList().addFilename( inputFile.getPath() );
+        infile = new Infile( inputFile.getPath(), gdd );
+        cache = new TokenCache( gdd, inputFile.getPath() );
+    }
+
+    @After
+    public void tearDown()
+    {
+        for( File f : new File( homeDir, "config" ).listFiles() ) {
+            f.delete();
+        }
+        new File( homeDir, "config" ).delete();
+        for( File f : homeDir.listFiles() ) {
+            f.delete();
+        }
+        homeDir.delete();
+    }
+
+    private static void writeFile( final File file, final String content ) throws IOException
+    {
+        final Writer out = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+        out.write( content );
+        out.close();
+    }
+
+    private TokenList createTokens()
+    {
+        final TokenList tokens = new TokenList();
+        final CommandParameter cp = new CommandParameter();
+        cp.setAmount( 12.5f );
+        cp.setUnit( UnitType.POINT );
+        cp.setString( "Times \u00e9" );
+
+        tokens.add( new Token( new Source( 1, 1 ), TokenType.TEXT, "Some " ));
+        tokens.add( new Token( new Source( 1, 1 ), TokenType.COMMAND, "[+b]", "[+b]", null ));
+        tokens.add( new Token( new Source( 1, 2 ), TokenType.COMMAND, "[fsize:", "[fsize:12.5pt]", cp ));
+        tokens.add( new Token( new Source( 1, 2 ), TokenType.COMMAND, "[+b]", "[+b]", null ));
+        tokens.add( null );
+        tokens.add( new Token( new Source( 2, 7 ), TokenType.TEXT,
+                               "a longer run of text than is put in the string table\u20ac" ));
+        return( tokens );
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorNullFilename()
+    {
+        new TokenCache( gdd, null );
+    }
+
+    @Test
+    public void testCacheFilename()
+    {
+        assertEquals( inputFile.getPath() + ".ptok", cache.getCacheFile().getPath() );
+    }
+
+    @Test
+    public void testSaveAndLoad()
+    {
+        final byte[] key = cache.computeKey( infile );
+        assertNotNull( key );
+
+        final TokenList tokens = createTokens();
+        assertEquals( Status.OK, cache.save( key, tokens ));
+
+        final TokenList loaded = new TokenList();
+        assertTrue( cache.load( key, loaded ));
+        assertEquals( tokens, loaded );
+        assertEquals( "Times \u00e9", loaded.get( 2 ).getParameter().getString() );
+        assertEquals( UnitType.POINT, loaded.get( 2 ).getParameter().getUnit() );
+    }
+
+    @Test
+    public void testLoadWithoutCache()
+    {
+        assertFalse( cache.load( cache.computeKey( infile ), new TokenList() ));
+    }
+
+    @Test
+    public void testKeyChangesWithInput() throws IOException
+    {
+        final byte[] key = cache.computeKey( infile );
+        assertArrayEquals( key, cache.computeKey( infile ));
+
+        writeFile( inputFile, "Some [+b]text[-b]!\n" );
+        final byte[] newKey = cache.computeKey( infile );
+        assertFalse( java.util.Arrays.equals( key, newKey ));
+
+        cache.save( key, createTokens() );
+        assertFalse( cache.load( newKey, new TokenList() ));
+    }
+
+    @Test
+    public void testKeyChangesWithCommandsAndConfig() throws IOException
+    {
+        final byte[] key = cache.computeKey( infile );
+
+        writeFile( new File( homeDir, "config/Commands.properties" ), "[+b]=+b\n[-b]=-b\n" );
+        final byte[] commandsKey = cache.computeKey( infile );
+        assertFalse( java.util.Arrays.equals( key, commandsKey ));
+
+        ((MockPropertyFile) gdd.getConfigFile() ).lookupShouldReturnNo();
+        assertFalse( java.util.Arrays.equals( commandsKey, cache.computeKey( infile )));
+    }
+
+    @Test
+    public void testKeyChangesWithVersion()
+    {
+        final byte[] key = cache.computeKey( infile );
+
+        ((MockLiterals) gdd.getLits() ).setVersionNumberToReturn( "0.2.4" );
+        assertFalse( java.util.Arrays.equals( key, cache.computeKey( infile )));
+    }
+
+    @Test
+    public void testKeyOfMissingInput()
+    {
+        inputFile.delete();
+        assertNull( cache.computeKey( infile ));
+    }
+
+    @Test
+    public void testLoadTruncatedCache() throws IOException
+    {
+        final byte[] key = cache.computeKey( infile );
+        cache.save( key, createTokens() );
+
+        final RandomAccessFile f = new RandomAccessFile( cache.getCacheFile(), "rw" );
+        f.setLength( f.length() - 10 );
+        f.close();
+
+        final TokenList tokens = new TokenList();
+        tokens.add( new Token( new Source( 1, 1 ), TokenType.TEXT, "kept" ));
+        assertFalse( cache.load( key, tokens ));
+        assertEquals( 1, tokens.size() );
+    }
+}
@@ -10,6 +10,7 @@ package org.pz.platypus;
 import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.ArrayList;
 
 /**
  * Tests for the TokenList class
@@ -237,4 +238,314 @@ public class TokenListTest
 
         assertFalse( tl.lineSoFarEmitsText( 2 ));
     }
-}
\ No newline at end of file
+
+    private Token textToken( final String text )
+    {
+        return( new Token( new Source( 1 ), TokenType.TEXT, text ));
+    }
+
+    private String contents( final TokenList list )
+    {
+        StringBuilder sb = new StringBuilder();
+        for( Token t : list ) {
+            sb.append( t.getContent() );
+        }
+        return( sb.toString() );
+    }
+
+    @Test
+    public void insertAfterKeepsOrder()
+    {
+        tl.add( textToken( "a" ));
+        tl.add( textToken( "d" ));
+        tl.insertAfter( 0, textToken( "c" ));
+        tl.insertAfter( 0, textToken( "b" ));
+        tl.add( textToken( "e" ));
+
+        assertEquals( 5, tl.size() );
+        assertEquals( "abcde", contents( tl ));
+    }
+
+    @Test
+    public void insertWhileWalkingList()
+    {
+        // as the plugins do: expand every token by injecting a token after it
+        for( int i = 0; i < 1000; i++ ) {
+            tl.add( textToken( "x" ));
+        }
+
+        for( int i = 0; i < tl.size(); i++ ) {
+            if( tl.get( i ).getContent().equals( "x" )) {
+                tl.insertAfter( i, textToken( "y" ));
+            }
+        }
+
+        assertEquals( 2000, tl.size() );
+        for( int i = 0; i < tl.size(); i++ ) {
+            assertEquals( i % 2 == 0 ? "x" : "y", tl.get( i ).getContent() );
+        }
+    }
+
+    @Test
+    public void removeAndSet()
+    {
+        tl.add( textToken( "a" ));
+        tl.add( textToken( "b" ));
+        tl.add( textToken( "c" ));
+        tl.insertAfter( 0, textToken( "z" ));
+
+        assertEquals( "b", tl.remove( 2 ).getContent() );
+        tl.set( 1, textToken( "y" ));
+        assertEquals( "ayc", contents( tl ));
+    }
+
+    @Test
+    public void removeRangeThroughSubList()
+    {
+        for( char c = 'a'; c <= 'f'; c++ ) {
+            tl.add( textToken( String.valueOf( c )));
+        }
+        tl.insertAfter( 4, textToken( "x" ));
+
+        tl.subList( 1, 3 ).clear();
+        assertEquals( "adexf", contents( tl ));
+    }
+
+    private Token fsizeToken( final int line, final float size )
+    {
+        CommandParameter cp = new CommandParameter();
+        cp.setUnit( UnitType.POINT );
+        cp.setAmount( size );
+        cp.setCharsParsed( 4 );
+        return( new Token( new Source( 2, line ), TokenType.COMMAND,
+                           "[fsize:", "[fsize:" + (int) size + "pt]", cp ));
+    }
+
+    @Test
+    public void tokenIsStoredFieldByField()
+    {
+        Token t = fsizeToken( 13, 12f );
+        tl.add( t );
+        tl.add( new Token( new Source( 2, 13 ), null, null ));
+        tl.add( null );
+
+        assertEquals( t, tl.get( 0 ));
+        assertEquals( 2, tl.get( 0 ).getSource().getFileNumber() );
+        assertEquals( 4, tl.get( 0 ).getParameter().getCharsParsed() );
+        assertNull( tl.get( 1 ).getType() );
+        assertNull( tl.get( 1 ).getParameter() );
+        assertNull( tl.get( 2 ));
+    }
+
+    @Test
+    public void changingReturnedTokenRequiresSet()
+    {
+        tl.add( textToken( "a" ));
+        Token t = tl.get( 0 );
+        t.setContent( "b" );
+        assertEquals( "a", tl.get( 0 ).getContent() );
+
+        tl.set( 0, t );
+        assertEquals( "b", tl.get( 0 ).getContent() );
+    }
+
+    @Test
+    public void parametersFollowTheirTokens()
+    {
+        for( int i = 0; i < 100; i++ ) {
+            tl.add( i % 2 == 0 ? fsizeToken( i, i ) : textToken( "x" ));
+        }
+
+        // replace and remove tokens with parameters, so their slots are reused
+        for( int i = 0; i < 50; i += 2 ) {
+            tl.set( i, textToken( "y" ));
+        }
+        tl.subList( 50, 60 ).clear();
+        for( int i = 0; i < 20; i++ ) {
+            tl.insertAfter( 0, fsizeToken( 1000 + i, 1000 + i ));
+        }
+
+        for( Token t : tl ) {
+            if( t.getType() == TokenType.COMMAND ) {
+                assertEquals( t.getSource().getLineNumber(), (int) t.getParameter().getAmount() );
+            }
+        }
+        assertEquals( 110, tl.size() );
+    }
+
+    @Test
+    public void addAllAppendsAnotherTokenListWithParameters()
+    {
+        final TokenList other = new TokenList();
+        for( int i = 0; i < 30; i++ ) {
+            tl.add( i % 3 == 0 ? fsizeToken( i, i ) : textToken( "a" ));
+            other.add( i % 2 == 0 ? fsizeToken( 100 + i, 100 + i ) : textToken( "b" ));
+        }
+        tl.insertAfter( 5, textToken( "c" ));    // leaves the gap in the middle
+        other.remove( 0 );
+
+        final ArrayList<Token> expected = new ArrayList<Token>( tl );
+        expected.addAll( new ArrayList<Token>( other ));
+
+        assertTrue( tl.addAll( other ));
+        assertEquals( expected, tl );
+        for( Token t : tl ) {
+            if( t.getType() == TokenType.COMMAND ) {
+                assertEquals( t.getSource().getLineNumber(), (int) t.getParameter().getAmount() );
+            }
+        }
+    }
+
+    @Test
+    public void textIsStoredAsSliceOfLine()
+    {
+        final String line = "Some [+b]bold[-b] text\n";
+        final Source source = new Source( 3, 7 );
+        tl.addText( source, line, 0, 5 );
+        tl.add( new Token( source, TokenType.COMMAND, "[+b]", "[+b]", null ));
+        tl.addText( source, line, 9, 13 );
+        tl.add( new Token( source, TokenType.COMMAND, "[-b]", "[-b]", null ));
+        tl.addText( source, line, 17, 22 );
+
+        assertEquals( "Some [+b]bold[-b] text", contents( tl ));
+        assertEquals( TokenType.TEXT, tl.get( 2 ).getType() );
+        assertNull( tl.get( 2 ).getRoot() );
+        assertSame( source, tl.get( 4 ).getSource() );
+        assertTrue( tl.lineSoFarEmitsText( 1 ));
+        assertEquals( 0, tl.getLineStart( 4 ));
+
+        tl.set( 2, textToken( "plain" ));
+        tl.remove( 0 );
+        tl.insertAfter( 0, tl.get( 3 ));
+        assertEquals( "[+b] textplain[-b] text", contents( tl ));
+
+        final TokenList joined = new TokenList();
+        joined.addText( source, line, 0, 5 );
+        joined.addAll( tl );
+        assertEquals( "Some [+b] textplain[-b] text", contents( joined ));
+    }
+
+    @Test
+    public void textFarIntoLongLineIsCopied()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for( int i = 0; i < 70000; i++ ) {
+            sb.append( (char) ( 'a' + i % 26 ));
+        }
+        final String line = sb.toString();
+        tl.addText( new Source( 1 ), line, 0, 3 );
+        tl.addText( new Source( 1 ), line, 69990, 69995 );
+        tl.addText( new Source( 1 ), line, 3, 69000 );
+
+        assertEquals( "abc", tl.get( 0 ).getContent() );
+        assertEquals( line.substring( 69990, 69995 ), tl.get( 1 ).getContent() );
+        assertEquals( line.substring( 3, 69000 ), tl.get( 2 ).getContent() );
+    }
+
+    @Test
+    public void rootOfUnknownCommandIsKept()
+    {
+        CommandParameter cp = new CommandParameter();
+        cp.setString( "_version" );
+        tl.add( new Token( new Source( 1 ), TokenType.MACRO, "[$_version]", null, cp ));
+        tl.add( new Token( new Source( 1 ), TokenType.COMMAND, "[nosuch:", "[nosuch:]", null ));
+
+        assertEquals( "[$_version]", tl.get( 0 ).getRoot() );
+        assertEquals( "_version", tl.get( 0 ).getParameter().getString() );
+        assertEquals( "[nosuch:", tl.get( 1 ).getRoot() );
+        assertEquals( "[nosuch:]", tl.get( 1 ).getContent() );
+        assertNull( tl.get( 1 ).getParameter() );
+        assertEquals( CommandIds.NONE, tl.get( 1 ).getCommandId() );
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastEndIsInvalid()
+    {
+        tl.add( textToken( "a" ));
+        tl.get( 1 );
+    }
+
+    /**
+     * Finds whether the line so far emits text, and the start of the line, by walking back
+     * through the list, as lineSoFarEmitsText() used to do
+     *
+     * @return the start of the line, negated if the line so far emits text
+     */
+    private int walkLine( final TokenList list, final int tokNum )
+    {
+        final Token tok = list.get( tokNum );
+        boolean text = false;
+        int i = tokNum;
+        while( i > 0 && tok != null && tok.sourceEquals( list.get( i - 1 ))) {
+            text |= ( list.get( i - 1 ).getType() == TokenType.TEXT );
+            i--;
+        }
+        return( text ? -i - 1 : i );
+    }
+
+    private void checkLines( final TokenList list )
+    {
+        for( int i = 0; i < list.size(); i++ ) {
+            final int walked = walkLine( list, i );
+            assertEquals( "token " + i, walked < 0, list.lineSoFarEmitsText( i ));
+            assertEquals( "token " + i, walked < 0 ? -walked - 1 : walked, list.getLineStart( i ));
+        }
+    }
+
+    private Token randomToken( final java.util.Random random )
+    {
+        final int line = 1 + random.nextInt( 4 );
+        switch( random.nextInt( 4 )) {
+            case 0:  return( new Token( new Source( line ), TokenType.TEXT, "t" ));
+            case 1:  return( new Token( new Source( line ), TokenType.MACRO_TEXT, "m" ));
+            case 2:  return( null );
+            default: return( new Token( new Source( line ), TokenType.COMMAND, "[cr]", "[cr]", null ));
+        }
+    }
+
+    @Test
+    public void lineIndexFollowsChangesToTheList()
+    {
+        final java.util.Random random = new java.util.Random( 25 );
+        for( int i = 0; i < 200; i++ ) {
+            final Token tok = randomToken( random );
+            tl.add( tok == null ? textToken( "a" ) : tok );
+        }
+        checkLines( tl );
+
+        for( int n = 0; n < 500; n++ ) {
+            final int index = random.nextInt( tl.size() );
+            switch( random.nextInt( 4 )) {
+                case 0:  tl.insertAfter( index, randomToken( random )); break;
+                case 1:  tl.set( index, randomToken( random ));         break;
+                case 2:  tl.remove( index );                            break;
+                default: tl.subList( index, Math.min( tl.size(), index + 3 )).clear(); break;
+            }
+            if( tl.size() < 10 ) {
+                tl.add( textToken( "b" ));
+            }
+        }
+        checkLines( tl );
+
+        final TokenList joined = new TokenList();
+        joined.add( textToken( "c" ));
+        joined.addAll( tl );
+        joined.addAll( tl );
+        checkLines( joined );
+    }
+
+    @Test
+    public void lineStartOfLongLine()
+    {
+        for( int i = 0; i < 1000; i++ ) {
+            tl.add( new Token( new Source( 1 + i / 100 ), TokenType.COMMAND, "[]", "[]", null ));
+        }
+        tl.insertAfter( 150, new Token( new Source( 2 ), TokenType.TEXT, "inserted" ));
+
+        assertEquals( 100, tl.getLineStart( 150 ));
+        assertFalse( tl.lineSoFarEmitsText( 151 ));
+        assertTrue( tl.lineSoFarEmitsText( 152 ));
+        assertEquals( 100, tl.getLineStart( 200 ));
+        assertEquals( 201, tl.getLineStart( 201 ));
+    }
+}
@@ -0,0 +1,97 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.*;
+
+import java.io.*;
+
+/**
+ * Times a batch conversion (-batch) of copies of the document corpus to PDF on a given
+ * number of threads. Run with 1, 2, 4... threads, it shows how batch throughput scales
+ * with the number of processors: the speedup on N threads is the time of batch.threads.1
+ * over that of batch.threads.N.
+ *
+ * Unlike the other benchmarks, this one loads the PDF plugin from its JAR, as Platypus
+ * does, so PLATYPUS_HOME must hold the plugins.
+ *
+ * @author alb
+ */
+public class BatchBenchmark extends Benchmark
+{
+    /** the number of documents converted in each batch */
+    static final int DOCS = 16;
+
+    private final BenchmarkData data;
+    private final int threads;
+
+    private File workDir;
+    private CommandLineArgs clArgs;
+    private PrintStream discard;
+
+    /**
+     * @param benchmarkData the shared data
+     * @param threadCount the number of documents converted at the same time
+     */
+    public BatchBenchmark( final BenchmarkData benchmarkData, final int threadCount )
+    {
+        super( "batch.threads." + threadCount );
+        data = benchmarkData;
+        threads = threadCount;
+    }
+
+    @Override
+    public void setUp() throws IOException
+    {
+        workDir = File.createTempFile( "platypus-bench", "" );
+        workDir.delete();
+        if( ! workDir.mkdir() ) {
+            throw new IOException( "Cannot create directory: " + workDir );
+        }
+
+        final File input = new File( workDir, "corpus.txt" );
+        final Writer in = new OutputStreamWriter( new FileOutputStream( input ), "UTF-8" );
+        for( InputLine line : data.getCorpus() ) {
+            in.write( line.getContent() );
+        }
+        in.close();
+
+        final File list = new File( workDir, "batch.lst" );
+        final PrintWriter out = new PrintWriter( new FileWriter( list ));
+        for( int i = 0; i < DOCS; i++ ) {
+            out.println( input.getPath() + "\t" + new File( workDir, "doc" + i + ".pdf" ).getPath() );
+        }
+        out.close();
+
+        clArgs = new CommandLineArgs( new String[] {
+                "-batch", list.getPath(), "-threads", Integer.toString( threads ) } );
+        discard = new PrintStream( new ByteArrayOutputStream() );
+        data.getGdd().getSysStrings().add( "_commandLine", "-batch " + list.getPath() );
+    }
+
+    public int run()
+    {
+        final int status = new BatchConverter( data.getGdd(), clArgs, discard ).run();
+        if( status != Status.OK ) {
+            throw new IllegalStateException( "documents failed to convert in " + getName() );
+        }
+        return( status );
+    }
+
+    @Override
+    public void tearDown()
+    {
+        final File[] files = workDir.listFiles();
+        if( files != null ) {
+            for( File f : files ) {
+                f.delete();
+            }
+        }
+        workDir.delete();
+    }
+}
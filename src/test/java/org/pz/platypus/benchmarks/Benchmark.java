@@ -0,0 +1,76 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+/**
+ * A single benchmark in the suite. BenchmarkRunner calls setUp() once, then run()
+ * repeatedly--first to warm up, then to measure--and finally tearDown().
+ *
+ * @author alb
+ */
+public abstract class Benchmark
+{
+    private final String name;
+
+    protected Benchmark( final String benchmarkName )
+    {
+        name = benchmarkName;
+    }
+
+    /**
+     * Prepares the data for the benchmark. Not timed.
+     *
+     * @throws Exception if the benchmark can't be set up
+     */
+    public void setUp() throws Exception
+    {
+    }
+
+    /**
+     * Performs one operation of the benchmark.
+     *
+     * @return a value computed from the result of the operation. The runner accumulates
+     *         it, so that the JIT cannot optimize the operation away.
+     * @throws Exception if the operation fails
+     */
+    public abstract int run() throws Exception;
+
+    /**
+     * The size of the input processed by one operation, from which the runner reports
+     * the throughput in MB/s
+     *
+     * @return the number of chars (or bytes) of input; 0 if the benchmark has no such input
+     */
+    public long getInputSize()
+    {
+        return( 0 );
+    }
+
+    /**
+     * The number of input lines processed by one operation, from which the runner reports
+     * the bytes allocated per line
+     *
+     * @return the number of lines; 0 if the benchmark has no such input
+     */
+    public int getInputLines()
+    {
+        return( 0 );
+    }
+
+    /**
+     * Releases any resources used by the benchmark. Not timed.
+     */
+    public void tearDown()
+    {
+    }
+
+    public String getName()
+    {
+        return( name );
+    }
+}
@@ -0,0 +1,153 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.*;
+
+import java.util.logging.Level;
+
+/**
+ * The data shared by the benchmarks: a GDD set up as Platypus.main() sets it up (literals,
+ * config file, command table), a synthetic document corpus with many inline commands per
+ * line, and a corpus of source code for the listing plugin.
+ *
+ * Requires PLATYPUS_HOME to point to a Platypus installation (or build directory) with
+ * the config files and fonts.
+ *
+ * @author alb
+ */
+public class BenchmarkData
+{
+    /** the lines the document corpus is built from; chosen to have many segments per line */
+    static final String[] SAMPLE_LINES = {
+        "Plain text with no commands at all, as in most paragraphs of a long document.\n",
+        "Some [+b]bold[-b] and [+i]italic[-i] text, then [fsize:14pt]bigger[fsize:12pt] text.\n",
+        "[font|face:COURIER|size:10pt]code-like text[font|face:TIMES_ROMAN|size:12pt] and [$_version] here.\n",
+        "A [+url:http://platypus.pz.org]link with cover text[-url] and an escaped /[bracket.\n",
+        "[align:center][leading:16pt]Centered text[align:left] with [fcolor:{$RED}]color[fcolor:{$BLACK}].\n",
+        "// a line comment, which is passed through as a single token\n",
+        "Text, [%inline block comment%] more text, [indent:.5in][noindent] and the end.\n",
+        "\n"
+    };
+
+    /** the lines the source-code corpus is built from */
+    static final String[] CODE_LINES = {
+        "public int parseLine( final TokenList newTokens, final InputLine line )\n",
+        "{\n",
+        "    if ( newTokens == null || line == null ) {\n",
+        "        return( Status.INVALID_PARAM_NULL );   // a comment at the end of the line\n",
+        "    }\n",
+        "    int segmentStartPoint = 0;\n",
+        "    String content = line.getContent();\n",
+        "}\n"
+    };
+
+    private final GDD gdd;
+    private final LineList corpus;
+    private final LineList codeCorpus;
+
+    /**
+     * @param lines the number of lines in the input corpus
+     */
+    public BenchmarkData( final int lines )
+    {
+        gdd = new GDD();
+        gdd.setLits( new Literals( "Platypus" ));
+        gdd.setupLogger( "org.pz.platypus.Platypus" );
+        gdd.getLogger().setLevel( Level.SEVERE );
+        gdd.setupHomeDirectory();
+        Platypus.storeVersionNumber( gdd );
+        Platypus.processConfigFile( null, gdd );
+
+        CommandTable commandTable = new CommandTable( gdd );
+        commandTable.load();
+        gdd.setCommandTable( commandTable );
+
+        corpus = new LineList();
+        for( int i = 0; i < lines; i++ ) {
+            corpus.add( new InputLine( 1, i + 1, SAMPLE_LINES[i % SAMPLE_LINES.length] ));
+        }
+
+        codeCorpus = new LineList();
+        for( int i = 0; i < lines; i++ ) {
+            codeCorpus.add( new InputLine( 1, i + 1, CODE_LINES[i % CODE_LINES.length] ));
+        }
+    }
+
+    /**
+     * Parses the document corpus as Platypus would for the given output format
+     *
+     * @param pluginPrefix the output format: pdf, html, etc.
+     * @return the tokens
+     */
+    public TokenList parse( final String pluginPrefix )
+    {
+        return( parse( corpus, pluginPrefix ));
+    }
+
+    /**
+     * Parses lines as Platypus would for the given output format
+     *
+     * @param lines the lines to parse
+     * @param pluginPrefix the output format: pdf, html, etc.
+     * @return the tokens
+     */
+    public TokenList parse( final LineList lines, final String pluginPrefix )
+    {
+        TokenList tokens = new TokenList();
+        new PlatypusParser( gdd ).parse( lines, tokens, gdd.getConfigFile(), pluginPrefix );
+        return( tokens );
+    }
+
+    /**
+     * Creates the GDD for converting one document, sharing the tables of the benchmark GDD,
+     * as batch mode does.
+     *
+     * @param pluginPrefix the output format: pdf, html, etc.
+     * @param outputFile the name of the output file
+     * @param tokens the parsed input. A copy is used, as plugins can add tokens to the list.
+     * @return the new GDD
+     */
+    public GDD createDocumentGdd( final String pluginPrefix, final String outputFile,
+                                  final TokenList tokens )
+    {
+        GDD docGdd = new GDD();
+        docGdd.setLits( gdd.getLits() );
+        docGdd.setLogger( gdd.getLogger() );
+        docGdd.setupHomeDirectory();
+        docGdd.setConfigFile( gdd.getConfigFile() );
+        docGdd.setCommandTable( gdd.getCommandTable() );
+        docGdd.setSharedTables( gdd.getSharedTables() );
+        docGdd.setOutputPluginPrefix( pluginPrefix );
+
+        docGdd.getSysStrings().add( "_version", gdd.getLit( "VERSION" ));
+        docGdd.getSysStrings().add( "_commandLine", "benchmark" );
+        docGdd.getSysStrings().add( "_format", pluginPrefix.toUpperCase() );
+        docGdd.getSysStrings().add( "_outputFile", outputFile );
+
+        TokenList copy = new TokenList();
+        copy.addAll( tokens );
+        docGdd.setInputTokens( copy );
+        return( docGdd );
+    }
+
+    public GDD getGdd()
+    {
+        return( gdd );
+    }
+
+    public LineList getCorpus()
+    {
+        return( corpus );
+    }
+
+    public LineList getCodeCorpus()
+    {
+        return( codeCorpus );
+    }
+}
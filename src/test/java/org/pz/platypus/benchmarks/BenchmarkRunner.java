@@ -0,0 +1,247 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Runs benchmarks, times them, and compares the results to a baseline.
+ *
+ * Each benchmark is warmed up for a fixed time, so that the JIT has compiled its hot paths,
+ * and then measured over several iterations of a fixed time each. The result is the median
+ * of the iterations' average time per operation, which is less affected by a stray GC or
+ * a busy machine than the mean.
+ *
+ * Results are saved as: name TAB nanoseconds-per-operation, one benchmark per line, which
+ * is also the format of the baseline file.
+ *
+ * For benchmarks that report the size of their input, the report also gives the throughput
+ * in MB/s and, on JVMs that can count the bytes allocated by a thread, the bytes allocated
+ * per input line. These are not compared to the baseline.
+ *
+ * @author alb
+ */
+public class BenchmarkRunner
+{
+    private final long warmupMillis;
+    private final long iterationMillis;
+    private final int iterations;
+
+    /** the results: nanoseconds per operation, by benchmark name, in the order run */
+    private final LinkedHashMap<String, Double> results;
+
+    /** MB of input per second, for the benchmarks that report their input size */
+    private final HashMap<String, Double> throughputs;
+
+    /** bytes allocated per input line, for the benchmarks that report their input lines */
+    private final HashMap<String, Double> allocations;
+
+    /** the number of operations run so far */
+    private long opCount = 0;
+
+    /** keeps the benchmarks' return values live */
+    private int sink = 0;
+
+    public BenchmarkRunner( final long warmupMs, final long iterationMs, final int iterationCount )
+    {
+        warmupMillis = warmupMs;
+        iterationMillis = iterationMs;
+        iterations = iterationCount;
+        results = new LinkedHashMap<String, Double>();
+        throughputs = new HashMap<String, Double>();
+        allocations = new HashMap<String, Double>();
+    }
+
+    /**
+     * Runs one benchmark and records its result
+     *
+     * @param b the benchmark
+     * @return nanoseconds per operation
+     * @throws Exception if the benchmark fails
+     */
+    public double run( final Benchmark b ) throws Exception
+    {
+        b.setUp();
+        try {
+            runFor( b, warmupMillis );
+
+            final long opsBefore = opCount;
+            final long allocatedBefore = allocatedBytes();
+            double[] nanosPerOp = new double[iterations];
+            for( int i = 0; i < iterations; i++ ) {
+                nanosPerOp[i] = runFor( b, iterationMillis );
+            }
+            final long allocated = allocatedBytes() - allocatedBefore;
+            Arrays.sort( nanosPerOp );
+
+            final double median = nanosPerOp[iterations / 2];
+            results.put( b.getName(), median );
+
+            if( b.getInputSize() > 0 ) {
+                throughputs.put( b.getName(),
+                                 b.getInputSize() / ( median / 1e9 ) / ( 1024 * 1024 ));
+            }
+            if( b.getInputLines() > 0 && allocatedBefore >= 0 ) {
+                allocations.put( b.getName(),
+                                 (double) allocated / ( opCount - opsBefore ) / b.getInputLines() );
+            }
+            return( median );
+        }
+        finally {
+            b.tearDown();
+        }
+    }
+
+    /**
+     * Runs the benchmark repeatedly for at least the given time
+     *
+     * @param b the benchmark
+     * @param millis how long to run it
+     * @return the average nanoseconds per operation
+     * @throws Exception if the benchmark fails
+     */
+    private double runFor( final Benchmark b, final long millis ) throws Exception
+    {
+        final long limit = millis * 1000000L;
+        final long start = System.nanoTime();
+        long elapsed;
+        long ops = 0;
+
+        do {
+            sink += b.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while( elapsed < limit );
+
+        opCount += ops;
+        return( (double) elapsed / ops );
+    }
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread, where the JVM can
+     * count them (as HotSpot can)
+     *
+     * @return the number of bytes; -1 if the JVM can't count them
+     */
+    private static long allocatedBytes()
+    {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if( ! ( threads instanceof com.sun.management.ThreadMXBean )) {
+            return( -1 );
+        }
+
+        final com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if( ! hotspot.isThreadAllocatedMemorySupported() ||
+            ! hotspot.isThreadAllocatedMemoryEnabled() ) {
+            return( -1 );
+        }
+        return( hotspot.getThreadAllocatedBytes( Thread.currentThread().getId() ));
+    }
+
+    /**
+     * Writes the results in the baseline format
+     *
+     * @param filename the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void save( final String filename ) throws IOException
+    {
+        PrintWriter out = new PrintWriter( new FileWriter( filename ));
+        out.println( "# Platypus benchmark results: benchmark <TAB> ns/op" );
+        for( Map.Entry<String, Double> result : results.entrySet() ) {
+            out.println( result.getKey() + "\t" + String.format( Locale.US, "%.1f", result.getValue() ));
+        }
+        out.close();
+    }
+
+    /**
+     * Loads results previously written by save()
+     *
+     * @param filename the file to read
+     * @return the results, by benchmark name; empty if the file can't be read
+     */
+    public static Map<String, Double> load( final String filename )
+    {
+        HashMap<String, Double> baseline = new HashMap<String, Double>();
+        try {
+            BufferedReader in = new BufferedReader( new FileReader( filename ));
+            String line;
+            while(( line = in.readLine() ) != null ) {
+                String[] fields = line.split( "\t" );
+                if( line.startsWith( "#" ) || fields.length != 2 ) {
+                    continue;
+                }
+                try {
+                    baseline.put( fields[0], Double.parseDouble( fields[1] ));
+                }
+                catch( NumberFormatException nfe ) {
+                    // skip the line
+                }
+            }
+            in.close();
+        }
+        catch( IOException ioe ) {
+            System.err.println( "Cannot read benchmark baseline: " + filename );
+        }
+        return( baseline );
+    }
+
+    /**
+     * Prints the results, with the change from the baseline for each benchmark.
+     *
+     * @param out where to print the report
+     * @param baseline the baseline results (can be empty)
+     * @param tolerance how much slower than baseline (as a fraction: 0.10 = 10%) a
+     *        benchmark can be before it's reported as a regression
+     * @return the number of regressions
+     */
+    public int report( final PrintStream out, final Map<String, Double> baseline,
+                       final double tolerance )
+    {
+        int regressions = 0;
+        for( Map.Entry<String, Double> result : results.entrySet() ) {
+            final double nanos = result.getValue();
+            final Double base = baseline.get( result.getKey() );
+
+            StringBuilder line = new StringBuilder();
+            line.append( String.format( Locale.US, "%-28s %14.1f ns/op %12.1f ops/s",
+                                        result.getKey(), nanos, 1e9 / nanos ));
+
+            final Double throughput = throughputs.get( result.getKey() );
+            if( throughput != null ) {
+                line.append( String.format( Locale.US, " %8.1f MB/s", throughput ));
+            }
+            final Double allocation = allocations.get( result.getKey() );
+            if( allocation != null ) {
+                line.append( String.format( Locale.US, " %8.0f bytes/line", allocation ));
+            }
+            if( base != null ) {
+                final double change = ( nanos - base ) / base;
+                line.append( String.format( Locale.US, "  %+6.1f%%", change * 100.0 ));
+                if( change > tolerance ) {
+                    line.append( "  REGRESSION" );
+                    regressions++;
+                }
+            }
+            out.println( line.toString() );
+        }
+        return( regressions );
+    }
+
+    public Map<String, Double> getResults()
+    {
+        return( results );
+    }
+
+    public int getSink()
+    {
+        return( sink );
+    }
+}
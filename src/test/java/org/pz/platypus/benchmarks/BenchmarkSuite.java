@@ -0,0 +1,123 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.Status;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * The benchmark suite for Platypus' hot paths: reading and parsing input, command lookup
+ * and family-command parsing, PDF font creation, RTF text output, end-to-end token
+ * processing in each output plugin, and the scaling of batch conversion with threads.
+ *
+ * Run with 'ant benchmark', or directly:
+ *
+ *   java -cp classes:lib/* org.pz.platypus.benchmarks.BenchmarkSuite [options] [name-prefix]
+ *
+ * Options:
+ *   -baseline file   compare the results to this file (see BenchmarkRunner for the format)
+ *   -out file        save the results to this file (to create a new baseline, for example)
+ *   -tolerance pct   how much slower than the baseline is reported as a regression (default 10)
+ *   -quick           shorter runs, for checking that the suite works
+ *
+ * If a name prefix is given, only the benchmarks whose names start with it are run.
+ * Exits with Status.ERR if any benchmark regressed beyond the tolerance.
+ *
+ * @author alb
+ */
+public class BenchmarkSuite
+{
+    /** the size of the corpus used by the parse and plugin benchmarks */
+    static final int CORPUS_LINES = 2000;
+
+    public static void main( final String[] args ) throws Exception
+    {
+        String baselineFile = null;
+        String outFile = null;
+        String filter = "";
+        double tolerance = 0.10;
+        boolean quick = false;
+
+        for( int i = 0; i < args.length; i++ ) {
+            if( args[i].equals( "-baseline" ) && i + 1 < args.length ) {
+                baselineFile = args[++i];
+            }
+            else if( args[i].equals( "-out" ) && i + 1 < args.length ) {
+                outFile = args[++i];
+            }
+            else if( args[i].equals( "-tolerance" ) && i + 1 < args.length ) {
+                tolerance = Double.parseDouble( args[++i] ) / 100.0;
+            }
+            else if( args[i].equals( "-quick" )) {
+                quick = true;
+            }
+            else {
+                filter = args[i];
+            }
+        }
+
+        final BenchmarkData data = new BenchmarkData( CORPUS_LINES );
+        final BenchmarkRunner runner = quick ?
+                                            new BenchmarkRunner( 200, 100, 3 ) :
+                                            new BenchmarkRunner( 2000, 1000, 5 );
+
+        for( Benchmark b : createBenchmarks( data )) {
+            if( b.getName().startsWith( filter )) {
+                System.out.println( "Running " + b.getName() + "..." );
+                runner.run( b );
+            }
+        }
+
+        final Map<String, Double> baseline = ( baselineFile == null ) ?
+                                                new java.util.HashMap<String, Double>() :
+                                                BenchmarkRunner.load( baselineFile );
+        System.out.println();
+        final int regressions = runner.report( System.out, baseline, tolerance );
+
+        if( outFile != null ) {
+            runner.save( outFile );
+        }
+
+        System.exit( regressions == 0 ? Status.OK : Status.ERR );
+    }
+
+    /**
+     * @param data the shared benchmark data
+     * @return all the benchmarks in the suite
+     */
+    static ArrayList<Benchmark> createBenchmarks( final BenchmarkData data )
+    {
+        ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add( new InfileBenchmark( true ));
+        benchmarks.add( new InfileBenchmark( false ));
+        benchmarks.add( new ParseBenchmark( data ));
+        benchmarks.add( new CommandLookupBenchmark( data ));
+        benchmarks.add( new CommandFamilyBenchmark( data ));
+        benchmarks.add( new LineQueryBenchmark() );
+        benchmarks.add( new PdfFontBenchmark( data, true ));
+        benchmarks.add( new PdfFontBenchmark( data, false ));
+        benchmarks.add( new PdfTextRunBenchmark( data, true ));
+        benchmarks.add( new PdfTextRunBenchmark( data, false ));
+        benchmarks.add( new RtfWriterBenchmark( data, true ));
+        benchmarks.add( new RtfWriterBenchmark( data, false ));
+        benchmarks.add( new PluginBenchmark( data, "pdf", org.pz.platypus.plugin.pdf.Start.class ));
+        benchmarks.add( new PluginBenchmark( data, "html", org.pz.platypus.plugin.html.Start.class ));
+        benchmarks.add( new PluginBenchmark( data, "rtf", org.pz.platypus.plugin.rtf.Start.class ));
+        benchmarks.add( new PluginBenchmark( data, "listing", org.pz.platypus.plugin.listing.Start.class ));
+        benchmarks.add( new ListingBenchmark( data ));
+
+        // batch conversion on 1, 2, 4... threads, up to the number of processors (at least 2)
+        final int maxThreads = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+        for( int threads = 1; threads <= maxThreads; threads *= 2 ) {
+            benchmarks.add( new BatchBenchmark( data, threads ));
+        }
+        return( benchmarks );
+    }
+}
@@ -0,0 +1,44 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.*;
+import org.pz.platypus.parsers.CommandFamilyParser;
+
+/**
+ * Times CommandFamilyParser.parse() on a font-family command with two members
+ *
+ * @author alb
+ */
+public class CommandFamilyBenchmark extends Benchmark
+{
+    static final String LINE = "[font|face:COURIER|size:10pt]some text after the command\n";
+
+    private final BenchmarkData data;
+    private final CommandFamilyParser parser = new CommandFamilyParser();
+    private ParseContext context;
+
+    public CommandFamilyBenchmark( final BenchmarkData benchmarkData )
+    {
+        super( "command.family" );
+        data = benchmarkData;
+    }
+
+    @Override
+    public void setUp()
+    {
+        context = new ParseContext( data.getGdd(), new Source( 1, 1 ), LINE, 0 );
+    }
+
+    public int run()
+    {
+        final GDD gdd = data.getGdd();
+        TokenList tokens = new TokenList();
+        return( parser.parse( gdd.getCommandTable(), context, tokens, "[font|", gdd ) + tokens.size() );
+    }
+}
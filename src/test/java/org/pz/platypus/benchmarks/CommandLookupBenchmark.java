@@ -0,0 +1,52 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.CommandTable;
+import org.pz.platypus.interfaces.ICommand;
+
+/**
+ * Times CommandTable.getCommand() over a mix of common command roots, plus one root
+ * that's not a command.
+ *
+ * @author alb
+ */
+public class CommandLookupBenchmark extends Benchmark
+{
+    static final String[] ROOTS = {
+        "[+b]", "[-b]", "[+i]", "[-i]", "[fsize:", "[font|face:", "[font|size:",
+        "[align:", "[cr]", "[CR]", "[indent:", "[leading:", "[+url:", "[-url]", "[notacommand]"
+    };
+
+    private final BenchmarkData data;
+    private CommandTable commandTable;
+
+    public CommandLookupBenchmark( final BenchmarkData benchmarkData )
+    {
+        super( "command.lookup" );
+        data = benchmarkData;
+    }
+
+    @Override
+    public void setUp()
+    {
+        commandTable = data.getGdd().getCommandTable();
+    }
+
+    public int run()
+    {
+        int found = 0;
+        for( String root : ROOTS ) {
+            ICommand com = commandTable.getCommand( root );
+            if( com != null ) {
+                found++;
+            }
+        }
+        return( found );
+    }
+}
@@ -0,0 +1,129 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.*;
+import org.pz.platypus.exceptions.FilenameLookupException;
+
+import java.io.*;
+
+/**
+ * Times reading a large input file into InputLines: either with Infile, or as Infile used
+ * to read it, with a BufferedReader and readLine(), then '\n' appended to each line. The
+ * file is built from the lines of the document corpus, plus some non-ASCII text, and
+ * written as UTF-8.
+ *
+ * @author alb
+ */
+public class InfileBenchmark extends Benchmark
+{
+    /** the size of the input file, in chars */
+    static final long FILE_SIZE = 8L * 1024 * 1024;
+
+    private final boolean infile;
+
+    private GDD gdd;
+    private File file;
+
+    /**
+     * @param useInfile true to read with Infile; false to use a BufferedReader
+     */
+    public InfileBenchmark( final boolean useInfile )
+    {
+        super( useInfile ? "infile.read" : "infile.bufferedreader" );
+        infile = useInfile;
+    }
+
+    @Override
+    public void setUp() throws IOException, FilenameLookupException
+    {
+        file = createFile( FILE_SIZE );
+
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.getInputFileList().addFilename( file.getPath() );
+    }
+
+    public int run() throws IOException
+    {
+        return( infile ? readWithInfile() : readWithBufferedReader() );
+    }
+
+    @Override
+    public long getInputSize()
+    {
+        return( file.length() );
+    }
+
+    @Override
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Reads the file with Infile, as Platypus does
+     *
+     * @return the number of lines
+     */
+    int readWithInfile()
+    {
+        final LineList lines = new LineList();
+        new Infile( file.getPath(), gdd ).readFileIntoInputLines( lines );
+        return( lines.size() );
+    }
+
+    /**
+     * Reads the file as Infile did before it used a FileChannel and CharsetDecoder
+     *
+     * @return the number of lines
+     * @throws IOException if the file can't be read
+     */
+    int readWithBufferedReader() throws IOException
+    {
+        final LineList lines = new LineList();
+        final BufferedReader reader =
+                new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ));
+        int lineNumber = 0;
+        String content;
+        while(( content = reader.readLine() ) != null ) {
+            final InputLine line = new InputLine();
+            line.setContent( content + '\n' );
+            line.setSource( new Source( 1, ++lineNumber ));
+            lines.add( line );
+        }
+        reader.close();
+        return( lines.size() );
+    }
+
+    /**
+     * Writes the input file: the lines of the document corpus, with every tenth line
+     * replaced by one with accented chars and a euro sign
+     *
+     * @param size the number of chars to write
+     * @return the file
+     * @throws IOException if the file can't be written
+     */
+    static File createFile( final long size ) throws IOException
+    {
+        final File file = File.createTempFile( "platypus-bench", ".txt" );
+        final Writer out = new BufferedWriter(
+                                new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" ));
+        final String[] lines = BenchmarkData.SAMPLE_LINES;
+        long written = 0;
+        for( int i = 0; written < size; i++ ) {
+            final String line = ( i % 10 == 9 ) ?
+                                    "Na\u00efve caf\u00e9 text, priced in \u20ac, with [+i]\u00e9l\u00e8ve[-i].\n" :
+                                    lines[i % lines.length];
+            out.write( line );
+            written += line.length();
+        }
+        out.close();
+        return( file );
+    }
+}
@@ -0,0 +1,57 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.Source;
+import org.pz.platypus.Token;
+import org.pz.platypus.TokenList;
+import org.pz.platypus.TokenType;
+
+/**
+ * Times TokenList.lineSoFarEmitsText() on every token of long lines, as the [] command
+ * of the PDF and HTML plugins calls it: 100 lines of 200 tokens each, text alternating
+ * with [] line breaks.
+ *
+ * @author alb
+ */
+public class LineQueryBenchmark extends Benchmark
+{
+    static final int LINES = 100;
+    static final int TOKENS_PER_LINE = 200;
+
+    private TokenList tokens;
+
+    public LineQueryBenchmark()
+    {
+        super( "tokenlist.linesofar" );
+    }
+
+    @Override
+    public void setUp()
+    {
+        tokens = new TokenList();
+        for( int line = 1; line <= LINES; line++ ) {
+            for( int i = 0; i < TOKENS_PER_LINE; i++ ) {
+                tokens.add( i % 2 == 0 ?
+                                new Token( new Source( line ), TokenType.TEXT, "some text" ) :
+                                new Token( new Source( line ), TokenType.COMMAND, "[]", "[]", null ));
+            }
+        }
+    }
+
+    public int run()
+    {
+        int emitting = 0;
+        for( int i = 0; i < tokens.size(); i++ ) {
+            if( tokens.lineSoFarEmitsText( i )) {
+                emitting++;
+            }
+        }
+        return( emitting );
+    }
+}
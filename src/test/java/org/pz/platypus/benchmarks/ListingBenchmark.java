@@ -0,0 +1,68 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.*;
+import org.pz.platypus.plugin.listing.Start;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Times the listing plugin converting a large source file (100,000 lines of the code
+ * corpus) into an HTML listing. The source is parsed once, in setUp(), so only the
+ * formatting and writing of the listing is timed.
+ *
+ * @author alb
+ */
+public class ListingBenchmark extends Benchmark
+{
+    /** the number of lines in the source file */
+    static final int LINES = 100000;
+
+    private final BenchmarkData data;
+
+    private TokenList tokens;
+    private File outputFile;
+    private CommandLineArgs clArgs;
+
+    /**
+     * @param benchmarkData the shared data
+     */
+    public ListingBenchmark( final BenchmarkData benchmarkData )
+    {
+        super( "listing.100k" );
+        data = benchmarkData;
+    }
+
+    @Override
+    public void setUp() throws IOException
+    {
+        final LineList source = new LineList();
+        for( int i = 0; i < LINES; i++ ) {
+            source.add( new InputLine( 1, i + 1,
+                                       BenchmarkData.CODE_LINES[i % BenchmarkData.CODE_LINES.length] ));
+        }
+        tokens = data.parse( source, "listing" );
+        outputFile = File.createTempFile( "platypus-bench", ".listing" );
+        clArgs = new CommandLineArgs( new String[] { "source.txt", outputFile.getPath() } );
+    }
+
+    public int run()
+    {
+        final GDD gdd = data.createDocumentGdd( "listing", outputFile.getPath(), tokens );
+        new Start().process( gdd, clArgs );
+        return( (int) outputFile.length() );
+    }
+
+    @Override
+    public void tearDown()
+    {
+        outputFile.delete();
+    }
+}
@@ -0,0 +1,53 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.InputLine;
+
+/**
+ * Times PlatypusParser.parse() over the whole synthetic corpus. The runner also reports
+ * the throughput in MB/s and the bytes allocated per line, tokens included.
+ *
+ * @author alb
+ */
+public class ParseBenchmark extends Benchmark
+{
+    private final BenchmarkData data;
+
+    /** the number of chars in the corpus */
+    private final long corpusSize;
+
+    public ParseBenchmark( final BenchmarkData benchmarkData )
+    {
+        super( "parse" );
+        data = benchmarkData;
+
+        long size = 0;
+        for( InputLine line : data.getCorpus() ) {
+            size += line.getContent().length();
+        }
+        corpusSize = size;
+    }
+
+    public int run()
+    {
+        return( data.parse( "pdf" ).size() );
+    }
+
+    @Override
+    public long getInputSize()
+    {
+        return( corpusSize );
+    }
+
+    @Override
+    public int getInputLines()
+    {
+        return( data.getCorpus().size() );
+    }
+}
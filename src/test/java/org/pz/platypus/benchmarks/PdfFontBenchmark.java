@@ -0,0 +1,71 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.Source;
+import org.pz.platypus.plugin.pdf.PdfData;
+import org.pz.platypus.plugin.pdf.PdfFont;
+import org.pz.platypus.plugin.pdf.PdfFontFactory;
+
+import java.util.ArrayList;
+
+/**
+ * Times PdfFontFactory.createItextFont() over a set of fonts a document might use:
+ * three typefaces in three sizes, regular and bold. With the cache, as the PDF plugin
+ * uses it, or without, which measures the cost of creating the fonts in iText.
+ *
+ * @author alb
+ */
+public class PdfFontBenchmark extends Benchmark
+{
+    static final String[] FACES = { "TIMES_ROMAN", "HELVETICA", "COURIER" };
+    static final float[] SIZES = { 10f, 12f, 14f };
+
+    private final BenchmarkData data;
+    private final boolean cached;
+    private final ArrayList<PdfFont> fonts = new ArrayList<PdfFont>();
+    private PdfFontFactory factory;
+
+    public PdfFontBenchmark( final BenchmarkData benchmarkData, final boolean useCache )
+    {
+        super( useCache ? "pdf.font.cached" : "pdf.font.uncached" );
+        data = benchmarkData;
+        cached = useCache;
+    }
+
+    @Override
+    public void setUp()
+    {
+        PdfData pdd = new PdfData( data.getGdd() );
+        pdd.init();
+
+        for( String face : FACES ) {
+            for( float size : SIZES ) {
+                for( int bold = 0; bold < 2; bold++ ) {
+                    PdfFont pf = new PdfFont( pdd );
+                    pf.setFace( face, new Source() );
+                    pf.setSize( size, new Source() );
+                    pf.setBold( bold == 1, new Source() );
+                    fonts.add( pf );
+                }
+            }
+        }
+
+        // without PdfData, the factory has no cache and creates every font
+        factory = cached ? pdd.getFontFactory() : new PdfFontFactory( data.getGdd(), null );
+    }
+
+    public int run()
+    {
+        int hash = 0;
+        for( PdfFont pf : fonts ) {
+            hash += factory.createItextFont( pf ).hashCode();
+        }
+        return( hash );
+    }
+}
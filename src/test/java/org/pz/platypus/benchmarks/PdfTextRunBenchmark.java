@@ -0,0 +1,125 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.CommandLineArgs;
+import org.pz.platypus.GDD;
+import org.pz.platypus.PropertyFile;
+import org.pz.platypus.TokenList;
+import org.pz.platypus.plugin.pdf.PdfCommandTable;
+import org.pz.platypus.plugin.pdf.PdfOutfile;
+import org.pz.platypus.plugin.pdf.Start;
+
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.ColumnText;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Times the PDF plugin converting the corpus with consecutive text in the same style
+ * emitted as one iText Chunk (pi.out.pdf.coalesce_text=yes, the default) or as one Chunk
+ * per text token and soft line break. The number of Chunks in the paragraphs of the
+ * document is printed when the benchmark is done.
+ *
+ * @author alb
+ */
+public class PdfTextRunBenchmark extends Benchmark
+{
+    private final BenchmarkData data;
+    private final boolean coalesce;
+
+    private TokenList tokens;
+    private File outputFile;
+    private CommandLineArgs clArgs;
+    private int chunkCount;
+
+    /**
+     * @param benchmarkData the shared data
+     * @param coalesceText whether to emit runs of text as one Chunk
+     */
+    public PdfTextRunBenchmark( final BenchmarkData benchmarkData, final boolean coalesceText )
+    {
+        super( coalesceText ? "pdf.textrun.coalesced" : "pdf.textrun.separate" );
+        data = benchmarkData;
+        coalesce = coalesceText;
+    }
+
+    @Override
+    public void setUp() throws IOException
+    {
+        tokens = data.parse( "pdf" );
+        outputFile = File.createTempFile( "platypus-bench", ".pdf" );
+        clArgs = new CommandLineArgs( new String[] { "corpus.txt", outputFile.getPath() } );
+    }
+
+    public int run()
+    {
+        GDD gdd = data.createDocumentGdd( "pdf", outputFile.getPath(), tokens );
+        gdd.setConfigFile( new CoalesceSetting( gdd.getConfigFile(), coalesce ? "yes" : "no" ));
+
+        ChunkCountingOutfile outfile = new ChunkCountingOutfile();
+        new Start( outfile, new PdfCommandTable() ).process( gdd, clArgs );
+        chunkCount = outfile.chunks;
+        return( chunkCount );
+    }
+
+    @Override
+    public void tearDown()
+    {
+        System.out.println( getName() + ": " + chunkCount + " Chunks in the document" );
+        outputFile.delete();
+    }
+
+    /**
+     * The config file, with pi.out.pdf.coalesce_text set for the benchmark
+     */
+    static class CoalesceSetting extends PropertyFile
+    {
+        private final PropertyFile configFile;
+        private final String value;
+
+        CoalesceSetting( final PropertyFile config, final String coalesceValue )
+        {
+            configFile = config;
+            value = coalesceValue;
+        }
+
+        @Override
+        public String lookup( final String key )
+        {
+            return( key.equals( "pi.out.pdf.coalesce_text" ) ? value : configFile.lookup( key ));
+        }
+    }
+
+    /**
+     * A PdfOutfile that counts the Chunks in the paragraphs that it writes
+     */
+    static class ChunkCountingOutfile extends PdfOutfile
+    {
+        int chunks = 0;
+
+        @Override
+        public void addParagraph( final Paragraph para, final ColumnText column )
+        {
+            super.addParagraph( para, column );
+            if( para != null ) {
+                chunks += para.getChunks().size();
+            }
+        }
+
+        @Override
+        public void addParagraphToList( final Paragraph para )
+        {
+            super.addParagraphToList( para );
+            if( para != null ) {
+                chunks += para.getChunks().size();
+            }
+        }
+    }
+}
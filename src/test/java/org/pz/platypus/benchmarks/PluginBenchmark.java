@@ -0,0 +1,70 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.*;
+import org.pz.platypus.interfaces.IPlugin;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Times an output plugin converting a parsed corpus into an output file, from the
+ * creation of the plugin's Start class through the closing of the output file. The input
+ * is parsed once, in setUp(), so only the plugin's processing of the tokens is timed.
+ * The listing plugin is given source code; the others, the Platypus document corpus.
+ *
+ * @author alb
+ */
+public class PluginBenchmark extends Benchmark
+{
+    private final BenchmarkData data;
+    private final String prefix;
+    private final Class<? extends IPlugin> pluginClass;
+
+    private TokenList tokens;
+    private File outputFile;
+    private CommandLineArgs clArgs;
+
+    /**
+     * @param benchmarkData the shared data
+     * @param pluginPrefix the output format: pdf, html, rtf, listing
+     * @param plugin the plugin's Start class
+     */
+    public PluginBenchmark( final BenchmarkData benchmarkData, final String pluginPrefix,
+                            final Class<? extends IPlugin> plugin )
+    {
+        super( "plugin." + pluginPrefix );
+        data = benchmarkData;
+        prefix = pluginPrefix;
+        pluginClass = plugin;
+    }
+
+    @Override
+    public void setUp() throws IOException
+    {
+        tokens = prefix.equals( "listing" ) ?
+                    data.parse( data.getCodeCorpus(), prefix ) :
+                    data.parse( prefix );
+        outputFile = File.createTempFile( "platypus-bench", "." + prefix );
+        clArgs = new CommandLineArgs( new String[] { "corpus.txt", outputFile.getPath() } );
+    }
+
+    public int run() throws Exception
+    {
+        GDD gdd = data.createDocumentGdd( prefix, outputFile.getPath(), tokens );
+        pluginClass.newInstance().process( gdd, clArgs );
+        return( (int) outputFile.length() );
+    }
+
+    @Override
+    public void tearDown()
+    {
+        outputFile.delete();
+    }
+}
@@ -0,0 +1,97 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.benchmarks;
+
+import org.pz.platypus.GDD;
+import org.pz.platypus.Token;
+import org.pz.platypus.TokenList;
+import org.pz.platypus.TokenType;
+import org.pz.platypus.plugin.rtf.RtfData;
+import org.pz.platypus.plugin.rtf.RtfOutfile;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Times writing the text of a large document to an RTF file: either through RtfOutfile,
+ * which escapes the text into a byte buffer, or as the RTF plugin used to, with one call
+ * to an unbuffered FileWriter per text token and no escaping. The text is that of the
+ * corpus, repeated, with some accented and non-Latin chars.
+ *
+ * @author alb
+ */
+public class RtfWriterBenchmark extends Benchmark
+{
+    /** how many times the corpus' text is written */
+    static final int REPEATS = 10;
+
+    private final BenchmarkData data;
+    private final boolean buffered;
+
+    private String[] texts;
+    private File outputFile;
+
+    /**
+     * @param benchmarkData the shared data
+     * @param useRtfOutfile true to write through RtfOutfile; false to use a FileWriter
+     */
+    public RtfWriterBenchmark( final BenchmarkData benchmarkData, final boolean useRtfOutfile )
+    {
+        super( useRtfOutfile ? "rtf.writer.buffered" : "rtf.writer.filewriter" );
+        data = benchmarkData;
+        buffered = useRtfOutfile;
+    }
+
+    @Override
+    public void setUp() throws IOException
+    {
+        final TokenList tokens = data.parse( "rtf" );
+        final ArrayList<String> text = new ArrayList<String>();
+        for( int i = 0; i < tokens.size(); i++ ) {
+            final Token tok = tokens.get( i );
+            if( tok.getType() == TokenType.TEXT ) {
+                text.add( i % 10 == 0 ? tok.getContent() + " caf\u00e9 \u03b1\u03b2 \u201cq\u201d" :
+                                        tok.getContent() );
+            }
+        }
+        texts = text.toArray( new String[text.size()] );
+        outputFile = File.createTempFile( "platypus-bench", ".rtf" );
+    }
+
+    public int run() throws IOException
+    {
+        if( buffered ) {
+            final GDD gdd = data.createDocumentGdd( "rtf", outputFile.getPath(), new TokenList() );
+            final RtfOutfile outfile = new RtfOutfile( outputFile.getPath(), new RtfData( gdd ));
+            for( int r = 0; r < REPEATS; r++ ) {
+                for( String s : texts ) {
+                    outfile.writeText( s );
+                }
+            }
+            outfile.close( gdd.getLogger() );
+        }
+        else {
+            final FileWriter out = new FileWriter( outputFile );
+            for( int r = 0; r < REPEATS; r++ ) {
+                for( String s : texts ) {
+                    out.write( s );
+                }
+            }
+            out.close();
+        }
+        return( (int) outputFile.length() );
+    }
+
+    @Override
+    public void tearDown()
+    {
+        outputFile.delete();
+    }
+}
@@ -136,4 +136,43 @@ public class CommandRTest
 
 
     }
+
+    @Test
+    public void testProcessStringAliasGivesTokenOfFullCommand()
+    {
+        assertAliasMatchesFullCommand( "[ff:", "[ff:{Times Roman}]", "[font|face:{Times Roman}]" );
+    }
+
+    @Test
+    public void testProcessValueAliasGivesTokenOfFullCommand()
+    {
+        assertAliasMatchesFullCommand( "[fsize:", "[fsize:12pt]", "[font|size:12pt]" );
+    }
+
+    /**
+     * Processes an alias in mid-line and the command it stands for, and checks that they
+     * give the same token, and that the alias is skipped in the input.
+     */
+    private void assertAliasMatchesFullCommand( final String aliasRoot, final String alias,
+                                                final String fullCommand )
+    {
+        TokenList aliasTokens = new TokenList();
+        ParseContext context = new ParseContext( gdd, new Source(), "12345" + alias + "678\n", 5 );
+        assertEquals( alias.length(),
+                      ct.getCommand( aliasRoot ).process( gdd, context, aliasTokens, false ));
+
+        TokenList fullTokens = new TokenList();
+        context = new ParseContext( gdd, new Source(), fullCommand + "\n", 0 );
+        String fullRoot = fullCommand.substring( 0, fullCommand.indexOf( ':' ) + 1 );
+        assertEquals( fullCommand.length(),
+                      ct.getCommand( fullRoot ).process( gdd, context, fullTokens, false ));
+
+        assertEquals( 1, aliasTokens.size() );
+        assertEquals( 1, fullTokens.size() );
+        Token aliasToken = aliasTokens.get( 0 );
+        Token fullToken = fullTokens.get( 0 );
+        assertEquals( fullToken.getRoot(), aliasToken.getRoot() );
+        assertEquals( fullToken.getContent(), aliasToken.getContent() );
+        assertEquals( fullToken.getParameter(), aliasToken.getParameter() );
+    }
 }
\ No newline at end of file
@@ -97,6 +97,24 @@ public class CommandParameterParserTest
         assertTrue( result.isEmpty() );
     }
 
+    @Test
+    public void stringParamInBracesNotAtStart()
+    {
+        String line = "[font|face:{Bell MT}]} more}\n";
+        assertEquals( "Bell MT",
+                CommandParameterParser.extractStringInsideBraces( line.toCharArray(), 11 ));
+    }
+
+    @Test
+    public void findClosingBracesFindsFirstRun()
+    {
+        char[] text = "{{a}b}}c}}}".toCharArray();
+        assertEquals( 5, CommandParameterParser.findClosingBraces( text, 0, 2 ));
+        assertEquals( 8, CommandParameterParser.findClosingBraces( text, 0, 3 ));
+        assertEquals( -1, CommandParameterParser.findClosingBraces( text, 0, 4 ));
+        assertEquals( 2, CommandParameterParser.findClosingBraces( text, 2, 0 ));
+    }
+
     @Test
     public void countBraces()
     {
@@ -4,6 +4,8 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 import junit.framework.TestCase;
 
+import java.io.StringWriter;
+
 /**
  * HtmlOutfile Tester.
  *
@@ -42,8 +44,28 @@ public class HtmlOutfileTest extends TestCase {
 
     public void testEmitTextQuotesSpecialHtmlChars() throws Exception {
         HtmlOutfile htmlOutfile = new HtmlOutfile();
-        // String emittedText = htmlOutfile.emitText("<");
+        StringWriter out = new StringWriter();
+        htmlOutfile.openHtmlFile(out);
+        htmlOutfile.emitEscapedText("a<b> & <<c");
+        htmlOutfile.emitEscapedText("");
+        htmlOutfile.emitEscapedText(">");
+        htmlOutfile.emitEscapedText(" \"q\" 'r'");
+        assertTrue(out.toString().endsWith(
+                "<body>\na&lt;b&gt; &amp; &lt;&lt;c&gt; &quot;q&quot; &#39;r&#39;"));
+    }
+
+    public void testTextEmittedBeforeOpenIsWrittenAfterHead() throws Exception {
+        HtmlOutfile htmlOutfile = new HtmlOutfile();
+        htmlOutfile.emitText("<b>");
+        htmlOutfile.emitEscapedText("x<y");
+        assertFalse(htmlOutfile.isOpen());
 
+        StringWriter out = new StringWriter();
+        htmlOutfile.openHtmlFile(out);
+        htmlOutfile.emitText("</b>");
+        htmlOutfile.close();
+        assertEquals(HtmlOutfile.HEAD + "<body>\n<b>x&lt;y</b>\n</body></html>\n", out.toString());
+        assertFalse(htmlOutfile.isOpen());
     }
     
 }
@@ -0,0 +1,84 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.html;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.*;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.io.*;
+import java.util.logging.Level;
+
+/**
+ * Tests of the HTML plugin's conversion of a token stream
+ *
+ * @author alb
+ */
+public class StartTest
+{
+    private GDD gdd;
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.getLogger().setLevel( Level.OFF );
+        outputFile = File.createTempFile( "platypus-test", ".html" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        outputFile.delete();
+    }
+
+    private String convert( final TokenList tokens ) throws IOException
+    {
+        gdd.setInputTokens( tokens );
+        new Start().process( gdd, new CommandLineArgs( new String[] { "in.txt", outputFile.getPath() } ));
+
+        final BufferedReader in =
+                new BufferedReader( new InputStreamReader( new FileInputStream( outputFile ), "UTF-8" ));
+        final StringBuilder html = new StringBuilder();
+        String line;
+        while(( line = in.readLine() ) != null ) {
+            html.append( line ).append( '\n' );
+        }
+        in.close();
+        return( html.toString() );
+    }
+
+    @Test
+    public void wordsOnSeparateLinesStaySeparated() throws IOException
+    {
+        // Line 1: more words to fill.[]
+        // Line 2: the[]quick brown fox.
+        final TokenList tokens = new TokenList();
+        tokens.add( new Token( new Source( 1 ), TokenType.TEXT, "Line 1: more words to fill." ));
+        tokens.add( new Token( new Source( 1 ), TokenType.COMMAND, "[]", "[]", null ));
+        tokens.add( new Token( new Source( 1 ), TokenType.COMMAND, "[cr]", "[cr]", null ));
+        tokens.add( new Token( new Source( 2 ), TokenType.TEXT, "Line 2: the" ));
+        tokens.add( new Token( new Source( 2 ), TokenType.COMMAND, "[]", "[]", null ));
+        tokens.add( new Token( new Source( 2 ), TokenType.TEXT, "quick brown fox." ));
+        tokens.add( new Token( new Source( 2 ), TokenType.COMMAND, "[cr]", "[cr]", null ));
+
+        final String html = convert( tokens );
+        assertFalse( html, html.contains( "fill.Line" ));
+        assertFalse( html, html.contains( "thequick" ));
+        assertTrue( html, html.replaceAll( "<[^>]*>", "" ).replaceAll( "\\s+", " " )
+                              .contains( "fill. Line 2: the quick brown fox." ));
+    }
+}
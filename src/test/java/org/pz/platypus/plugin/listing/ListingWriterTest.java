@@ -0,0 +1,78 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.listing;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Tests of ListingWriter
+ *
+ * @author alb
+ */
+public class ListingWriterTest
+{
+    private StringWriter sw;
+    private ListingWriter out;
+
+    @Before
+    public void setUp()
+    {
+        sw = new StringWriter();
+        out = new ListingWriter( sw );
+    }
+
+    @Test
+    public void nothingIsWrittenUntilFlush() throws IOException
+    {
+        out.append( "<li>" );
+        assertEquals( "", sw.toString() );
+        out.flush();
+        assertEquals( "<li>", sw.toString() );
+    }
+
+    @Test
+    public void appendEscaped() throws IOException
+    {
+        out.appendEscaped( "a < b && f(x) == \"#1\" 'y'" );
+        out.appendEscaped( null );
+        out.flush();
+        assertEquals( "a &lt; b &amp;&amp; f&#40;x&#41; == &quot;&#35;1&quot; &#39;y&#39;",
+                      sw.toString() );
+        assertEquals( HtmlListingStrategy.convertToHtmlText( "a < b && f(x) == \"#1\" 'y'" ),
+                      sw.toString() );
+    }
+
+    @Test
+    public void hardSpacesOnlyInText() throws IOException
+    {
+        out.setHardSpaces( true );
+        out.append( "<span title=\"a b\">" );
+        out.appendEscaped( "  int x;" );
+        out.setHardSpaces( false );
+        out.appendEscaped( " y" );
+        out.flush();
+        assertEquals( "<span title=\"a b\">&nbsp;&nbsp;int&nbsp;x; y", sw.toString() );
+    }
+
+    @Test
+    public void textLongerThanTheBuffer() throws IOException
+    {
+        final StringBuilder text = new StringBuilder();
+        for( int i = 0; i < ListingWriter.BUFFER_SIZE + 100; i++ ) {
+            text.append( i % 50 == 0 ? '<' : 'x' );
+        }
+        out.appendEscaped( text.toString() );
+        out.flush();
+        assertEquals( HtmlListingStrategy.convertToHtmlText( text.toString() ), sw.toString() );
+    }
+}
@@ -377,4 +377,55 @@ public class StartTest
                 "<span title=\"NEW_PARAGRAPH\"><font color=\"blue\">[]</font></span><br></li>\n",
                 fw.getText() );
     }
+
+    @Test
+    public void testStrategiesAreShared()
+    {
+        final Token tok1 = new Token( new Source( 1 ), TokenType.TEXT, "one" );
+        final Token tok2 = new Token( new Source( 2 ), TokenType.TEXT, "two" );
+        assertSame( HtmlListingStrategy.getFormatStrategy( tok1 ),
+                    HtmlListingStrategy.getFormatStrategy( tok2 ));
+        assertTrue( HtmlListingStrategy.getFormatStrategy(
+                        new Token( new Source( 1 ), TokenType.COMMAND, "[cr]", "[cr]", null ))
+                    instanceof HtmlCRListingStrategy );
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testStrategyOfUnsupportedType()
+    {
+        HtmlListingStrategy.getFormatStrategy( new Token( new Source( 1 ), TokenType.EOF, "" ));
+    }
+
+    @Test
+    public void testEmitListingMacro() throws IOException
+    {
+        MockFileWriter fw = new MockFileWriter();
+
+        TokenList tl = new TokenList();
+        tl.add( new Token( new Source( 0 ), TokenType.MACRO, "[$_page]", null, null ));
+        gdd.setInputTokens( tl );
+        start.emitListing( fw, gdd );
+
+        assertEquals( "<span title=\"MACRO\"><font color=\"brown\"><b>[$_page]</b></font></span>",
+                      fw.getText() );
+    }
+
+    @Test
+    public void testEmitListingCodeHasHardSpaces() throws IOException
+    {
+        MockFileWriter fw = new MockFileWriter();
+
+        TokenList tl = new TokenList();
+        tl.add( new Token( new Source( 0 ), TokenType.COMMAND, "[code]", "[code]", null ));
+        tl.add( new Token( new Source( 0 ), TokenType.TEXT, "  a < b" ));
+        tl.add( new Token( new Source( 0 ), TokenType.COMMAND, "[-code]", "[-code]", null ));
+        tl.add( new Token( new Source( 0 ), TokenType.TEXT, " c" ));
+        gdd.setInputTokens( tl );
+        start.emitListing( fw, gdd );
+
+        assertEquals( "<span title=\"COMMAND\"><font color=\"blue\">[code]</font></span>" +
+                      "&nbsp;&nbsp;a&nbsp;&lt;&nbsp;b" +
+                      "<span title=\"COMMAND\"><font color=\"blue\">[-code]</font></span> c",
+                      fw.getText() );
+    }
 }
@@ -0,0 +1,145 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.pdf;
+
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.BaseFont;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for DirectLayout
+ *
+ * @author alb
+ */
+public class DirectLayoutTest
+{
+    private DirectLayout layout;
+    private Font font;
+    private BaseFont bf;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        layout = new DirectLayout( 2.5f );
+        bf = BaseFont.createFont( BaseFont.HELVETICA, BaseFont.WINANSI, false );
+        font = new Font( bf, 12f );
+    }
+
+    private Paragraph createParagraph( final String text )
+    {
+        final Paragraph para = new Paragraph( 14f );
+        para.add( new Chunk( text, font ));
+        return( para );
+    }
+
+    private float width( final String s )
+    {
+        return( bf.getWidthPoint( s, 12f ));
+    }
+
+    @Test
+    public void loadsPlainText()
+    {
+        assertTrue( layout.load( createParagraph( "plain text" )));
+        assertEquals( 14f, layout.getLeading(), 0f );
+        assertTrue( layout.hasMoreLines() );
+    }
+
+    @Test
+    public void doesNotLoadUnderlinedText()
+    {
+        final Paragraph para = new Paragraph( 14f );
+        para.add( new Chunk( "underlined", new Font( bf, 12f, Font.UNDERLINE )));
+        assertFalse( layout.load( para ));
+    }
+
+    @Test
+    public void doesNotLoadAnchors()
+    {
+        final Paragraph para = createParagraph( "see " );
+        para.add( new Anchor( "platypus.pz.org", font ));
+        assertFalse( layout.load( para ));
+    }
+
+    @Test
+    public void doesNotLoadParagraphsWithSpacing()
+    {
+        final Paragraph para = createParagraph( "spaced" );
+        para.setSpacingBefore( 6f );
+        assertFalse( layout.load( para ));
+    }
+
+    @Test
+    public void breaksLinesAtSpaces()
+    {
+        layout.load( createParagraph( "aaa bbb ccc" ));
+        final float right = 100f + width( "aaa bbb c" );
+
+        layout.breakLine( 100f, right );
+        assertEquals( "aaa bbb", layout.getLineText() );
+        assertEquals( 100f, layout.getLineX(), 0f );
+        assertTrue( layout.hasMoreLines() );
+
+        layout.breakLine( 100f, right );
+        assertEquals( "ccc", layout.getLineText() );
+        assertFalse( layout.hasMoreLines() );
+    }
+
+    @Test
+    public void startsNewLinesAtNewlines()
+    {
+        layout.load( createParagraph( "one  \ntwo" ));
+
+        layout.breakLine( 0f, 500f );
+        assertEquals( "one", layout.getLineText() );
+        layout.breakLine( 0f, 500f );
+        assertEquals( "two", layout.getLineText() );
+        assertFalse( layout.hasMoreLines() );
+    }
+
+    @Test
+    public void alignsLinesRightAndCenter()
+    {
+        final Paragraph para = createParagraph( "right" );
+        para.setAlignment( Element.ALIGN_RIGHT );
+        layout.load( para );
+        layout.breakLine( 0f, 200f );
+        assertEquals( 200f - width( "right" ), layout.getLineX(), 0.001f );
+
+        para.setAlignment( Element.ALIGN_CENTER );
+        layout.load( para );
+        layout.breakLine( 0f, 200f );
+        assertEquals(( 200f - width( "right" )) / 2, layout.getLineX(), 0.001f );
+    }
+
+    @Test
+    public void indentsFirstLine()
+    {
+        final Paragraph para = createParagraph( "aaa bbb" );
+        para.setIndentationLeft( 10f );
+        para.setFirstLineIndent( 20f );
+        layout.load( para );
+        final float right = 30f + width( "aaa b" );
+
+        layout.breakLine( 0f, right );
+        assertEquals( 30f, layout.getLineX(), 0f );
+        layout.breakLine( 0f, right );
+        assertEquals( 10f, layout.getLineX(), 0f );
+    }
+
+    @Test
+    public void splitChars()
+    {
+        assertTrue( DirectLayout.isSplitChar( ' ' ));
+        assertTrue( DirectLayout.isSplitChar( '-' ));
+        assertFalse( DirectLayout.isSplitChar( 'a' ));
+        assertFalse( DirectLayout.isSplitChar( '.' ));
+    }
+}
@@ -12,6 +12,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.pz.platypus.interfaces.IOutputCommand;
 import org.pz.platypus.GDD;
+import org.pz.platypus.Source;
+import org.pz.platypus.Token;
+import org.pz.platypus.TokenType;
 
 public class PdfCommandTableTest
 {
@@ -58,6 +61,22 @@ public class PdfCommandTableTest
         assertEquals( null, oc );
     }
 
+    @Test
+    public void getCommandForTokenById()
+    {
+        pct.loadCommands();
+        Token tok = new Token( new Source( 1 ), TokenType.COMMAND, "[]", "[]", null );
+        assertSame( pct.getCommand( "[]" ), pct.getCommandFor( tok ));
+    }
+
+    @Test
+    public void getCommandForTokenWithUnknownRoot()
+    {
+        pct.loadCommands();
+        Token tok = new Token( new Source( 1 ), TokenType.COMMAND, "[nonexistent]", "[nonexistent]", null );
+        assertNull( pct.getCommandFor( tok ));
+    }
+
     @Test
     public void getNullCommand()
     {
@@ -0,0 +1,102 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.pdf;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.*;
+import org.pz.platypus.test.mocks.MockLogger;
+import org.pz.platypus.test.mocks.MockLiterals;
+
+import java.util.logging.Level;
+
+import com.lowagie.text.Font;
+
+/**
+ * Test of the cache of iText fonts
+ *
+ * @author alb
+ */
+public class PdfFontCacheTest
+{
+    private PdfData pdd;
+    private GDD gdd;
+
+    @Before
+    public void setUp()
+    {
+        gdd = new GDD();
+        gdd.initialize();
+        gdd.setLogger( new MockLogger() );
+        gdd.setLits( new MockLiterals() );
+        gdd.getLogger().setLevel( Level.OFF );
+        pdd = new PdfData( gdd );
+    }
+
+    @Test
+    public void sameAttributesReturnSameFont()
+    {
+        PdfFont pf = new PdfFont( pdd );
+        Font plain = pf.getItextFont();
+
+        pf.setBold( true, new Source() );
+        Font bold = pf.getItextFont();
+        assertNotSame( plain, bold );
+
+        pf.setBold( false, new Source() );
+        assertSame( plain, pf.getItextFont() );
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted()
+    {
+        PdfFontCache cache = pdd.getFontCache();
+        int hits = cache.getHits();
+        int misses = cache.getMisses();
+
+        PdfFont pf = new PdfFont( pdd );
+        pf.setSize( 31f, new Source() );   // new font: a miss
+        pf.setSize( 12f, new Source() );   // default size: a hit
+        pf.setSize( 31f, new Source() );   // a hit
+
+        assertEquals( hits + 3, cache.getHits() );
+        assertEquals( misses + 1, cache.getMisses() );
+    }
+
+    @Test
+    public void differentColorIsDifferentFont()
+    {
+        PdfFont pf = new PdfFont( pdd );
+        Font black = pf.getItextFont();
+        pf.setColor( new RgbColor( 255, 0, 0 ), new Source() );
+        assertNotSame( black, pf.getItextFont() );
+    }
+
+    @Test
+    public void cacheIsBounded()
+    {
+        PdfFontCache cache = new PdfFontCache();
+        Font f = new Font();
+        for( int i = 0; i < PdfFontCache.MAX_ENTRIES + 10; i++ ) {
+            cache.put( "TIMES_ROMAN", 1f + i, false, false, 0, f );
+        }
+
+        assertEquals( PdfFontCache.MAX_ENTRIES, cache.getSize() );
+        assertNull( cache.get( "TIMES_ROMAN", 1f, false, false, 0 ));
+        assertSame( f, cache.get( "TIMES_ROMAN", 1f + PdfFontCache.MAX_ENTRIES, false, false, 0 ));
+    }
+
+    @Test
+    public void fontSelectorIsReused()
+    {
+        PdfFontCache cache = pdd.getFontCache();
+        Font f = pdd.getFont().getItextFont();
+        assertSame( cache.getFontSelector( f ), cache.getFontSelector( f ));
+    }
+}
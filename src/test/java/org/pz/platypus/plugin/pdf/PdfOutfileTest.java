@@ -17,6 +17,7 @@ import org.pz.platypus.commands.Alignment;
 import org.pz.platypus.exceptions.FileCloseException;
 import org.pz.platypus.test.mocks.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.ArrayList;
@@ -280,4 +281,190 @@ public class PdfOutfileTest
         assertEquals( msg, chunk.toString() );
         assertEquals( newLeading, para.getLeading(), 0.5f );
     }
+
+    @Test
+    public void emitTextCoalescesTextInSameStyle()
+    {
+        pdat.setStrikethru( false, new Source() );
+        pdat.getUnderline().setInEffect( false, new Source() );
+        pout.setItPara( null );
+        pout.emitText( "one" );
+        pout.emitText( " " );
+        pout.emitText( "two" );
+
+        ArrayList chunks = pout.getItPara().getChunks();
+        assertEquals( 1, chunks.size() );
+        assertEquals( "one two", chunks.get( 0 ).toString() );
+    }
+
+    @Test
+    public void emitTextStartsNewChunkWhenStyleChanges()
+    {
+        pdat.setStrikethru( false, new Source() );
+        pdat.getUnderline().setInEffect( false, new Source() );
+        pout.setItPara( null );
+        pout.emitText( "plain " );
+        pdat.setStrikethru( true, new Source() );
+        pout.emitText( "struck" );
+        pout.emitText( " out" );
+        pdat.setStrikethru( false, new Source() );
+        pout.emitText( " plain" );
+
+        ArrayList chunks = pout.getItPara().getChunks();
+        assertEquals( 3, chunks.size() );
+        assertEquals( "struck out", chunks.get( 1 ).toString() );
+        assertTrue( ((Chunk) chunks.get( 1 )).hasAttributes() );
+    }
+
+    @Test
+    public void emitTextWithoutCoalescing()
+    {
+        pdat.setStrikethru( false, new Source() );
+        pdat.getUnderline().setInEffect( false, new Source() );
+        pout.coalesceText = false;
+        pout.setItPara( null );
+        pout.emitText( " " );
+        pout.emitText( " " );
+
+        assertEquals( 2, pout.getItPara().getChunks().size() );
+    }
+
+    @Test
+    public void coalesceTextIsReadFromConfigFile()
+    {
+        assertTrue( pout.lookupCoalesceText( gdd ));
+
+        PropertyFile config = new PropertyFile();
+        config.loadLine( "pi.out.pdf.coalesce_text=no" );
+        gdd.setConfigFile( config );
+        gdd.setOutputPluginPrefix( "pdf" );
+        assertFalse( pout.lookupCoalesceText( gdd ));
+    }
+
+    @Test
+    public void compressionLevelIsReadFromConfigFile()
+    {
+        PropertyFile config = new PropertyFile();
+        gdd.setConfigFile( config );
+        gdd.setOutputPluginPrefix( "pdf" );
+        assertEquals( PdfStream.DEFAULT_COMPRESSION, pout.lookupCompressionLevel( gdd ));
+
+        config.loadLine( "pi.out.pdf.compression_level=9" );
+        assertEquals( 9, pout.lookupCompressionLevel( gdd ));
+
+        config.loadLine( "pi.out.pdf.compression_level=10" );
+        assertEquals( PdfStream.DEFAULT_COMPRESSION, pout.lookupCompressionLevel( gdd ));
+
+        config.loadLine( "pi.out.pdf.compression_level=fast" );
+        assertEquals( PdfStream.DEFAULT_COMPRESSION, pout.lookupCompressionLevel( gdd ));
+    }
+
+    @Test
+    public void directLayoutIsReadFromConfigFile()
+    {
+        PropertyFile config = new PropertyFile();
+        config.loadLine( "pi.out.pdf.direct_layout=no" );
+        gdd.setConfigFile( config );
+        gdd.setOutputPluginPrefix( "pdf" );
+        assertFalse( pout.lookupDirectLayout( gdd ));
+
+        config.loadLine( "pi.out.pdf.direct_layout=yes" );
+        assertTrue( pout.lookupDirectLayout( gdd ));
+    }
+
+    @Test
+    public void flushThresholdDefaultsWhenNotInConfigFile()
+    {
+        assertEquals( PdfOutfile.DEFAULT_FLUSH_THRESHOLD, pout.lookupFlushThreshold( gdd ));
+    }
+
+    @Test
+    public void flushThresholdIsReadFromConfigFile()
+    {
+        PropertyFile config = new PropertyFile();
+        config.loadLine( "pi.out.pdf.flush_threshold=5" );
+        gdd.setConfigFile( config );
+        gdd.setOutputPluginPrefix( "pdf" );
+        assertEquals( 5, pout.lookupFlushThreshold( gdd ));
+
+        config.loadLine( "pi.out.pdf.flush_threshold=many" );
+        assertEquals( PdfOutfile.DEFAULT_FLUSH_THRESHOLD, pout.lookupFlushThreshold( gdd ));
+    }
+
+    @Test
+    public void queuedParagraphsAreLaidOutAtFlushThreshold() throws Exception
+    {
+        File pdf = File.createTempFile( "platypus-test", ".pdf" );
+        try {
+            pout.openPdfFile( gdd, pdat, pdf.getPath() );
+            pout.flushThreshold = 3;
+            float top = pout.computeTopColEdge();
+
+            pout.addParagraph( new Paragraph( "one" ), pout.getItColumn() );
+            pout.addParagraph( new Paragraph( "two" ), pout.getItColumn() );
+            assertEquals( 2, pout.queuedElements );
+            assertFalse( pout.columnInProgress );
+
+            pout.addParagraph( new Paragraph( "three" ), pout.getItColumn() );
+            assertEquals( 0, pout.queuedElements );
+            assertTrue( pout.columnInProgress );
+            assertTrue( pout.getYposition() < top );
+
+            // the next paragraphs continue down the same column
+            float y = pout.getYposition();
+            pout.addParagraph( new Paragraph( "four" ), pout.getItColumn() );
+            pout.addColumnsContentToDocument();
+            assertTrue( pout.getYposition() < y );
+            assertFalse( pout.columnInProgress );
+            pout.close();
+        }
+        finally {
+            pdf.delete();
+        }
+    }
+
+    @Test
+    public void directLayoutKeepsPagesOfBlankLines() throws Exception
+    {
+        assertEquals( countPagesOfBlankLines( false ), countPagesOfBlankLines( true ));
+    }
+
+    /**
+     * Writes a line of text followed by three pages' worth of blank lines and a last
+     * line of text, and counts the pages in the PDF.
+     *
+     * @param direct whether to lay out paragraphs directly
+     * @return the number of pages
+     */
+    private int countPagesOfBlankLines( final boolean direct ) throws Exception
+    {
+        PropertyFile config = new PropertyFile();
+        config.loadLine( "pi.out.pdf.direct_layout=" + ( direct ? "yes" : "no" ));
+        gdd.setConfigFile( config );
+        gdd.setOutputPluginPrefix( "pdf" );
+
+        File pdf = File.createTempFile( "platypus-test", ".pdf" );
+        try {
+            pout = new PdfOutfile();
+            pdat = new PdfData( gdd );
+            pout.setPdfData( pdat );
+            pout.openPdfFile( gdd, pdat, pdf.getPath() );
+
+            StringBuilder blankLines = new StringBuilder( "first\n" );
+            for( int i = 0; i < 200; i++ ) {
+                blankLines.append( '\n' );
+            }
+            blankLines.append( "last" );
+            pout.addParagraph( new Paragraph( 12f, blankLines.toString() ), pout.getItColumn() );
+            pout.close();
+
+            PdfReader reader = new PdfReader( pdf.getPath() );
+            int pages = reader.getNumberOfPages();
+            reader.close();
+            return( pages );
+        }
+        finally {
+            pdf.delete();
+        }
+    }
 }
\ No newline at end of file
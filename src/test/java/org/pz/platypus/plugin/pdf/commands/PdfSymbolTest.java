@@ -18,6 +18,7 @@ import org.pz.platypus.test.mocks.*;
 import java.util.logging.Level;
 
 import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.FontSelector;
 
 /**
  * Test processing of symbols and special characters in PDF plugin.
@@ -137,6 +138,16 @@ public class PdfSymbolTest
         assertEquals( "\u00E4", mo.getContent() );
     }
 
+    @Test
+    public void testFontSelectorReusedWhileFontUnchanged()
+    {
+        pds = new PdfSymbol( "[trademark]", "{SYMBOL}\\\\u00E4" );
+
+        FontSelector fs = pds.getFontSelector( pdd );
+        assertNotNull( fs );
+        assertSame( fs, pds.getFontSelector( pdd ));
+    }
+
     @Test
     public void testInvalidUnicodeValue1()
     {
@@ -0,0 +1,96 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.rtf;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.DefaultValues;
+import org.pz.platypus.GDD;
+import org.pz.platypus.Source;
+import org.pz.platypus.TypefaceMap;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.util.logging.Level;
+
+/**
+ * Tests for RtfFont
+ *
+ * @author alb
+ */
+public class RtfFontTest
+{
+    private RtfData rtd;
+    private RtfFont font;
+
+    @Before
+    public void setUp()
+    {
+        GDD gdd = new GDD();
+        gdd.initialize();
+        gdd.setLits( new MockLiterals() );
+        gdd.setLogger( new MockLogger() );
+        gdd.getLogger().setLevel( Level.OFF );
+
+        rtd = new RtfData( gdd );
+        TypefaceMap typefaceMap = new TypefaceMap( gdd );
+        typefaceMap.addFontFileToFamily( "Junicode", "/no/such/dir/Junicode.ttf" );
+        rtd.setTypefaceMap( typefaceMap );
+
+        font = new RtfFont( rtd );
+    }
+
+    @Test
+    public void testDefaults()
+    {
+        assertEquals( DefaultValues.FONT_TYPEFACE, font.getFace() );
+        assertEquals( DefaultValues.FONT_SIZE, font.getSize(), 0f );
+        assertFalse( font.getBold() );
+        assertFalse( font.getItalics() );
+    }
+
+    @Test
+    public void faceInTypefaceMapIsUsedWithoutOpeningItsFiles()
+    {
+        font.setFace( "Junicode", new Source( 1, 2 ));
+        assertEquals( "Junicode", font.getFace() );
+        assertEquals( 2, font.getSource().getLineNumber() );
+    }
+
+    @Test
+    public void unknownFaceIsReplacedByDefault()
+    {
+        font.setFace( "HELVETICA", new Source() );
+        assertEquals( "HELVETICA", font.getFace() );
+
+        font.setFace( "NoSuchTypeface", new Source() );
+        assertEquals( DefaultValues.FONT_TYPEFACE, font.getFace() );
+    }
+
+    @Test
+    public void clonedFontKeepsAttributes()
+    {
+        font.setBold( true, new Source() );
+        font.setSize( 20f, new Source() );
+        RtfFont clone = new RtfFont( rtd, "COURIER", font );
+        assertEquals( "COURIER", clone.getFace() );
+        assertEquals( 20f, clone.getSize(), 0f );
+        assertTrue( clone.getBold() );
+    }
+
+    @Test
+    public void itextFontIsCreatedWhenAskedFor()
+    {
+        font.setSize( 18f, new Source() );
+        assertEquals( 18f, font.getItextFont().getSize(), 0f );
+
+        font.setSize( 9f, new Source() );
+        assertEquals( 9f, font.getItextFont().getSize(), 0f );
+    }
+}
@@ -0,0 +1,102 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.rtf;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.pz.platypus.GDD;
+import org.pz.platypus.test.mocks.MockLiterals;
+import org.pz.platypus.test.mocks.MockLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests for RtfOutfile
+ *
+ * @author alb
+ */
+public class RtfOutfileTest
+{
+    private RtfOutfile outfile;
+    private ByteArrayOutputStream bytes;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        GDD gdd = new GDD();
+        gdd.initialize();
+        gdd.setLits( new MockLiterals() );
+        gdd.setLogger( new MockLogger() );
+
+        outfile = new RtfOutfile( "", new RtfData( gdd ));
+        bytes = new ByteArrayOutputStream();
+        outfile.open( bytes );
+    }
+
+    /**
+     * @return what was written after the prolog, once the file is closed
+     */
+    private String getBody() throws IOException
+    {
+        outfile.close( null );
+        final String rtf = bytes.toString( "US-ASCII" );
+        return( rtf.substring( rtf.lastIndexOf( "\n" ) + 1 ));
+    }
+
+    @Test
+    public void asciiTextIsWrittenAsIs() throws IOException
+    {
+        outfile.writeText( "plain text." );
+        assertEquals( "plain text.}", getBody() );
+    }
+
+    @Test
+    public void specialCharsAreEscapedInTextOnly() throws IOException
+    {
+        outfile.writeText( "a\\b{c}" );
+        outfile.writeCommand( "{\\b " );
+        assertEquals( "a\\\\b\\{c\\}{\\b }", getBody() );
+    }
+
+    @Test
+    public void codePageCharsAreWrittenInHex() throws IOException
+    {
+        outfile.writeText( "caf\u00e9 \u20ac5 \u201cq\u201d" );
+        assertEquals( "caf\\'e9 \\'805 \\'93q\\'94}", getBody() );
+    }
+
+    @Test
+    public void otherCharsAreWrittenAsUnicode() throws IOException
+    {
+        outfile.writeText( "\u03b1\uff01\u0081" );
+        assertEquals( "\\u945?\\u-255?\\u129?}", getBody() );
+    }
+
+    @Test
+    public void textLargerThanTheBufferIsWrittenInFull() throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        while( sb.length() < RtfOutfile.BUFFER_SIZE * 2 ) {
+            sb.append( "0123456789\u00e9" );
+        }
+        outfile.writeText( sb.toString() );
+        assertEquals( sb.toString().replace( "\u00e9", "\\'e9" ) + "}", getBody() );
+    }
+
+    @Test
+    public void prologIsWritten() throws IOException
+    {
+        outfile.close( null );
+        final String rtf = bytes.toString( "US-ASCII" );
+        assertTrue( rtf.startsWith( "{\\rtf1\\ansi\\ansicpg1252\n" ));
+        assertTrue( rtf.contains( "{\\f" + RtfOutfile.SYMBOL_FONT + "\\fcharset2 Symbol;}" ));
+        assertFalse( outfile.isOpen() );
+    }
+}
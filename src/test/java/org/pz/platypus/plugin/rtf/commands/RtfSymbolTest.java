@@ -0,0 +1,59 @@
+/***
+ *  Platypus: Page Layout and Typesetting Software (free at platypus.pz.org)
+ *
+ *  Platypus is (c) Copyright 2011 Pacific Data Works LLC. All Rights Reserved.
+ *  Licensed under Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0.html)
+ */
+
+package org.pz.platypus.plugin.rtf.commands;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests for RtfSymbol
+ *
+ * @author alb
+ */
+public class RtfSymbolTest
+{
+    @Test
+    public void testConstructor()
+    {
+        RtfSymbol sym = new RtfSymbol( "[alpha]", "\\\\u03B1" );
+        assertEquals( "[alpha]", sym.getRoot() );
+        assertEquals( "\u03b1", sym.getChars() );
+        assertFalse( sym.isInSymbolFont() );
+    }
+
+    @Test
+    public void unicodeBeyondBmp()
+    {
+        assertEquals( "\ud835\udc9c", new RtfSymbol( "[Ascr]", "\\\\u1D49C" ).getChars() );
+        assertEquals( "\\\\u110000", new RtfSymbol( "[bad]", "\\\\u110000" ).getChars() );
+    }
+
+    @Test
+    public void charsAsIs()
+    {
+        assertEquals( "\u00e1", new RtfSymbol( "[a']", "\u00e1" ).getChars() );
+    }
+
+    @Test
+    public void font()
+    {
+        RtfSymbol chi = new RtfSymbol( "[chi]", "{SYMBOL}\\\\u0063" );
+        assertEquals( "c", chi.getChars() );
+        assertTrue( chi.isInSymbolFont() );
+
+        RtfSymbol star = new RtfSymbol( "[bkstar]", "{Symbola}\\\\u22C6" );
+        assertEquals( "\u22c6", star.getChars() );
+        assertFalse( star.isInSymbolFont() );
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void processWithNullContext()
+    {
+        new RtfSymbol( "[alpha]", "\\\\u03B1" ).process( null, null, 0 );
+    }
+}
@@ -73,6 +73,12 @@ public class MockFileWriter extends FileWriter
         }
     }
 
+    @Override
+    public void write( final char[] chars, final int offset, final int length ) throws IOException
+    {
+        write( new String( chars, offset, length ));
+    }
+
     public int getCounter()
     {
         return( counter );
@@ -11,6 +11,7 @@ import org.pz.platypus.plugin.pdf.PdfOutfile;
 import org.pz.platypus.BulletLists;
 import com.lowagie.text.Paragraph;
 import com.lowagie.text.Chunk;
+import com.lowagie.text.pdf.FontSelector;
 
 /**
  * Mock of PdfOutfile class for use in unit tests
@@ -36,6 +37,11 @@ public class MockPdfOutfile extends PdfOutfile
         addContent( s );
     }
 
+    @Override
+    public void emitChar( final String s, final FontSelector fs ) {
+        addContent( s );
+    }
+
     @Override
     public void emitText( final String s ) {
         addContent( s );